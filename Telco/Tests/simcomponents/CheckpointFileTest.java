@@ -0,0 +1,219 @@
+package simcomponents;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import randomgenr.RandomBackend;
+import randomgenr.RandomStreams;
+import simstats.StationStatistics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that a run resumed from a checkpoint ends exactly as the run would
+ * have without stopping, and that checkpoints of other models, other versions
+ * and other random backends are refused.
+ */
+class CheckpointFileTest {
+    private static final Path MODEL = Paths.get("models", "call_center.topology");
+    private static final double END_TIME = 200.0;
+    private static final long SEED = 42;
+
+    private static Topology busyCallCenter;
+    private static Topology batchCallCenter;
+    private static Topology otherModel;
+
+    @BeforeAll
+    static void loadModels() throws IOException {
+        // the call center with 500 arrivals in its first hour, so that checkpoints hold queues and pending arrivals
+        String text = new String(Files.readAllBytes(MODEL), StandardCharsets.UTF_8);
+        busyCallCenter = load(text.replace("generator Gen_1 23.625", "generator Gen_1 500"));
+        batchCallCenter = load(text.replace("generator Gen_1 23.625", "generator Gen_1 500"));
+        batchCallCenter.setStreamingArrivals(false);
+        otherModel = load("generator Gen_1 500 Desk\n"
+                + "station Desk 2 exponential 0.5\n"
+                + "transducer Exit\n"
+                + "route Desk Exit 1.0\n");
+    }
+
+    @Test
+    void resumedRunMatchesUninterruptedRun() throws IOException {
+        for (EventListType eventList : EventListType.values()) {
+            for (boolean pooling : new boolean[] {false, true}) {
+                for (boolean streaming : new boolean[] {true, false}) {
+                    // checkpoint while arrivals are pending, and once the network is draining
+                    for (double checkpointTime : new double[] {0.5, 50.0}) {
+                        String run = eventList + (pooling ? " with pooling" : "")
+                                + (streaming ? "" : " with batch arrivals") + ", checkpoint at " + checkpointTime;
+                        assertResumesExactly(run, eventList, pooling, streaming, checkpointTime);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void restoreReturnsDiscardedEventsToPool() throws IOException {
+        // Given a pooled run part way through, and a checkpoint of the same model with fewer pending events
+        SimEngine engine = engine(EventListType.BINARY_HEAP, true, RandomBackend.XOSHIRO256PP);
+        List<QueueStation> stations = busyCallCenter.build(engine);
+        engine.simulateUntil(1.0);
+        int discarded = engine.getPendingEventCount();
+        int pooled = engine.getPooledEventCount();
+        Path file = checkpoint(EventListType.BINARY_HEAP, true, true, 0.01);
+
+        // When the checkpoint is restored into the run
+        CheckpointFile.restore(file, engine, stations);
+
+        // Then the events it discarded went back to the pool, and the restored ones came from it
+        int restored = engine.getPendingEventCount();
+        assertTrue(discarded != restored && pooled + discarded >= restored, discarded + " discarded, "
+                + restored + " restored");
+        assertEquals(pooled + discarded - restored, engine.getPooledEventCount());
+    }
+
+    @Test
+    void checkpointOfAnotherModelIsRefused() throws IOException {
+        // Given a checkpoint of the call center
+        Path file = checkpoint(EventListType.BINARY_HEAP, false, true, 0.5);
+
+        // When it is restored into another model, then it is refused
+        SimEngine engine = engine(EventListType.BINARY_HEAP, false, RandomBackend.XOSHIRO256PP);
+        List<QueueStation> stations = otherModel.build(engine);
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> CheckpointFile.restore(file, engine, stations));
+        assertTrue(e.getMessage().contains("stations"), e.getMessage());
+    }
+
+    @Test
+    void checkpointOfAnotherVersionIsRefused() throws IOException {
+        // Given a checkpoint whose version has been changed
+        Path file = checkpoint(EventListType.BINARY_HEAP, false, true, 0.5);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, Integer.MAX_VALUE), Integer.BYTES);
+        }
+
+        // When it is restored, then it is refused
+        SimEngine engine = engine(EventListType.BINARY_HEAP, false, RandomBackend.XOSHIRO256PP);
+        List<QueueStation> stations = busyCallCenter.build(engine);
+        assertThrows(IOException.class, () -> CheckpointFile.restore(file, engine, stations));
+    }
+
+    @Test
+    void backendWithoutSavableStateIsRefused() throws IOException {
+        // Given a run on a backend whose state cannot be saved
+        SimEngine engine = engine(EventListType.BINARY_HEAP, false, RandomBackend.L64X128);
+        List<QueueStation> stations = busyCallCenter.build(engine);
+        Path file = temporaryFile();
+
+        // Then it cannot be checkpointed or resumed
+        assertThrows(IllegalStateException.class, () -> CheckpointFile.write(file, engine, stations));
+        assertThrows(IllegalStateException.class, () -> CheckpointFile.restore(file, engine, stations));
+    }
+
+    private static void assertResumesExactly(String run, EventListType eventList, boolean pooling, boolean streaming,
+            double checkpointTime) throws IOException {
+        // Given an uninterrupted run
+        SimEngine uninterrupted = engine(eventList, pooling, RandomBackend.XOSHIRO256PP);
+        List<QueueStation> expected = model(streaming).build(uninterrupted);
+        uninterrupted.simulate();
+
+        // And a checkpoint written part way through the same run
+        Path file = checkpoint(eventList, pooling, streaming, checkpointTime);
+
+        // When a freshly built model is resumed from it
+        SimEngine resumed = engine(eventList, pooling, RandomBackend.XOSHIRO256PP);
+        List<QueueStation> actual = model(streaming).build(resumed);
+        CheckpointFile.restore(file, resumed, actual);
+        assertTrue(resumed.getSimTime() > 0.0 && resumed.getSimTime() < checkpointTime, run + ": resumed at "
+                + resumed.getSimTime());
+        resumed.setEventList(eventList.create());
+        resumed.simulate();
+
+        // Then it ends exactly as the uninterrupted run did
+        assertEquals(uninterrupted.getSimTime(), resumed.getSimTime(), run + ": end time");
+        assertEquals(uninterrupted.getEventCount(), resumed.getEventCount(), run + ": event count");
+        for (int i = 0; i < expected.size(); i++) {
+            StationStatistics want = expected.get(i).getStatistics();
+            StationStatistics got = actual.get(i).getStatistics();
+            assertEquals(report(want, uninterrupted.getSimTime()), report(got, resumed.getSimTime()), run);
+            assertArrayEquals(values(want), values(got), run + ": " + want.getName());
+        }
+    }
+
+    /**
+     * Runs the busy call center and writes a checkpoint at the first event at
+     * or after a time.
+     *
+     * @return the checkpoint file
+     */
+    private static Path checkpoint(EventListType eventList, boolean pooling, boolean streaming, double time)
+            throws IOException {
+        SimEngine engine = engine(eventList, pooling, RandomBackend.XOSHIRO256PP);
+        List<QueueStation> stations = model(streaming).build(engine);
+        Path file = temporaryFile();
+        boolean[] written = {false};
+
+        engine.simulate(time, () -> {
+            if (!written[0]) {
+                try {
+                    CheckpointFile.write(file, engine, stations);
+                } catch (IOException ioe) {
+                    throw new AssertionError(ioe);
+                }
+                written[0] = true;
+            }
+        });
+        assertTrue(written[0], "The run ended before the checkpoint.");
+        return file;
+    }
+
+    private static Topology model(boolean streaming) {
+        return streaming ? busyCallCenter : batchCallCenter;
+    }
+
+    private static SimEngine engine(EventListType eventList, boolean pooling, RandomBackend backend) {
+        SimEngine engine = new SimEngine(new RandomStreams(SEED, backend));
+        engine.setEndTime(END_TIME);
+        engine.setEventList(eventList.create());
+        engine.setPooling(pooling);
+        return engine;
+    }
+
+    private static String report(StationStatistics statistics, double time) {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        statistics.report(new PrintStream(text, true), time);
+        return text.toString();
+    }
+
+    private static byte[] values(StationStatistics statistics) {
+        ByteBuffer buffer = ByteBuffer.allocate(StationStatistics.BYTES);
+        statistics.writeTo(buffer);
+        return buffer.array();
+    }
+
+    private static Path temporaryFile() throws IOException {
+        Path file = Files.createTempFile("checkpoint", ".bin");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    private static Topology load(String text) throws IOException {
+        Path file = Files.createTempFile("model", ".topology");
+        file.toFile().deleteOnExit();
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return Topology.load(file);
+    }
+}
@@ -0,0 +1,88 @@
+package simcomponents;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import randomgenr.RandomStreams;
+import simstats.StationStatistics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the flat model of a topology gives exactly the station
+ * statistics of the same topology built on a SimEngine, for the same seed.
+ */
+class FlatSimulatorTest {
+    private static final Path MODEL = Paths.get("models", "call_center.topology");
+    private static final double END_TIME = 40.0;
+    private static final double BUSY_END_TIME = 200.0;
+    private static final long[] SEEDS = {1, 42, 20170501};
+
+    private static Topology callCenter;
+    private static Topology busyCallCenter;
+
+    @BeforeAll
+    static void loadModels() throws IOException {
+        callCenter = Topology.load(MODEL);
+
+        // the call center with 500 arrivals in its first hour, so that every station queues
+        String text = new String(Files.readAllBytes(MODEL), StandardCharsets.UTF_8);
+        Path busy = Files.createTempFile("busy_call_center", ".topology");
+        busy.toFile().deleteOnExit();
+        Files.write(busy, text.replace("generator Gen_1 23.625", "generator Gen_1 500").getBytes(StandardCharsets.UTF_8));
+        busyCallCenter = Topology.load(busy);
+    }
+
+    @Test
+    void flatModelMatchesEngine() {
+        for (Topology model : new Topology[] {callCenter, busyCallCenter}) {
+            double endTime = (model == callCenter) ? END_TIME : BUSY_END_TIME;
+            for (long seed : SEEDS) {
+                String run = ((model == callCenter) ? "call center" : "busy call center") + ", seed " + seed;
+
+                // Given a topology run on a SimEngine
+                SimEngine engine = new SimEngine(new RandomStreams(seed));
+                engine.setEndTime(endTime);
+                List<QueueStation> stations = model.build(engine);
+                engine.simulate();
+
+                // When its flat model is run with the same seed
+                FlatSimulator simulator = new FlatSimulator(model.compile(), new RandomStreams(seed), endTime);
+                simulator.simulate();
+
+                // Then both end at the same time, after the same events, with the same statistics at every station
+                assertEquals(engine.getSimTime(), simulator.getSimTime(), run + ": end time");
+                assertEquals(engine.getEventCount(), simulator.getEventCount(), run + ": event count");
+                for (int i = 0; i < stations.size(); i++) {
+                    StationStatistics want = stations.get(i).getStatistics();
+                    StationStatistics got = simulator.getStatistics(i);
+                    assertTrue(want.getArrivals() > 0 || model == callCenter, run + ": " + want.getName() + " is idle");
+                    assertEquals(report(want, engine.getSimTime()), report(got, simulator.getSimTime()), run);
+                    assertArrayEquals(values(want), values(got), run + ": " + want.getName());
+                }
+            }
+        }
+    }
+
+    private static String report(StationStatistics statistics, double time) {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        statistics.report(new PrintStream(text, true), time);
+        return text.toString();
+    }
+
+    private static byte[] values(StationStatistics statistics) {
+        ByteBuffer buffer = ByteBuffer.allocate(StationStatistics.BYTES);
+        statistics.writeTo(buffer);
+        return buffer.array();
+    }
+}
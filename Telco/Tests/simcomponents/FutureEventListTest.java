@@ -0,0 +1,144 @@
+package simcomponents;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.DoubleSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks every future event list against a PriorityQueue, which orders events
+ * with SimEvent.compareTo. Events are scheduled the way the engine schedules
+ * them: never earlier than the last event dispatched, with increasing sequence
+ * numbers.
+ */
+class FutureEventListTest {
+    private static final int OPERATIONS = 200_000;
+
+    @Test
+    void heavyTies() {
+        // Given event times drawn from a handful of values
+        for (EventListType type : EventListType.values()) {
+            Random random = new Random(1);
+            fuzz(type, random, () -> random.nextInt(4));
+        }
+    }
+
+    @Test
+    void zeroIncrements() {
+        // Given events mostly scheduled at the current time
+        for (EventListType type : EventListType.values()) {
+            Random random = new Random(2);
+            fuzz(type, random, () -> random.nextDouble() < 0.7 ? 0.0 : random.nextDouble());
+        }
+    }
+
+    @Test
+    void skewedGaps() {
+        // Given mostly tiny increments with a few that are many orders of magnitude larger
+        for (EventListType type : EventListType.values()) {
+            Random random = new Random(3);
+            fuzz(type, random, () -> {
+                double u = random.nextDouble();
+                if (u < 0.90) {
+                    return random.nextDouble() * 1e-6;
+                }
+                return (u < 0.99) ? random.nextDouble() : 1e6 * random.nextDouble();
+            });
+        }
+    }
+
+    @Test
+    void heavyTail() {
+        // Given Pareto distributed increments
+        for (EventListType type : EventListType.values()) {
+            Random random = new Random(4);
+            fuzz(type, random, () -> Math.pow(1.0 - random.nextDouble(), -1.0 / 1.1) - 1.0);
+        }
+    }
+
+    @Test
+    void growAndDrain() {
+        // Given a list that repeatedly grows large and drains to empty, forcing resizes and new rungs
+        for (EventListType type : EventListType.values()) {
+            Random random = new Random(5);
+            FutureEventList list = type.create();
+            PriorityQueue<SimEvent> expected = new PriorityQueue<>();
+            long sequence = 0;
+            double now = 0.0;
+
+            for (int round = 0; round < 20; round++) {
+                int count = 1 + random.nextInt(20_000);
+                for (int i = 0; i < count; i++) {
+                    double increment = (round % 2 == 0) ? random.nextInt(100) : random.nextDouble() * 1000.0;
+                    SimEvent event = event(now + increment, sequence++);
+                    list.add(event);
+                    expected.add(event);
+                }
+                while (!expected.isEmpty()) {
+                    now = pollAndCompare(type, list, expected).getEventTime();
+                }
+                assertNull(list.poll(), type + " returned an event once empty");
+                assertNull(list.peek(), type + " peeked an event once empty");
+                assertEquals(0, list.size());
+            }
+        }
+    }
+
+    /**
+     * Interleaves adds, polls and peeks on a list and the reference queue.
+     */
+    private static void fuzz(EventListType type, Random random, DoubleSupplier increment) {
+        FutureEventList list = type.create();
+        PriorityQueue<SimEvent> expected = new PriorityQueue<>();
+        long sequence = 0;
+        double now = 0.0;
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            // drift between growing and shrinking so that the lists resize both ways
+            double addProbability = ((i / 20_000) % 2 == 0) ? 0.6 : 0.4;
+            double u = random.nextDouble();
+
+            if (u < addProbability || expected.isEmpty()) {
+                SimEvent event = event(now + increment.getAsDouble(), sequence++);
+                list.add(event);
+                expected.add(event);
+            } else if (u < 0.9) {
+                now = pollAndCompare(type, list, expected).getEventTime();
+            } else {
+                int operation = i;
+                assertSame(expected.peek(), list.peek(), () -> type + " peeked the wrong event at operation " + operation);
+            }
+            assertEquals(expected.size(), list.size(), type::toString);
+        }
+
+        while (!expected.isEmpty()) {
+            pollAndCompare(type, list, expected);
+        }
+        assertNull(list.poll(), type + " returned an event once empty");
+    }
+
+    private static SimEvent pollAndCompare(EventListType type, FutureEventList list, PriorityQueue<SimEvent> expected) {
+        SimEvent want = expected.poll();
+        SimEvent got = list.poll();
+
+        assertSame(want, got, () -> type + " returned " + describe(got) + " instead of " + describe(want));
+        SimEvent following = expected.peek();
+        if (following != null) {
+            assertTrue(SimEvent.precedes(got, following));
+        }
+        return got;
+    }
+
+    private static String describe(SimEvent event) {
+        return (event == null) ? "nothing" : "the event at " + event.getEventTime() + " (sequence " + event.sequence + ")";
+    }
+
+    private static SimEvent event(double time, long sequence) {
+        SimEvent event = new SimEvent(null, time);
+        event.sequence = sequence;
+        return event;
+    }
+}
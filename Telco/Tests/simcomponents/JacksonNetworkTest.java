@@ -0,0 +1,183 @@
+package simcomponents;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the analytical solution against closed-form results: the M/M/1 and
+ * M/M/c queues, Erlang B and C, and the traffic equations of tandem and
+ * feedback networks.
+ */
+class JacksonNetworkTest {
+    private static final double TOLERANCE = 1e-12;
+
+    @Test
+    void singleServerQueue() throws IOException {
+        // Given an M/M/1 queue with arrival rate 2 and service rate 5
+        JacksonNetwork network = load("generator Gen_1 2 Desk\n"
+                + "station Desk 1 exponential 5\n"
+                + "transducer Exit\n"
+                + "route Desk Exit 1.0\n");
+
+        // When it is solved
+        JacksonNetwork.Solution solution = network.solve();
+
+        // Then rho = 0.4, P(wait) = rho, Lq = rho^2 / (1 - rho) and W = 1 / (mu - lambda)
+        assertTrue(solution.isProductForm());
+        assertTrue(solution.isStable());
+        assertEquals(0.4, solution.getUtilization(0), TOLERANCE);
+        assertEquals(0.4, solution.getWaitProbability(0), TOLERANCE);
+        assertEquals(0.16 / 0.6, solution.getMeanQueueLength(0), TOLERANCE);
+        assertEquals(0.08 / 0.6, solution.getMeanWaitTime(0), TOLERANCE);
+        assertEquals(1.0 / 3.0, solution.getMeanResponseTime(0), TOLERANCE);
+        assertEquals(2.0, solution.getArrivalRate(1), TOLERANCE);
+        assertEquals(1.0 / 3.0, solution.getNetworkResponseTime(), TOLERANCE);
+    }
+
+    @Test
+    void multiServerQueue() throws IOException {
+        // Given an M/M/c queue with an offered load of 2 Erlangs
+        JacksonNetwork network = load("generator Gen_1 2 Desk\n"
+                + "station Desk 3 exponential 1\n"
+                + "transducer Exit\n"
+                + "route Desk Exit 1.0\n");
+
+        // When it is solved with 3 servers
+        JacksonNetwork.Solution three = network.solve();
+
+        // Then Erlang B is 4/19 and Erlang C is 4/9
+        double erlangB = 4.0 / 19.0;
+        assertEquals(erlangB / (1.0 - 2.0 / 3.0 * (1.0 - erlangB)), three.getWaitProbability(0), TOLERANCE);
+        assertEquals(4.0 / 9.0, three.getWaitProbability(0), TOLERANCE);
+        assertEquals(2.0 / 3.0, three.getUtilization(0), TOLERANCE);
+        assertEquals(8.0 / 9.0, three.getMeanQueueLength(0), TOLERANCE);
+        assertEquals(4.0 / 9.0, three.getMeanWaitTime(0), TOLERANCE);
+        assertEquals(13.0 / 9.0, three.getMeanResponseTime(0), TOLERANCE);
+
+        // And with 4 servers, Erlang C is 4/23
+        JacksonNetwork.Solution four = network.solve(new int[] {4, 0});
+        assertEquals(4.0 / 23.0, four.getWaitProbability(0), TOLERANCE);
+        assertEquals(0.5, four.getUtilization(0), TOLERANCE);
+        assertEquals(4.0 / 23.0, four.getMeanQueueLength(0), TOLERANCE);
+
+        // And with 2 servers, the queue grows without bound
+        JacksonNetwork.Solution two = network.solve(new int[] {2, 0});
+        assertFalse(two.isStable());
+        assertEquals(List.of("Desk"), two.getUnstableStations());
+        assertEquals(Double.POSITIVE_INFINITY, two.getMeanQueueLength(0));
+    }
+
+    @Test
+    void tandemQueue() throws IOException {
+        // Given an M/M/1 queue feeding an M/M/2 queue
+        JacksonNetwork network = load("generator Gen_1 3 First\n"
+                + "station First 1 exponential 5\n"
+                + "station Second 2 exponential 2\n"
+                + "transducer Exit\n"
+                + "route First Second 1.0\n"
+                + "route Second Exit 1.0\n");
+
+        // When it is solved
+        JacksonNetwork.Solution solution = network.solve();
+
+        // Then both stations see the external arrival rate
+        assertEquals(3.0, solution.getArrivalRate(0), TOLERANCE);
+        assertEquals(3.0, solution.getArrivalRate(1), TOLERANCE);
+
+        // And each is solved on its own: W1 = 1/2, Erlang C of the second is 9/14
+        assertEquals(0.5, solution.getMeanResponseTime(0), TOLERANCE);
+        assertEquals(9.0 / 14.0, solution.getWaitProbability(1), TOLERANCE);
+        assertEquals(27.0 / 14.0, solution.getMeanQueueLength(1), TOLERANCE);
+        assertEquals(9.0 / 14.0 + 0.5, solution.getMeanResponseTime(1), TOLERANCE);
+
+        // And a job spends the sum of both response times in the network
+        assertEquals(23.0 / 14.0, solution.getNetworkResponseTime(), TOLERANCE);
+    }
+
+    @Test
+    void feedbackRaisesArrivalRates() throws IOException {
+        // Given two stations that send a quarter of their jobs back, and one that sends half back to itself
+        JacksonNetwork network = load("generator Gen_1 3 First\n"
+                + "generator Gen_2 1 Loop\n"
+                + "station First 2 exponential 5\n"
+                + "station Second 2 exponential 5\n"
+                + "station Loop 1 exponential 5\n"
+                + "transducer Exit\n"
+                + "route First Second 1.0\n"
+                + "route Second First 0.25\n"
+                + "route Second Exit 0.75\n"
+                + "route Loop Loop 0.5\n"
+                + "route Loop Exit 0.5\n");
+
+        // Then lambda = gamma + lambda P: 3 + lambda / 4 = 4 for the pair, and 1 + lambda / 2 = 2 for the loop
+        assertEquals(4.0, network.getArrivalRate(0), TOLERANCE);
+        assertEquals(4.0, network.getArrivalRate(1), TOLERANCE);
+        assertEquals(2.0, network.getArrivalRate(2), TOLERANCE);
+        assertEquals(4.0, network.getArrivalRate(3), TOLERANCE);
+
+        // And by Little's law, the network response time is jobs in the network over the external rate
+        JacksonNetwork.Solution solution = network.solve();
+        double inNetwork = 0.0;
+        for (int s = 0; s < 3; s++) {
+            inNetwork += solution.getArrivalRate(s) * solution.getMeanResponseTime(s);
+        }
+        assertEquals(inNetwork / 4.0, solution.getNetworkResponseTime(), TOLERANCE);
+        assertEquals(1.0 / 3.0, solution.getMeanResponseTime(2), TOLERANCE);
+    }
+
+    @Test
+    void closedCycleIsRefused() throws IOException {
+        // Given two stations that only route jobs to each other
+        Path file = write("generator Gen_1 1 First\n"
+                + "station First 1 exponential 5\n"
+                + "station Second 1 exponential 5\n"
+                + "route First Second 1.0\n"
+                + "route Second First 1.0\n");
+        Topology topology = Topology.load(file);
+
+        // Then the traffic equations have no solution
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> JacksonNetwork.of(topology));
+        assertTrue(e.getMessage().contains("never leave"), e.getMessage());
+    }
+
+    @Test
+    void topologyMatchesBuiltStations() throws IOException {
+        // Given the call center as a topology, and as stations built on an engine
+        Topology topology = Topology.load(Paths.get("models", "call_center.topology"));
+        SimEngine engine = new SimEngine(0L);
+        List<QueueStation> stations = topology.build(engine);
+
+        // Then both give the same solution
+        JacksonNetwork fromTopology = JacksonNetwork.of(topology);
+        JacksonNetwork fromStations = JacksonNetwork.of(stations, stations.get(0), 23.625);
+        assertEquals(report(fromStations.solve()), report(fromTopology.solve()));
+        assertFalse(fromTopology.solve().isProductForm());
+    }
+
+    private static String report(JacksonNetwork.Solution solution) {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        solution.report(new PrintStream(text, true));
+        return text.toString();
+    }
+
+    private static JacksonNetwork load(String model) throws IOException {
+        return JacksonNetwork.of(Topology.load(write(model)));
+    }
+
+    private static Path write(String model) throws IOException {
+        Path file = Files.createTempFile("jackson", ".topology");
+        file.toFile().deleteOnExit();
+        Files.write(file, model.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,191 @@
+package simcomponents;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import simstats.StationStatistics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that a parallel run of the call center model gives the same station
+ * statistics however its stations are divided among logical processes, and
+ * whether they synchronise conservatively or optimistically. Besides the model
+ * as it is, a busy variant with 500 arrivals sends enough jobs between the
+ * processes to matter, and a ring of stations, each in its own process, keeps
+ * jobs in flight while processes go idle.
+ */
+class ParallelSimulatorTest {
+    private static final Path MODEL = Paths.get("models", "call_center.topology");
+    private static final double END_TIME = 40.0;
+    private static final double BUSY_END_TIME = 200.0;
+    private static final long SEED = 42;
+
+    private static final int RING_STATIONS = 8;
+    private static final int RING_REPETITIONS = 25;
+
+    private static Topology callCenter;
+    private static Topology busyCallCenter;
+    private static Topology ring;
+
+    @BeforeAll
+    static void loadModels() throws IOException {
+        callCenter = Topology.load(MODEL);
+
+        String text = new String(Files.readAllBytes(MODEL), StandardCharsets.UTF_8);
+        Path busy = Files.createTempFile("busy_call_center", ".topology");
+        busy.toFile().deleteOnExit();
+        Files.write(busy, text.replace("generator Gen_1 23.625", "generator Gen_1 500").getBytes(StandardCharsets.UTF_8));
+        busyCallCenter = Topology.load(busy);
+
+        // stations in a ring that pass most jobs on, so that nearly every job crosses processes many times
+        StringBuilder model = new StringBuilder("generator Gen_1 500 Ring_0\ntransducer Exit\n");
+        for (int i = 0; i < RING_STATIONS; i++) {
+            model.append("station Ring_").append(i).append(" 2 exponential 40.0\n");
+            model.append("route Ring_").append(i).append(" Ring_").append((i + 1) % RING_STATIONS).append(" 0.9\n");
+            model.append("route Ring_").append(i).append(" Exit 0.1\n");
+        }
+        Path ringFile = Files.createTempFile("ring", ".topology");
+        ringFile.toFile().deleteOnExit();
+        Files.write(ringFile, model.toString().getBytes(StandardCharsets.UTF_8));
+        ring = Topology.load(ringFile);
+    }
+
+    @Test
+    void resultsDoNotDependOnProcessCount() throws InterruptedException {
+        // Given each model run on one logical process
+        for (Topology model : new Topology[] {callCenter, busyCallCenter}) {
+            double endTime = (model == callCenter) ? END_TIME : BUSY_END_TIME;
+            Results serial = run(model, endTime, 1, simulator -> { });
+
+            // Then every other division of the stations gives the same statistics
+            int stations = serial.reports.length;
+            for (int logicalProcesses : new int[] {2, 3, stations, stations + 2}) {
+                assertSameResults(logicalProcesses + " logical processes", serial,
+                        run(model, endTime, logicalProcesses, simulator -> { }));
+            }
+        }
+    }
+
+    @Test
+    void cyclicRoutingAcrossProcesses() throws InterruptedException {
+        // Given the technicians, who route jobs to each other, in different processes
+        Results serial = run(busyCallCenter, BUSY_END_TIME, 1, simulator -> { });
+        Results twoWay = run(busyCallCenter, BUSY_END_TIME, 2, simulator -> {
+            simulator.assign("Hardware_Technicians", 0);
+            simulator.assign("Software_Technicians", 1);
+        });
+        Results threeWay = run(busyCallCenter, BUSY_END_TIME, 3, simulator -> {
+            simulator.assign("Call_Center", 0);
+            simulator.assign("Hardware_Technicians", 1);
+            simulator.assign("Software_Technicians", 2);
+            simulator.assign("Software_Managers", 0);
+            simulator.assign("Hardware_Managers", 2);
+            simulator.assign("Hardware_Repair", 1);
+        });
+
+        // Then the processes only finish by detecting quiescence, and agree with the serial run
+        assertTrue(twoWay.nullMessages > 0);
+        assertSameResults("technicians split over 2 processes", serial, twoWay);
+        assertSameResults("technicians split over 3 processes", serial, threeWay);
+    }
+
+    @Test
+    void noJobIsLostToQuiescence() throws InterruptedException {
+        // Given a ring run on one logical process
+        Results serial = run(ring, BUSY_END_TIME, 1, simulator -> { });
+
+        // When it is run again and again with every station in its own process
+        for (int repetition = 0; repetition < RING_REPETITIONS; repetition++) {
+            Results parallel = run(ring, BUSY_END_TIME, RING_STATIONS, simulator -> { });
+
+            // Then no process ever finishes while a job is on its way to it
+            assertSameResults("ring, repetition " + repetition, serial, parallel);
+        }
+    }
+
+    @Test
+    void optimisticMatchesConservative() throws InterruptedException {
+        // Given the busy model run conservatively
+        Results serial = run(busyCallCenter, BUSY_END_TIME, 1, simulator -> { });
+        long rollbacks = 0;
+
+        for (int logicalProcesses : new int[] {2, 3, serial.reports.length}) {
+            for (double window : new double[] {0.25, 4.0, Double.POSITIVE_INFINITY}) {
+                // When it is run optimistically, saving state often so that rollbacks coast forward
+                Results optimistic = run(busyCallCenter, BUSY_END_TIME, logicalProcesses, simulator -> {
+                    simulator.setSynchronization(Synchronization.OPTIMISTIC);
+                    simulator.setOptimismWindow(window);
+                    simulator.setCheckpointInterval(4);
+                    simulator.setGvtInterval(64);
+                });
+                rollbacks += optimistic.rollbacks;
+
+                // Then the rolled back random streams, service times and statistics leave no trace
+                assertSameResults(logicalProcesses + " optimistic processes with window " + window, serial, optimistic);
+            }
+        }
+        assertTrue(rollbacks > 0, "No run rolled back, so rollback was not tested.");
+    }
+
+    private static Results run(Topology model, double endTime, int logicalProcesses,
+            Consumer<ParallelSimulator> configure) throws InterruptedException {
+        ParallelSimulator simulator = new ParallelSimulator(model, endTime, SEED);
+        simulator.setLogicalProcesses(logicalProcesses);
+        configure.accept(simulator);
+
+        List<QueueStation> stations = simulator.run();
+        return new Results(stations, endTime, simulator.getNullMessageCount(), simulator.getRollbackCount());
+    }
+
+    private static void assertSameResults(String run, Results expected, Results actual) {
+        assertEquals(expected.reports.length, actual.reports.length, run + ": station count");
+        for (int i = 0; i < expected.reports.length; i++) {
+            assertEquals(expected.reports[i], actual.reports[i], run);
+            assertArrayEquals(expected.values[i], actual.values[i], run + ": " + expected.names[i]);
+        }
+    }
+
+    /**
+     * The statistics of every station of a run, as a report and as the exact
+     * binary values.
+     */
+    private static final class Results {
+        final String[] names;
+        final String[] reports;
+        final byte[][] values;
+        final long nullMessages;
+        final long rollbacks;
+
+        Results(List<QueueStation> stations, double endTime, long nullMessages, long rollbacks) {
+            this.names = new String[stations.size()];
+            this.reports = new String[stations.size()];
+            this.values = new byte[stations.size()][];
+            this.nullMessages = nullMessages;
+            this.rollbacks = rollbacks;
+
+            for (int i = 0; i < stations.size(); i++) {
+                StationStatistics statistics = stations.get(i).getStatistics();
+                ByteArrayOutputStream text = new ByteArrayOutputStream();
+                statistics.report(new PrintStream(text, true), endTime);
+                ByteBuffer buffer = ByteBuffer.allocate(StationStatistics.BYTES);
+                statistics.writeTo(buffer);
+
+                this.names[i] = statistics.getName();
+                this.reports[i] = text.toString();
+                this.values[i] = buffer.array();
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package simcomponents;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import randomgenr.RandomStreams;
+import simstats.StationStatistics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the queue length statistics count only jobs that wait: a job
+ * that goes straight into service never joins the queue, on a queue station,
+ * in the flat model and on a resource of the process API.
+ */
+class QueueStationTest {
+    private static final double END_TIME = 200.0;
+    private static final long SEED = 42;
+
+    private static Topology neverSaturated;
+
+    @BeforeAll
+    static void loadModel() throws IOException {
+        // far more servers than the jobs that ever arrive
+        Path file = Files.createTempFile("never_saturated", ".topology");
+        file.toFile().deleteOnExit();
+        Files.write(file, ("generator Gen_1 50 Desk\n"
+                + "station Desk 1000 exponential 1.0\n"
+                + "transducer Exit\n"
+                + "route Desk Exit 1.0\n").getBytes(StandardCharsets.UTF_8));
+        neverSaturated = Topology.load(file);
+    }
+
+    @Test
+    void stationWithFreeServersNeverQueues() {
+        // Given a station that always has a free server
+        SimEngine engine = new SimEngine(SEED);
+        engine.setEndTime(END_TIME);
+        List<QueueStation> stations = neverSaturated.build(engine);
+
+        // When the run ends
+        engine.simulate();
+
+        // Then every job arrived and was served, but none waited
+        StationStatistics desk = stations.get(neverSaturated.stationIndex("Desk")).getStatistics();
+        assertTrue(desk.getArrivals() > 0);
+        assertEquals(desk.getArrivals(), desk.getCompleted());
+        assertEquals(0, desk.getMaxQueueLength());
+        assertEquals(0.0, desk.getMeanQueueLength(END_TIME));
+    }
+
+    @Test
+    void flatStationWithFreeServersNeverQueues() {
+        // Given the same station in the flat model
+        FlatSimulator simulator = new FlatSimulator(neverSaturated.compile(), new RandomStreams(SEED), END_TIME);
+
+        // When the run ends
+        simulator.simulate();
+
+        // Then none of its jobs waited
+        StationStatistics desk = simulator.getStatistics(neverSaturated.stationIndex("Desk"));
+        assertTrue(desk.getArrivals() > 0);
+        assertEquals(0, desk.getMaxQueueLength());
+        assertEquals(0.0, desk.getMeanQueueLength(END_TIME));
+    }
+
+    @Test
+    void resourceCountsOnlyWaitingProcesses() {
+        // Given a resource with two servers, and one with a single server
+        SimEngine engine = new SimEngine(SEED);
+        engine.setEndTime(END_TIME);
+        Resource free = new Resource("Free", 2);
+        Resource contended = new Resource("Contended", 1);
+
+        // When one process at a time uses the first, and three at once use the second
+        try (ProcessScheduler scheduler = new ProcessScheduler(engine)) {
+            for (int i = 0; i < 10; i++) {
+                scheduler.start(new Visit("Visit_" + i, free), i);
+            }
+            for (int i = 0; i < 3; i++) {
+                scheduler.start(new Visit("Rush_" + i, contended), 20.0);
+            }
+            engine.simulate();
+        }
+
+        // Then nobody queued for the first, and two queued for the second
+        assertEquals(10, free.getStatistics().getArrivals());
+        assertEquals(0, free.getStatistics().getMaxQueueLength());
+        assertEquals(2, contended.getStatistics().getMaxQueueLength());
+    }
+
+    /**
+     * Uses a resource for half a time unit.
+     */
+    private static final class Visit extends SimProcess {
+        private final Resource resource;
+
+        Visit(String name, Resource resource) {
+            super(name);
+            this.resource = resource;
+        }
+
+        @Override
+        protected void run() {
+            acquire(this.resource);
+            hold(0.5);
+            release();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package simcomponents;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that a server on a Unix domain socket only ever removes a socket
+ * file nobody uses any more, and on closing only the socket it created.
+ */
+class SimServerTest {
+    private Path directory;
+    private Path socket;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        this.directory = Files.createTempDirectory("sim_server");
+        this.socket = this.directory.resolve("sim.sock");
+    }
+
+    @AfterEach
+    void removeDirectory() throws IOException {
+        Files.deleteIfExists(this.socket);
+        Files.delete(this.directory);
+    }
+
+    @Test
+    void regularFileIsNotReplaced() throws IOException {
+        // Given a regular file at the socket path
+        Files.write(this.socket, "notes".getBytes(StandardCharsets.UTF_8));
+
+        // When a server is started on it, then it refuses, and the file is untouched
+        IOException e = assertThrows(IOException.class, () -> new SimServer("unix:" + this.socket));
+        assertTrue(e.getMessage().contains("not a socket"), e.getMessage());
+        assertEquals("notes", new String(Files.readAllBytes(this.socket), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void socketOfRunningServerIsNotReplaced() throws IOException {
+        // Given a running server
+        try (SimServer running = new SimServer("unix:" + this.socket)) {
+            // When a second server is started on its socket, then it refuses
+            IOException e = assertThrows(IOException.class, () -> new SimServer("unix:" + this.socket));
+            assertTrue(e.getMessage().contains("already listening"), e.getMessage());
+
+            // And the first server can still be reached
+            try (SocketChannel client = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+                assertTrue(client.connect(running.getAddress()));
+            }
+        }
+
+        // Then closing it removes its socket
+        assertFalse(Files.exists(this.socket));
+    }
+
+    @Test
+    void staleSocketIsReplaced() throws IOException {
+        // Given a socket file left behind by a server that is gone
+        try (ServerSocketChannel gone = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            gone.bind(UnixDomainSocketAddress.of(this.socket));
+        }
+        assertTrue(Files.exists(this.socket));
+
+        // When a server is started on it, then it listens there
+        try (SimServer server = new SimServer("unix:" + this.socket);
+                SocketChannel client = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            assertEquals(UnixDomainSocketAddress.of(this.socket), server.getAddress());
+            assertTrue(client.connect(server.getAddress()));
+        }
+    }
+
+    @Test
+    void closeLeavesFileThatReplacedTheSocket() throws IOException {
+        // Given a server whose socket file has been replaced by another file
+        SimServer server = new SimServer("unix:" + this.socket);
+        Files.delete(this.socket);
+        Files.write(this.socket, "notes".getBytes(StandardCharsets.UTF_8));
+
+        // When it is closed, then the other file is left alone
+        server.close();
+        assertEquals("notes", new String(Files.readAllBytes(this.socket), StandardCharsets.UTF_8));
+    }
+}
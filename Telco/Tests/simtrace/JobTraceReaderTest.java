@@ -0,0 +1,212 @@
+package simtrace;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import simcomponents.QueueStation;
+import simcomponents.SimEngine;
+import simcomponents.Topology;
+import simcomponents.Transducer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that a job trace reads back exactly as it was written, across the
+ * chunks the writer maps and the windows the reader maps, and that a trace
+ * that cannot be opened leaves no column file open.
+ */
+class JobTraceReaderTest {
+    private static final String[] STATIONS = {"Desk", "Technicians", "Managers", "Exit"};
+    private static final int ROWS = 150_000;       // more than two of the writer's chunks
+
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        this.directory = Files.createTempDirectory("job_trace");
+    }
+
+    @AfterEach
+    void removeDirectory() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(this.directory);
+    }
+
+    @Test
+    void rowsReadBackAsWritten() throws IOException {
+        // Given a trace of rows departing in order
+        List<double[]> written = write(this.directory, ROWS);
+
+        try (JobTraceReader reader = new JobTraceReader(this.directory)) {
+            // Then every row reads back as it was written
+            assertEquals(ROWS, reader.getRowCount());
+            assertEquals(List.of(STATIONS), reader.getStationNames());
+            int[] row = {0};
+            reader.scan(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                    (jobId, station, arrival, start, end, next) -> {
+                        double[] want = written.get(row[0]);
+                        assertEquals((long) want[0], jobId);
+                        assertEquals(STATIONS[(int) want[1]], reader.getStationNames().get(station));
+                        assertEquals(want[2], arrival);
+                        assertEquals(want[3], start);
+                        assertEquals(want[4], end);
+                        assertEquals((int) want[5], (next >= 0) ? indexOf(reader.getStationNames().get(next)) : -1);
+                        row[0]++;
+                    });
+            assertEquals(ROWS, row[0]);
+
+            // And a window holds exactly the rows departing in it
+            double from = written.get(ROWS / 3)[4];
+            double to = written.get(2 * ROWS / 3)[4];
+            long expected = written.stream().filter(r -> r[4] >= from && r[4] < to).count();
+            long[] visits = {0};
+            reader.scan(from, to, (jobId, station, arrival, start, end, next) -> {
+                assertTrue(end >= from && end < to);
+                visits[0]++;
+            });
+            assertEquals(expected, visits[0]);
+
+            long summarized = 0;
+            for (JobTraceReader.StationSummary summary : reader.summarize(from, to)) {
+                summarized += summary.getVisits();
+            }
+            assertEquals(expected, summarized);
+
+            // And the CSV has a header and one line per row
+            StringWriter csv = new StringWriter();
+            reader.exportCsv(csv, from, to);
+            String[] lines = csv.toString().split("\n");
+            assertEquals("job,station,arrival,start,end,next", lines[0]);
+            assertEquals(expected + 1, lines.length);
+        }
+    }
+
+    @Test
+    void traceOfRunMatchesStationStatistics() throws IOException {
+        // Given a traced run of the call center
+        SimEngine engine = new SimEngine(42L);
+        engine.setEndTime(40.0);
+        List<QueueStation> stations = Topology.load(Paths.get("models", "call_center.topology")).build(engine);
+        try (JobTraceWriter trace = new JobTraceWriter(this.directory)) {
+            engine.setJobTrace(trace);
+            engine.simulate();
+        }
+
+        // Then the trace has one visit for every job each station finished
+        try (JobTraceReader reader = new JobTraceReader(this.directory)) {
+            long visits = 0;
+            for (JobTraceReader.StationSummary summary : reader.summarize(Double.NEGATIVE_INFINITY,
+                    Double.POSITIVE_INFINITY)) {
+                QueueStation station = stations.stream().filter(s -> s.getName().equals(summary.getName()))
+                        .findFirst().orElseThrow();
+                assertEquals(station.getStatistics().getCompleted(), summary.getVisits(), summary.getName());
+                if (!(station instanceof Transducer)) {
+                    // a transducer's statistics hold the time in the network, its trace rows no time at all
+                    assertEquals(station.getStatistics().getSojournTime().getMean(),
+                            summary.getSojournTime().getMean(), 1e-9, summary.getName());
+                }
+                visits += summary.getVisits();
+            }
+            assertEquals(visits, reader.getRowCount());
+            assertTrue(visits > 0);
+        }
+    }
+
+    @Test
+    void missingColumnLeavesNoFileOpen() throws IOException {
+        // Given a trace whose last column is missing
+        write(this.directory, 10);
+        Files.delete(this.directory.resolve(JobTraceWriter.NEXT));
+        long before = openFilesIn(this.directory);
+
+        // When it is opened, then it is refused, and the columns it did open are closed
+        assertThrows(IOException.class, () -> new JobTraceReader(this.directory));
+        assertEquals(before, openFilesIn(this.directory));
+    }
+
+    @Test
+    void columnsOfDifferentLengthsLeaveNoFileOpen() throws IOException {
+        // Given a trace with a truncated column
+        write(this.directory, 10);
+        try (FileChannel channel = FileChannel.open(this.directory.resolve(JobTraceWriter.END),
+                StandardOpenOption.WRITE)) {
+            channel.truncate(5 * Double.BYTES);
+        }
+        long before = openFilesIn(this.directory);
+
+        // When it is opened, then it is refused, and every column is closed
+        IOException e = assertThrows(IOException.class, () -> new JobTraceReader(this.directory));
+        assertTrue(e.getMessage().contains("different lengths"), e.getMessage());
+        assertEquals(before, openFilesIn(this.directory));
+    }
+
+    /**
+     * Writes rows with random stations and times, departing in order.
+     *
+     * @return each row's job, station, arrival, start, end and next station
+     */
+    private static List<double[]> write(Path directory, int rows) throws IOException {
+        Random random = new Random(7);
+        List<double[]> written = new ArrayList<>(rows);
+        double end = 0.0;
+
+        try (JobTraceWriter writer = new JobTraceWriter(directory)) {
+            // every station appears early, so the station indices are those of STATIONS
+            for (int i = 0; i < rows; i++) {
+                int station = (i < STATIONS.length) ? i : random.nextInt(STATIONS.length);
+                int next = (station == STATIONS.length - 1) ? -1 : station + 1;
+                end += (random.nextInt(4) == 0) ? 0.0 : random.nextDouble();
+                double start = end - random.nextDouble();
+                double arrival = start - random.nextDouble();
+                writer.record(i, STATIONS[station], arrival, start, end, (next >= 0) ? STATIONS[next] : null);
+                written.add(new double[] {i, station, arrival, start, end, next});
+            }
+            assertEquals(rows, writer.getRowCount());
+        }
+        return written;
+    }
+
+    private static int indexOf(String station) {
+        return List.of(STATIONS).indexOf(station);
+    }
+
+    /**
+     * @return the number of this process's open files in a directory
+     */
+    private static long openFilesIn(Path directory) throws IOException {
+        Path descriptors = Paths.get("/proc/self/fd");
+        assumeTrue(Files.isDirectory(descriptors), "Open files can only be listed on Linux.");
+
+        long count = 0;
+        try (Stream<Path> files = Files.list(descriptors)) {
+            for (Path descriptor : (Iterable<Path>) files::iterator) {
+                try {
+                    if (Files.readSymbolicLink(descriptor).startsWith(directory.toRealPath())) {
+                        count++;
+                    }
+                } catch (IOException closed) {
+                    // closed while listing, e.g. the listing's own descriptor
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,117 @@
+package randomgenr;
+
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time per variate of every generator in randomgenr, on every uniform
+ * backend, drawn one at a time and in the blocks that queue stations
+ * prefetch service times in.
+ *
+ * @author Ryan Owens
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RandomVariateBenchmark {
+    private static final long SEED = 20160401L;
+    private static final int BLOCK = 32;
+
+    /**
+     * The generators measured, with the parameters the simulation uses.
+     */
+    public enum Variate {
+        UNIFORM,
+        EXPONENTIAL,
+        /** The generator's arrival count, below the PTRS threshold. */
+        POISSON_SMALL,
+        /** A rate large enough for the transformed rejection method. */
+        POISSON_LARGE,
+        GAMMA,
+        EMPIRICAL,
+        TABULATED_INVERSE_CDF;
+
+        RandomVariateGenr create() {
+            switch (this) {
+                case UNIFORM:
+                    return new UniformGenr();
+                case EXPONENTIAL:
+                    ExponentialGenr exponential = new ExponentialGenr();
+                    exponential.setEventRate(4.0);
+                    return exponential;
+                case POISSON_SMALL:
+                    PoissonGenr small = new PoissonGenr();
+                    small.setEventRate(PoissonGenr.PTRS_THRESHOLD / 2);
+                    return small;
+                case POISSON_LARGE:
+                    PoissonGenr large = new PoissonGenr();
+                    large.setEventRate(2500.0);
+                    return large;
+                case GAMMA:
+                    return new GammaGenr();
+                case EMPIRICAL:
+                    GammaGenr source = new GammaGenr(SEED);
+                    double[] observations = new double[10_000];
+                    for (int i = 0; i < observations.length; i++) {
+                        observations[i] = source.nextVariate();
+                    }
+                    return new EmpiricalGenr(observations);
+                default:
+                    return new TabulatedInverseCdfGenr(x -> 1.0 - Math.exp(-4.0 * x), 0.0, 10.0);
+            }
+        }
+    }
+
+    @Param
+    Variate variate;
+
+    @Param
+    RandomBackend backend;
+
+    private RandomVariateGenr genr;
+    private RandomGenerator uniform;
+    private final double[] block = new double[BLOCK];
+
+    @Setup
+    public void createGenerator() {
+        this.genr = this.variate.create();
+        this.genr.setGenerator(this.backend.create(SEED));
+        this.uniform = this.backend.create(SEED);
+    }
+
+    @Benchmark
+    public double nextVariate() {
+        return this.genr.nextVariate();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK)
+    public double[] nextVariates() {
+        this.genr.nextVariates(this.block, 0, BLOCK);
+        return this.block;
+    }
+
+    /**
+     * The backend alone, for comparison with the variates drawn from it.
+     */
+    @Benchmark
+    public double nextDouble() {
+        return this.uniform.nextDouble();
+    }
+}
@@ -0,0 +1,92 @@
+package simcomponents;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Event throughput of SimEngine on synthetic networks. Each invocation runs a
+ * freshly built network with a fixed seed to completion; building it is not
+ * measured. Besides runs per second, the events counter reports the events
+ * dispatched per second.
+ *
+ * The servers parameter sets the size of the future event list: with every
+ * station at the same utilization, about utilization * servers completions
+ * per station are scheduled at any time, plus the next arrival.
+ *
+ * @author Ryan Owens
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class EngineThroughputBenchmark {
+    private static final long SEED = 20160401L;
+    private static final int JOBS = 20_000;
+    private static final double UTILIZATION = 0.9;
+
+    @Param({"TANDEM", "FORK_JOIN", "CALL_CENTER"})
+    SyntheticNetwork.Shape shape;
+
+    @Param({"1", "32", "1024"})
+    int servers;
+
+    @Param({"BINARY_HEAP", "CALENDAR_QUEUE", "LADDER_QUEUE"})
+    EventListType eventList;
+
+    @Param({"false", "true"})
+    boolean pooling;
+
+    private Topology topology;
+    private SimEngine engine;
+
+    /**
+     * Events dispatched, reported as a rate.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Events {
+        public long events;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            this.events = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void createNetwork() throws IOException {
+        this.topology = SyntheticNetwork.create(this.shape, this.servers, JOBS, UTILIZATION);
+    }
+
+    @Setup(Level.Invocation)
+    public void buildRun() {
+        this.engine = new SimEngine(SEED);
+        this.engine.setEndTime(Double.POSITIVE_INFINITY);
+        this.engine.setEventList(this.eventList.create());
+        this.engine.setPooling(this.pooling);
+        this.topology.build(this.engine);
+    }
+
+    @Benchmark
+    public double simulate(Events events) {
+        this.engine.simulate();
+        events.events += this.engine.getEventCount();
+        return this.engine.getSimTime();
+    }
+}
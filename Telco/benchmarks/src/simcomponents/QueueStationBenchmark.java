@@ -0,0 +1,97 @@
+package simcomponents;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a queue station's own work, without an engine: choosing an output
+ * station, and taking a job through addJob and execute. The station's
+ * completion events are not scheduled, and finished jobs go to transducers.
+ *
+ * @author Ryan Owens
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class QueueStationBenchmark {
+    private static final long SEED = 20160401L;
+
+    /** Output stations; more than RoutingTable.CUMULATIVE_LIMIT uses the alias method. */
+    @Param({"2", "4", "16", "64"})
+    int outputs;
+
+    private QueueStation station;
+    private final DiscardingObserver observer = new DiscardingObserver();
+    private final Job job = new Job();
+    private SimEvent completion;
+
+    /**
+     * Ignores the completions a station schedules; the benchmarks complete
+     * the job themselves, on the station's only server.
+     */
+    private static final class DiscardingObserver implements EventObserver {
+        @Override
+        public void notify(SimEvent simEvent) {
+        }
+
+        @Override
+        public void notify(Simulatable simulatable, double eventTime, int slot, Job job) {
+        }
+    }
+
+    @Setup
+    public void createStation() {
+        this.station = new QueueStation("Station", 1, 1.0);
+        this.station.register(this.observer);
+        this.station.setRandomSeed(SEED);
+        for (int i = 0; i < this.outputs; i++) {
+            this.station.addOutputStation(new Transducer("Output_" + i), 1.0 / this.outputs);
+        }
+        this.station.compileRouting();
+        this.job.setEntryTime(0.0);
+        this.job.setEndTime(0.0);
+        this.completion = new SimEvent(this.station, 0.0, 0, this.job);
+    }
+
+    @Benchmark
+    public QueueStation selectOutputStation() {
+        return this.station.selectOutputStation();
+    }
+
+    /**
+     * A job arrives at the idle station, starts service and completes; the
+     * completion is dispatched as the engine does, with its server slot.
+     */
+    @Benchmark
+    public double addJobAndExecute() {
+        this.station.addJob(this.job, this.job.getEndTime());
+        this.completion.setEventTime(this.job.getEndTime());
+        this.station.execute(this.completion);
+        return this.job.getEndTime();
+    }
+
+    /**
+     * As addJobAndExecute, but the completing job is found by searching the
+     * servers for its end time.
+     */
+    @Benchmark
+    public double addJobAndExecuteByTime() {
+        this.station.addJob(this.job, this.job.getEndTime());
+        this.station.execute(this.job.getEndTime());
+        return this.job.getEndTime();
+    }
+}
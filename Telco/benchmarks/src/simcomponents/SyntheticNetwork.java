@@ -0,0 +1,169 @@
+package simcomponents;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Queueing networks for the engine benchmarks, written as topology files so
+ * they are built exactly like a model a user would load. Every station has
+ * the same number of servers, and service rates are chosen from the traffic
+ * equations so that every station runs at the same utilization; the number of
+ * scheduled events then grows with the number of servers.
+ *
+ * @author Ryan Owens
+ */
+public final class SyntheticNetwork {
+
+    /**
+     * The shapes of network that can be generated. Public, as JMH sets
+     * benchmark parameters from generated code in another package.
+     */
+    public enum Shape {
+        /** Four stations in series. */
+        TANDEM,
+        /**
+         * A station fanning out to four parallel branches that merge into one
+         * station. Jobs are not split, so the branches are chosen at random.
+         */
+        FORK_JOIN,
+        /** The routing of BasicSimSystem's call center. */
+        CALL_CENTER
+    }
+
+    private static final int FIXED_POINT_ITERATIONS = 1000;
+
+    private final List<String> stations = new ArrayList<>();
+    private final List<String> exits = new ArrayList<>();
+    private final List<String[]> routes = new ArrayList<>();
+
+    private SyntheticNetwork() {
+    }
+
+    /**
+     * Creates a network.
+     *
+     * @param shape the shape of the network
+     * @param servers servers at each station
+     * @param jobs mean number of jobs arriving in a run
+     * @param utilization utilization of every station, below 1
+     * @return the network
+     * @throws IOException if the generated model cannot be written or read
+     */
+    static Topology create(Shape shape, int servers, int jobs, double utilization) throws IOException {
+        SyntheticNetwork network = new SyntheticNetwork();
+
+        switch (shape) {
+            case TANDEM:
+                for (int s = 0; s < 4; s++) {
+                    network.stations.add("Stage_" + s);
+                }
+                network.exits.add("Exit");
+                for (int s = 0; s < 3; s++) {
+                    network.route("Stage_" + s, "Stage_" + (s + 1), 1.0);
+                }
+                network.route("Stage_3", "Exit", 1.0);
+                break;
+            case FORK_JOIN:
+                network.stations.add("Fork");
+                for (int b = 0; b < 4; b++) {
+                    network.stations.add("Branch_" + b);
+                    network.route("Fork", "Branch_" + b, 0.25);
+                    network.route("Branch_" + b, "Join", 1.0);
+                }
+                network.stations.add("Join");
+                network.exits.add("Exit");
+                network.route("Join", "Exit", 1.0);
+                break;
+            default:
+                network.callCenter();
+                break;
+        }
+        return network.load(servers, jobs, utilization);
+    }
+
+    private void callCenter() {
+        this.stations.add("Call_Center");
+        this.stations.add("Software_Technicians");
+        this.stations.add("Software_Managers");
+        this.stations.add("Hardware_Technicians");
+        this.stations.add("Hardware_Managers");
+        this.stations.add("Hardware_Repair");
+        this.exits.add("Transducer");
+        this.exits.add("Hardware_Repair_Transducer");
+        this.exits.add("Failed_Hardware_Repair_Transducer");
+
+        route("Call_Center", "Software_Technicians", 0.58);
+        route("Call_Center", "Hardware_Technicians", 0.27);
+        route("Call_Center", "Transducer", 0.15);
+        route("Software_Technicians", "Software_Managers", 0.30);
+        route("Software_Technicians", "Hardware_Technicians", 0.20);
+        route("Software_Technicians", "Transducer", 0.50);
+        route("Hardware_Technicians", "Software_Technicians", 0.05);
+        route("Hardware_Technicians", "Hardware_Managers", 0.18);
+        route("Hardware_Technicians", "Transducer", 0.41);
+        route("Hardware_Technicians", "Hardware_Repair", 0.36);
+        route("Software_Managers", "Hardware_Technicians", 0.20);
+        route("Software_Managers", "Transducer", 0.80);
+        route("Hardware_Managers", "Transducer", 0.64);
+        route("Hardware_Managers", "Hardware_Repair", 0.36);
+        route("Hardware_Repair", "Hardware_Repair_Transducer", 0.75);
+        route("Hardware_Repair", "Failed_Hardware_Repair_Transducer", 0.25);
+    }
+
+    private void route(String from, String to, double probability) {
+        this.routes.add(new String[] {from, to, String.valueOf(probability)});
+    }
+
+    /**
+     * Solves the traffic equations for the mean visits to each station per
+     * job entering at the first station.
+     */
+    private double[] visits() {
+        int n = this.stations.size();
+        double[] visits = new double[n];
+
+        for (int iteration = 0; iteration < FIXED_POINT_ITERATIONS; iteration++) {
+            double[] next = new double[n];
+            next[0] = 1.0;
+            for (String[] route : this.routes) {
+                int from = this.stations.indexOf(route[0]);
+                int to = this.stations.indexOf(route[1]);
+                if (to >= 0) {
+                    next[to] += visits[from] * Double.parseDouble(route[2]);
+                }
+            }
+            visits = next;
+        }
+        return visits;
+    }
+
+    private Topology load(int servers, int jobs, double utilization) throws IOException {
+        double[] visits = visits();
+        StringBuilder model = new StringBuilder();
+
+        model.append("generator Arrivals ").append(jobs).append(' ').append(this.stations.get(0)).append('\n');
+        for (int s = 0; s < this.stations.size(); s++) {
+            // jobs arrive over one unit of time
+            double serviceRate = jobs * visits[s] / (utilization * servers);
+            model.append("station ").append(this.stations.get(s)).append(' ').append(servers)
+                    .append(" exponential ").append(serviceRate).append('\n');
+        }
+        for (String exit : this.exits) {
+            model.append("transducer ").append(exit).append('\n');
+        }
+        for (String[] route : this.routes) {
+            model.append("route ").append(String.join(" ", route)).append('\n');
+        }
+
+        Path file = Files.createTempFile("synthetic", ".topology");
+        try {
+            Files.writeString(file, model);
+            return Topology.load(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package simcomponents;
+
+import java.io.IOException;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with JMH's GC profiler, so every result is reported with
+ * its allocation rate (gc.alloc.rate.norm is bytes allocated per operation).
+ * Takes the usual JMH command line, e.g. a benchmark name pattern and -p
+ * parameters; with no arguments every benchmark is run. -h, -l and -lp are
+ * answered as by JMH's own main class.
+ *
+ * @author Ryan Owens
+ */
+public final class TelcoBenchmarks {
+
+    private TelcoBenchmarks() {
+    }
+
+    public static void main(String[] args) throws IOException, RunnerException, CommandLineOptionException {
+        CommandLineOptions options = new CommandLineOptions(args);
+
+        if (options.shouldHelp()) {
+            options.showHelp();
+        } else if (options.shouldList()) {
+            new Runner(options).list();
+        } else if (options.shouldListWithParams()) {
+            new Runner(options).listWithParams(options);
+        } else {
+            new Runner(new OptionsBuilder()
+                    .parent(options)
+                    .addProfiler(GCProfiler.class)
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package randomgenr;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A source of random variates from some distribution, e.g. the service times of
+ * a queue station. Every generator in this package implements it.
+ *
+ * @author Ryan Owens
+ */
+public interface Distribution {
+    /**
+     * @return the next random variate
+     */
+    double nextVariate();
+
+    /**
+     * Fills part of an array with the next len random variates.
+     *
+     * @param out array to fill
+     * @param off index of the first variate
+     * @param len number of variates
+     */
+    void nextVariates(double[] out, int off, int len);
+
+    /**
+     * @return the expected value of the variates
+     */
+    double getMean();
+
+    void setSeed(long seed);
+
+    void setGenerator(RandomGenerator generator);
+
+    RandomGenerator getGenerator();
+}
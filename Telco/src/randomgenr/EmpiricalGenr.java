@@ -0,0 +1,134 @@
+package randomgenr;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Provides random variates from the continuous, piecewise-linear empirical
+ * distribution of measured data, e.g. call handling times. The CDF rises
+ * linearly between consecutive order statistics (or across each bin of a
+ * histogram), so variates never fall outside the observed range. Sampling is
+ * one uniform draw and a guide table lookup.
+ *
+ * @author Ryan Owens
+ */
+public class EmpiricalGenr extends RandomVariateGenr {
+    private final GuideTable table;
+
+    /**
+     * Creates the distribution from individual observations.
+     *
+     * @param observations at least two observed values, in any order
+     */
+    public EmpiricalGenr(double[] observations) {
+        super();
+
+        if (observations.length < 2) {
+            throw new IllegalArgumentException("At least two observations are required.");
+        }
+
+        double[] sorted = observations.clone();
+        Arrays.sort(sorted);
+        double[] cdf = new double[sorted.length];
+        for (int i = 0; i < cdf.length; i++) {
+            cdf[i] = i;
+        }
+        this.table = new GuideTable(sorted, cdf);
+    }
+
+    /**
+     * Creates the distribution from a histogram of observations.
+     *
+     * @param binEdges the n + 1 increasing edges of n bins
+     * @param counts the number of observations in each bin
+     */
+    public EmpiricalGenr(double[] binEdges, long[] counts) {
+        super();
+
+        if (binEdges.length != counts.length + 1) {
+            throw new IllegalArgumentException("There must be one more bin edge than there are counts.");
+        }
+
+        double[] cdf = new double[binEdges.length];
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] < 0) {
+                throw new IllegalArgumentException("Counts must not be negative.");
+            }
+            cdf[i + 1] = cdf[i] + counts[i];
+        }
+        this.table = new GuideTable(binEdges, cdf);
+    }
+
+    /**
+     * Reads observations from a text file, one value per line. Blank lines and
+     * lines starting with '#' are skipped.
+     *
+     * @param file the file of observations
+     * @return the empirical distribution of the observations
+     * @throws IOException if the file cannot be read
+     */
+    public static EmpiricalGenr fromFile(Path file) throws IOException {
+        return new EmpiricalGenr(readObservations(file));
+    }
+
+    /**
+     * Reads observations from a text file in the format read by fromFile,
+     * e.g. to create several distributions from one file.
+     *
+     * @param file the file of observations
+     * @return the observations, in file order
+     * @throws IOException if the file cannot be read
+     */
+    public static double[] readObservations(Path file) throws IOException {
+        double[] values = new double[256];
+        int count = 0;
+
+        try (BufferedReader in = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, count * 2);
+                }
+                try {
+                    values[count++] = Double.parseDouble(line);
+                } catch (NumberFormatException nfe) {
+                    throw new IOException("Invalid observation '" + line + "' in " + file, nfe);
+                }
+            }
+        }
+
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Produces the next random variate from the empirical distribution.
+     *
+     * @return a random variate within the observed range
+     */
+    @Override
+    public double nextVariate() {
+        return this.table.sample(rand.nextDouble());
+    }
+
+    @Override
+    public void nextVariates(double[] out, int off, int len) {
+        Objects.checkFromIndexSize(off, len, out.length);
+
+        for (int i = off; i < off + len; i++) {
+            out[i] = this.table.sample(rand.nextDouble());
+        }
+    }
+
+    @Override
+    public double getMean() {
+        return this.table.mean();
+    }
+}
@@ -25,6 +25,8 @@
  */
 package randomgenr;
 
+import java.util.Objects;
+
 /**
  * Provides a random variate from an inverse exponential distribution.
  * Typically used to determine the time between independent events determined
@@ -65,10 +67,32 @@ public class ExponentialGenr extends RandomVariateGenr {
      */
     @Override
     public double nextVariate() {
-        double RND = rand.nextDouble();     // uniform random value [0,1)
+        // ziggurat method; avoids a logarithm on almost every draw
+        return (Ziggurat.exponential(rand) / this.avgRate);
+    }
+    
+    @Override
+    public double getMean() {
+        return 1.0 / this.avgRate;
+    }
+    
+    /**
+     * Produces a block of exponential random variates. The rate is applied
+     * in a separate pass that the JIT compiles to SIMD instructions.
+     */
+    @Override
+    public void nextVariates(double[] out, int off, int len) {
+        Objects.checkFromIndexSize(off, len, out.length);
+        final int end = off + len;
+        
+        for (int i = off; i < end; i++) {
+            out[i] = Ziggurat.exponential(rand);
+        }
         
-        // use inverse-transform technique
-        return (-((1.0/this.avgRate) * Math.log(1.0 - RND)));
+        final double rate = this.avgRate;
+        for (int i = off; i < end; i++) {
+            out[i] = out[i] / rate;
+        }
     }
     
     /**
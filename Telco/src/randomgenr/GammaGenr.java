@@ -1,33 +1,60 @@
 package randomgenr;
 
 /**
- * Determines the number of independent events randomly occurring per some
- * unit time. Use the exponential variate generator to calculate time between
- * each event.
+ * Provides a random variate from a Gamma distribution with shape alpha and
+ * scale theta, using the method of Marsaglia and Tsang (2000).
  *
  * @author Ryan Owens
  */
 public class GammaGenr extends RandomVariateGenr {
-    private final double theta = 2.12;
-    private final double alpha = 3.75;
-    private final double maxHardwareTime = 2;
+    public static final double DEFAULT_ALPHA = 3.75;
+    public static final double DEFAULT_THETA = 2.12;
+
+    private final double alpha;
+    private final double theta;
+
+    // Marsaglia-Tsang constants; for alpha < 1 they are those of alpha + 1
+    private final double d;
+    private final double c;
+    private final double invAlpha;
 
     /**
      * Default constructor.
-     * Default, average event rate is 1.0 per unit time.
+     * Default shape is 3.75 and default scale is 2.12.
      */
     public GammaGenr() {
-        super();
+        this(DEFAULT_ALPHA, DEFAULT_THETA);
     }
 
     /**
      * Constructor to specify the random seed to use in pseudorandom number
-     * generation. Default, average event rate is 1.0 per unit time.
+     * generation. Default shape is 3.75 and default scale is 2.12.
      *
      * @param seed pseudorandom number seed value
      */
     public GammaGenr(long seed) {
-        super(seed);
+        this(DEFAULT_ALPHA, DEFAULT_THETA);
+        setSeed(seed);
+    }
+
+    /**
+     * Constructor to specify the shape and scale.
+     *
+     * @param alpha shape parameter
+     * @param theta scale parameter; the mean is alpha * theta
+     */
+    public GammaGenr(double alpha, double theta) {
+        super();
+
+        if (!(alpha > 0.0) || !(theta > 0.0)) {
+            throw new IllegalArgumentException("Shape and scale must be positive.");
+        }
+
+        this.alpha = alpha;
+        this.theta = theta;
+        this.d = ((alpha < 1.0) ? alpha + 1.0 : alpha) - 1.0 / 3.0;
+        this.c = 1.0 / Math.sqrt(9.0 * this.d);
+        this.invAlpha = 1.0 / alpha;
     }
 
     /**
@@ -37,29 +64,51 @@ public class GammaGenr extends RandomVariateGenr {
      */
     @Override
     public double nextVariate() {
+        if (this.alpha < 1.0) {
+            // boost: Gamma(alpha) = Gamma(alpha + 1) * U^(1/alpha)
+            return nextStandard() * this.theta * Math.pow(this.rand.nextDouble(), this.invAlpha);
+        }
+        return this.theta * nextStandard();
+    }
 
-        final double d = this.alpha - 0.333333333333333333;
-        final double c = 1 / (3 * Math.sqrt(d));
-
+    /**
+     * @return a Gamma(d + 1/3, 1) variate by Marsaglia-Tsang
+     */
+    private double nextStandard() {
         while (true) {
-            final double x = this.rand.nextGaussian();
-            final double v = Math.pow((1 + c * x), 3);
+            final double x = Ziggurat.normal(this.rand);
+            final double t = 1 + this.c * x;
 
-            if(v <= 0)
+            if(t <= 0)
             {
                 continue;
             }
 
+            final double v = t * t * t;
             final double x2 = x * x;
             final double u = this.rand.nextDouble();
 
+            // squeeze test; accepts most candidates without a logarithm
             if(u < 1 - 0.0331 * x2 * x2) {
-                return this.theta * d * v;
+                return this.d * v;
             }
 
-            if(Math.log(u) < 0.5 * x2 + d * (1 - v + Math.log(v))) {
-                return this.theta * d * v;
+            if(Math.log(u) < 0.5 * x2 + this.d * (1 - v + Math.log(v))) {
+                return this.d * v;
             }
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public double getMean() {
+        return this.alpha * this.theta;
+    }
+
+    public double getAlpha() {
+        return this.alpha;
+    }
+
+    public double getTheta() {
+        return this.theta;
+    }
+}
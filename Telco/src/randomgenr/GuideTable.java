@@ -0,0 +1,86 @@
+package randomgenr;
+
+/**
+ * A piecewise-linear inverse CDF through a set of (value, cumulative
+ * probability) knots, with a guide table (Chen and Asau, 1974) so that a
+ * uniform variate is mapped to its segment in expected constant time.
+ *
+ * @author Ryan Owens
+ */
+final class GuideTable {
+    private final double[] x;       // knot values, non-decreasing
+    private final double[] p;       // cumulative probabilities, p[0] = 0, p[n-1] = 1
+    private final int[] guide;      // guide[k] is the last knot with p <= k / guide.length
+
+    /**
+     * @param x knot values, non-decreasing
+     * @param cdf cumulative probability at each knot, non-decreasing; it is
+     * rescaled so that it runs from 0 to 1
+     */
+    GuideTable(double[] x, double[] cdf) {
+        int n = x.length;
+
+        if (n < 2 || cdf.length != n) {
+            throw new IllegalArgumentException("At least two knots, each with a probability, are required.");
+        }
+
+        double lo = cdf[0];
+        double range = cdf[n - 1] - lo;
+        if (!(range > 0.0) || Double.isInfinite(range)) {
+            throw new IllegalArgumentException("Cumulative probabilities must increase.");
+        }
+
+        this.x = x.clone();
+        this.p = new double[n];
+        for (int i = 0; i < n; i++) {
+            if (Double.isNaN(x[i]) || Double.isNaN(cdf[i])) {
+                throw new IllegalArgumentException("Knots must not be NaN.");
+            }
+            if (i > 0 && (x[i] < x[i - 1] || cdf[i] < cdf[i - 1])) {
+                throw new IllegalArgumentException("Knots must be in non-decreasing order.");
+            }
+            this.p[i] = (cdf[i] - lo) / range;
+        }
+        this.p[0] = 0.0;
+        this.p[n - 1] = 1.0;
+
+        // one guide entry per segment keeps the expected search to about one step
+        this.guide = new int[n - 1];
+        int i = 0;
+        for (int k = 0; k < this.guide.length; k++) {
+            double level = (double) k / this.guide.length;
+            while (i < n - 2 && this.p[i + 1] <= level) {
+                i++;
+            }
+            this.guide[k] = i;
+        }
+    }
+
+    /**
+     * @param u a uniform variate on [0,1)
+     * @return the corresponding value of the inverse CDF
+     */
+    double sample(double u) {
+        int i = this.guide[(int) (u * this.guide.length)];
+        int last = this.x.length - 2;
+
+        while (i < last && this.p[i + 1] <= u) {
+            i++;
+        }
+
+        double fraction = (u - this.p[i]) / (this.p[i + 1] - this.p[i]);
+        return this.x[i] + fraction * (this.x[i + 1] - this.x[i]);
+    }
+
+    /**
+     * @return the mean of the piecewise-linear distribution
+     */
+    double mean() {
+        double mean = 0.0;
+
+        for (int i = 0; i < this.x.length - 1; i++) {
+            mean += (this.p[i + 1] - this.p[i]) * 0.5 * (this.x[i] + this.x[i + 1]);
+        }
+        return mean;
+    }
+}
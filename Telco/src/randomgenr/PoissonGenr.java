@@ -25,23 +25,45 @@
  */
 package randomgenr;
 
+import java.util.Objects;
+
 /**
  * Determines the number of independent events randomly occurring per some
  * unit time. Use the exponential variate generator to calculate time between
- * each event.
+ * each event. Small rates use the multiplication method; rates of at least
+ * PTRS_THRESHOLD use Hormann's transformed rejection with squeeze (PTRS),
+ * whose expected cost does not grow with the rate.
  * 
  * @author Gary R. Mayer
  */
 public class PoissonGenr extends RandomVariateGenr {
+    static final double PTRS_THRESHOLD = 10.0;
+    private static final double HALF_LOG_2PI = 0.5 * Math.log(2.0 * Math.PI);
+    private static final double[] LOG_FACTORIAL = new double[16];
+    
+    static {
+        for (int k = 1; k < LOG_FACTORIAL.length; k++) {
+            LOG_FACTORIAL[k] = LOG_FACTORIAL[k - 1] + Math.log(k);
+        }
+    }
+    
     private double avgRate;     // average event per unit time
     
+    // derived from the rate by setEventRate
+    private double expNegRate;  // multiplication method
+    private double logRate;     // PTRS
+    private double a;
+    private double b;
+    private double logInvAlpha;
+    private double vr;
+    
     /**
      * Default constructor. 
      * Default, average event rate is 1.0 per unit time.
      */
     public PoissonGenr() {
         super();
-        this.avgRate = 1.0;
+        setEventRate(1.0);
     }
     
     /**
@@ -52,7 +74,7 @@ public class PoissonGenr extends RandomVariateGenr {
      */
     public PoissonGenr(long seed) {
         super(seed);
-        this.avgRate = 1.0;
+        setEventRate(1.0);
     }
     
     /**
@@ -64,40 +86,71 @@ public class PoissonGenr extends RandomVariateGenr {
      */
     @Override
     public double nextVariate() {
-        double RND;                         // uniform random value [0,1)
-        double exp;                         // exponential value
-        int numTests = 0;                   // number of tests
-        double probabilityOfEvent = 1.0;  // probability of an event
-        int numEvents = 0;                // number events this period
-        int count = 0;
-        // acceptance-rejection method
-        exp = Math.exp(-this.avgRate);
+        if (this.avgRate >= PTRS_THRESHOLD) {
+            return nextTransformedRejection();
+        }
         
-        while (numEvents == 0) {
-            RND = rand.nextDouble();
-            probabilityOfEvent = probabilityOfEvent*RND;
-//
-
-            if (probabilityOfEvent < exp) {
-                numEvents = numTests;
-//                if (probabilityOfEvent == 0.0)
-//                {
-//                    probabilityOfEvent = 1.0;
-//                }
-            } else
-                numTests++;
-            count++;
-//            if(count >= 200 && probabilityOfEvent == 0.0 && numEvents == 0)
-//            {
-//                probabilityOfEvent = 1.0;
-//                numEvents++;
-//                count = 0;
-//            }
+        // multiplication method; expected cost proportional to the rate
+        double probabilityOfEvent = rand.nextDouble();
+        int numEvents = 0;
+        
+        while (probabilityOfEvent >= this.expNegRate) {
+            probabilityOfEvent = probabilityOfEvent * rand.nextDouble();
+            numEvents++;
         }
 
         return numEvents;
     }
     
+    @Override
+    public double getMean() {
+        return this.avgRate;
+    }
+    
+    /**
+     * Produces a block of Poisson random variates, choosing the method once
+     * for the whole block.
+     */
+    @Override
+    public void nextVariates(double[] out, int off, int len) {
+        Objects.checkFromIndexSize(off, len, out.length);
+        final int end = off + len;
+        
+        if (this.avgRate >= PTRS_THRESHOLD) {
+            for (int i = off; i < end; i++) {
+                out[i] = nextTransformedRejection();
+            }
+        } else {
+            for (int i = off; i < end; i++) {
+                out[i] = nextVariate();
+            }
+        }
+    }
+    
+    /**
+     * Transformed rejection with squeeze (W. Hormann, 1993). Most candidates
+     * are accepted by the squeeze without evaluating the Poisson probability.
+     */
+    private double nextTransformedRejection() {
+        while (true) {
+            double u = rand.nextDouble() - 0.5;
+            double v = rand.nextDouble();
+            double us = 0.5 - Math.abs(u);
+            long k = (long) Math.floor((2.0 * this.a / us + this.b) * u + this.avgRate + 0.43);
+            
+            if (us >= 0.07 && v <= this.vr) {
+                return k;
+            }
+            if (k < 0 || (us < 0.013 && v > us)) {
+                continue;
+            }
+            if (Math.log(v) + this.logInvAlpha - Math.log(this.a / (us * us) + this.b)
+                    <= -this.avgRate + k * this.logRate - logFactorial(k)) {
+                return k;
+            }
+        }
+    }
+    
     /**
      * Modifies the average event rate per unit time that is used in
      * calculating the number of events per unit time.
@@ -106,6 +159,31 @@ public class PoissonGenr extends RandomVariateGenr {
      * (e.g., if 2.5 customers per minute is the rate, then 2.5 should be used.)
      */
     public void setEventRate(double eventRate) {
+        if (!(eventRate > 0.0) || Double.isInfinite(eventRate)) {
+            throw new IllegalArgumentException("Event rate must be positive and finite.");
+        }
+        
         this.avgRate = eventRate;
+        this.expNegRate = Math.exp(-eventRate);
+        this.logRate = Math.log(eventRate);
+        this.b = 0.931 + 2.53 * Math.sqrt(eventRate);
+        this.a = -0.059 + 0.02483 * this.b;
+        this.logInvAlpha = Math.log(1.1239 + 1.1328 / (this.b - 3.4));
+        this.vr = 0.9277 - 3.6224 / (this.b - 2.0);
+    }
+    
+    /**
+     * log(k!), from a table for small k and Stirling's series otherwise.
+     */
+    private static double logFactorial(long k) {
+        if (k < LOG_FACTORIAL.length) {
+            return LOG_FACTORIAL[(int) k];
+        }
+        
+        double x = k;
+        double inv = 1.0 / x;
+        double inv2 = inv * inv;
+        return (x + 0.5) * Math.log(x) - x + HALF_LOG_2PI
+                + inv * (1.0 / 12.0 - inv2 * (1.0 / 360.0 - inv2 / 1260.0));
     }
 }
@@ -0,0 +1,43 @@
+package randomgenr;
+
+import java.util.Random;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * The uniform pseudorandom generator algorithms available to the random
+ * variate generators.
+ *
+ * @author Ryan Owens
+ */
+public enum RandomBackend {
+    /** xoshiro256++; fast, jumpable, with readable state. The default. */
+    XOSHIRO256PP {
+        @Override
+        public RandomGenerator create(long seed) {
+            return new Xoshiro256PlusPlus(seed);
+        }
+    },
+    /** The JDK's L64X128MixRandom LXM generator. */
+    L64X128 {
+        @Override
+        public RandomGenerator create(long seed) {
+            return RandomGeneratorFactory.of("L64X128MixRandom").create(seed);
+        }
+    },
+    /** java.util.Random; 48-bit state, synchronized on every draw. */
+    JAVA_UTIL_RANDOM {
+        @Override
+        public RandomGenerator create(long seed) {
+            return new Random(seed);
+        }
+    };
+
+    /**
+     * Creates a generator of this algorithm.
+     *
+     * @param seed the seed
+     * @return a new, independently seeded generator
+     */
+    public abstract RandomGenerator create(long seed);
+}
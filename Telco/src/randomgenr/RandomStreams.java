@@ -0,0 +1,93 @@
+package randomgenr;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Derives independent, reproducible seeds for the random variate generators of
+ * one simulation run from a single master seed. Each (component, stream) pair
+ * gets its own seed, so stations no longer share or correlate their streams,
+ * and replications are derived from the master seed by index. Streams are
+ * split from the master seed SplitMix-style and created with the chosen
+ * backend algorithm.
+ *
+ * @author Ryan Owens
+ */
+public class RandomStreams {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long masterSeed;
+    private final RandomBackend backend;
+
+    public RandomStreams(long masterSeed) {
+        this(masterSeed, RandomBackend.XOSHIRO256PP);
+    }
+
+    public RandomStreams(long masterSeed, RandomBackend backend) {
+        this.masterSeed = masterSeed;
+        this.backend = backend;
+    }
+
+    public long getMasterSeed() {
+        return this.masterSeed;
+    }
+
+    public RandomBackend getBackend() {
+        return this.backend;
+    }
+
+    /**
+     * Creates the generator for a named stream of a named component.
+     *
+     * @param component the component name, e.g. a queue station's name
+     * @param stream the purpose of the stream within the component
+     * @return a new generator of this run's backend algorithm
+     */
+    public RandomGenerator generatorFor(String component, String stream) {
+        return this.backend.create(seedFor(component, stream));
+    }
+
+    /**
+     * Provides the seed for a named stream of a named component.
+     *
+     * @param component the component name, e.g. a queue station's name
+     * @param stream the purpose of the stream within the component
+     * @return a seed that depends only on the master seed and the two names
+     */
+    public long seedFor(String component, String stream) {
+        long h = mix(this.masterSeed + GOLDEN_GAMMA);
+        h = mix(h ^ hash(component));
+        return mix(h ^ hash(stream));
+    }
+
+    /**
+     * Provides the streams for one of several independent replications.
+     *
+     * @param index the replication number, starting at 0
+     * @return streams with a master seed derived from this one
+     */
+    public RandomStreams replication(int index) {
+        return new RandomStreams(mix(this.masterSeed + GOLDEN_GAMMA * (index + 1L)), this.backend);
+    }
+
+    /**
+     * SplitMix64 finalizer; a bijective, well-mixed 64-bit hash.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a string's characters.
+     */
+    private static long hash(String s) {
+        long h = 0xCBF29CE484222325L;
+
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return h;
+    }
+}
@@ -25,32 +25,82 @@
  */
 package randomgenr;
 
+import java.util.Objects;
 import java.util.Random;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
 
 /**
  * Base class for generating different types of random variates. Makes use of
- * Java's default, uniform (pseudo-)random variable generator library.
+ * a pluggable, uniform (pseudo-)random generator; xoshiro256++ by default.
  * 
  * @author Gary R. Mayer
  */
-abstract class RandomVariateGenr {
-    protected Random rand;
+abstract class RandomVariateGenr implements Distribution {
+    protected RandomGenerator rand;
     
     RandomVariateGenr() {
-        rand = new Random();
+        rand = new Xoshiro256PlusPlus();
     }
     
     RandomVariateGenr(long seed) {
-        rand = new Random(seed);
+        rand = new Xoshiro256PlusPlus(seed);
     }
     
+    /**
+     * Reseeds the underlying generator, keeping its algorithm.
+     * 
+     * @param seed pseudorandom number seed value
+     */
+    @Override
     public void setSeed(long seed) {
-        this.rand.setSeed(seed);
+        if (this.rand instanceof Xoshiro256PlusPlus) {
+            ((Xoshiro256PlusPlus) this.rand).setSeed(seed);
+        } else if (this.rand instanceof Random) {
+            ((Random) this.rand).setSeed(seed);
+        } else {
+            this.rand = RandomGeneratorFactory.of(this.rand.getClass().getSimpleName()).create(seed);
+        }
+    }
+    
+    /**
+     * Replaces the underlying uniform generator, e.g. with a stream provided
+     * by RandomStreams.
+     * 
+     * @param generator the generator to draw from
+     */
+    @Override
+    public void setGenerator(RandomGenerator generator) {
+        this.rand = generator;
+    }
+    
+    @Override
+    public RandomGenerator getGenerator() {
+        return this.rand;
     }
     
     /**
      * interface method for providing random variate
      * @return double value representing the produced random variate
      */
+    @Override
     public abstract double nextVariate();
+    
+    /**
+     * Fills part of an array with random variates. The values are the same as
+     * those of len successive calls to nextVariate; subclasses override this
+     * to keep the loop free of virtual calls.
+     * 
+     * @param out array to fill
+     * @param off index of the first variate
+     * @param len number of variates
+     */
+    @Override
+    public void nextVariates(double[] out, int off, int len) {
+        Objects.checkFromIndexSize(off, len, out.length);
+        
+        for (int i = off; i < off + len; i++) {
+            out[i] = nextVariate();
+        }
+    }
 }
@@ -25,6 +25,8 @@
  */
 package randomgenr;
 
+import java.util.Objects;
+
 /**
  * Generates a uniform random variable between two real values.
  * 
@@ -48,8 +50,8 @@ public class UniformGenr extends RandomVariateGenr {
      * @param seed pseudorandom number seed value
      */
     public UniformGenr(long seed) {
-        this(1.0, 0.0);
-        rand.setSeed(seed);
+        this(0.0, 1.0);
+        setSeed(seed);
     }
     
     /**
@@ -82,4 +84,28 @@ public class UniformGenr extends RandomVariateGenr {
         // inverse-transform method
         return (this.min + ((this.max - this.min)*RND));
     }
+    
+    @Override
+    public double getMean() {
+        return 0.5 * (this.min + this.max);
+    }
+    
+    /**
+     * Produces a block of uniform random variates. The transform is applied
+     * in a separate pass that the JIT compiles to SIMD instructions.
+     */
+    @Override
+    public void nextVariates(double[] out, int off, int len) {
+        Objects.checkFromIndexSize(off, len, out.length);
+        final int end = off + len;
+        
+        for (int i = off; i < end; i++) {
+            out[i] = rand.nextDouble();
+        }
+        
+        final double range = this.max - this.min;
+        for (int i = off; i < end; i++) {
+            out[i] = this.min + (range * out[i]);
+        }
+    }
 }
@@ -0,0 +1,153 @@
+package randomgenr;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+/**
+ * The xoshiro256++ generator (Blackman and Vigna, 2019). It has a period of
+ * 2^256 - 1, passes the standard statistical test batteries, and needs only a
+ * handful of shifts and adds per draw, with no synchronization. It is not
+ * thread safe; give every thread (and every component) its own instance.
+ * The state can be read and restored, and jumped ahead by 2^128 or 2^192
+ * draws to obtain non-overlapping substreams.
+ *
+ * @author Ryan Owens
+ */
+public final class Xoshiro256PlusPlus implements RandomGenerator.LeapableGenerator {
+    private static final long[] JUMP = {
+        0x180EC6D33CFD0ABAL, 0xD5A61266F0C9392CL, 0xA9582618E03FC9AAL, 0x39ABDC4529B1661CL
+    };
+    private static final long[] LONG_JUMP = {
+        0x76E15D3EFEFDCBBFL, 0xC5004E441C522FB3L, 0x77710069854EE241L, 0x39109BB02ACBE635L
+    };
+    private static final AtomicLong SEED_UNIQUIFIER = new AtomicLong(0x6A09E667F3BCC908L);
+
+    private long s0;
+    private long s1;
+    private long s2;
+    private long s3;
+
+    /**
+     * Creates a generator seeded from the system clock.
+     */
+    public Xoshiro256PlusPlus() {
+        this(SEED_UNIQUIFIER.addAndGet(0x9E3779B97F4A7C15L) ^ System.nanoTime());
+    }
+
+    public Xoshiro256PlusPlus(long seed) {
+        setSeed(seed);
+    }
+
+    private Xoshiro256PlusPlus(long s0, long s1, long s2, long s3) {
+        this.s0 = s0;
+        this.s1 = s1;
+        this.s2 = s2;
+        this.s3 = s3;
+    }
+
+    /**
+     * Resets the state from a 64-bit seed, expanded with SplitMix64 so that
+     * similar seeds give unrelated states.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        long x = seed;
+        this.s0 = RandomStreams.mix(x += 0x9E3779B97F4A7C15L);
+        this.s1 = RandomStreams.mix(x += 0x9E3779B97F4A7C15L);
+        this.s2 = RandomStreams.mix(x += 0x9E3779B97F4A7C15L);
+        this.s3 = RandomStreams.mix(x + 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * @return a copy of the four state words
+     */
+    public long[] getState() {
+        return new long[] {this.s0, this.s1, this.s2, this.s3};
+    }
+
+    /**
+     * Restores a state previously returned by getState.
+     *
+     * @param state four state words, not all zero
+     */
+    public void setState(long[] state) {
+        if (state.length != 4 || (state[0] | state[1] | state[2] | state[3]) == 0) {
+            throw new IllegalArgumentException("State must be four words, not all zero.");
+        }
+        this.s0 = state[0];
+        this.s1 = state[1];
+        this.s2 = state[2];
+        this.s3 = state[3];
+    }
+
+    @Override
+    public long nextLong() {
+        final long result = Long.rotateLeft(this.s0 + this.s3, 23) + this.s0;
+        final long t = this.s1 << 17;
+
+        this.s2 ^= this.s0;
+        this.s3 ^= this.s1;
+        this.s1 ^= this.s2;
+        this.s0 ^= this.s3;
+        this.s2 ^= t;
+        this.s3 = Long.rotateLeft(this.s3, 45);
+
+        return result;
+    }
+
+    @Override
+    public Xoshiro256PlusPlus copy() {
+        return new Xoshiro256PlusPlus(this.s0, this.s1, this.s2, this.s3);
+    }
+
+    /**
+     * Advances the state by 2^128 draws.
+     */
+    @Override
+    public void jump() {
+        advance(JUMP);
+    }
+
+    /**
+     * Advances the state by 2^192 draws.
+     */
+    @Override
+    public void leap() {
+        advance(LONG_JUMP);
+    }
+
+    @Override
+    public double jumpDistance() {
+        return 0x1.0p128;
+    }
+
+    @Override
+    public double leapDistance() {
+        return 0x1.0p192;
+    }
+
+    private void advance(long[] polynomial) {
+        long t0 = 0;
+        long t1 = 0;
+        long t2 = 0;
+        long t3 = 0;
+
+        for (long word : polynomial) {
+            for (int b = 0; b < 64; b++) {
+                if ((word & (1L << b)) != 0) {
+                    t0 ^= this.s0;
+                    t1 ^= this.s1;
+                    t2 ^= this.s2;
+                    t3 ^= this.s3;
+                }
+                nextLong();
+            }
+        }
+
+        this.s0 = t0;
+        this.s1 = t1;
+        this.s2 = t2;
+        this.s3 = t3;
+    }
+}
@@ -0,0 +1,131 @@
+package randomgenr;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Table-driven Ziggurat samplers (Marsaglia and Tsang, 2000) for the standard
+ * exponential and standard normal distributions. About 99% of draws take one
+ * 64-bit random number, a table lookup and a multiply; only the rare draws
+ * that land outside the rectangles need a transcendental function. The layer
+ * index and the value are taken from different bits of the same draw.
+ *
+ * @author Ryan Owens
+ */
+final class Ziggurat {
+    private static final int EXP_LAYERS = 256;
+    private static final double EXP_R = 7.697117470131487;      // start of the tail
+    private static final double EXP_V = 3.949659822581572e-3;   // area of each layer
+
+    private static final int NORM_LAYERS = 128;
+    private static final double NORM_R = 3.442619855899;
+    private static final double NORM_V = 9.91256303526217e-3;
+
+    private static final long[] KE = new long[EXP_LAYERS];
+    private static final double[] WE = new double[EXP_LAYERS];
+    private static final double[] FE = new double[EXP_LAYERS];
+
+    private static final long[] KN = new long[NORM_LAYERS];
+    private static final double[] WN = new double[NORM_LAYERS];
+    private static final double[] FN = new double[NORM_LAYERS];
+
+    static {
+        final double m1 = 2147483648.0;     // 2^31
+        final double m2 = 4294967296.0;     // 2^32
+
+        double de = EXP_R;
+        double te = de;
+        double q = EXP_V / Math.exp(-de);
+        KE[0] = (long) ((de / q) * m2);
+        KE[1] = 0;
+        WE[0] = q / m2;
+        WE[EXP_LAYERS - 1] = de / m2;
+        FE[0] = 1.0;
+        FE[EXP_LAYERS - 1] = Math.exp(-de);
+        for (int i = EXP_LAYERS - 2; i >= 1; i--) {
+            de = -Math.log(EXP_V / de + Math.exp(-de));
+            KE[i + 1] = (long) ((de / te) * m2);
+            te = de;
+            FE[i] = Math.exp(-de);
+            WE[i] = de / m2;
+        }
+
+        double dn = NORM_R;
+        double tn = dn;
+        q = NORM_V / Math.exp(-0.5 * dn * dn);
+        KN[0] = (long) ((dn / q) * m1);
+        KN[1] = 0;
+        WN[0] = q / m1;
+        WN[NORM_LAYERS - 1] = dn / m1;
+        FN[0] = 1.0;
+        FN[NORM_LAYERS - 1] = Math.exp(-0.5 * dn * dn);
+        for (int i = NORM_LAYERS - 2; i >= 1; i--) {
+            dn = Math.sqrt(-2.0 * Math.log(NORM_V / dn + Math.exp(-0.5 * dn * dn)));
+            KN[i + 1] = (long) ((dn / tn) * m1);
+            tn = dn;
+            FN[i] = Math.exp(-0.5 * dn * dn);
+            WN[i] = dn / m1;
+        }
+    }
+
+    private Ziggurat() {
+    }
+
+    /**
+     * @param rand source of uniform bits
+     * @return a variate from the exponential distribution with mean 1
+     */
+    static double exponential(RandomGenerator rand) {
+        while (true) {
+            long bits = rand.nextLong();
+            int layer = (int) bits & (EXP_LAYERS - 1);
+            long u = bits >>> 32;                   // unsigned 32-bit value
+
+            if (u < KE[layer]) {
+                return u * WE[layer];
+            }
+
+            if (layer == 0) {
+                // the tail beyond R is itself exponential
+                return EXP_R - Math.log(1.0 - rand.nextDouble());
+            }
+
+            double x = u * WE[layer];
+            if (FE[layer] + rand.nextDouble() * (FE[layer - 1] - FE[layer]) < Math.exp(-x)) {
+                return x;
+            }
+        }
+    }
+
+    /**
+     * @param rand source of uniform bits
+     * @return a variate from the normal distribution with mean 0 and
+     * standard deviation 1
+     */
+    static double normal(RandomGenerator rand) {
+        while (true) {
+            long bits = rand.nextLong();
+            int layer = (int) bits & (NORM_LAYERS - 1);
+            int h = (int) (bits >> 32);             // signed 32-bit value
+
+            if (Math.abs((long) h) < KN[layer]) {
+                return h * WN[layer];
+            }
+
+            if (layer == 0) {
+                // sample the tail beyond R (Marsaglia, 1964)
+                double x;
+                double y;
+                do {
+                    x = -Math.log(1.0 - rand.nextDouble()) / NORM_R;
+                    y = -Math.log(1.0 - rand.nextDouble());
+                } while (y + y < x * x);
+                return (h > 0) ? NORM_R + x : -NORM_R - x;
+            }
+
+            double x = h * WN[layer];
+            if (FN[layer] + rand.nextDouble() * (FN[layer - 1] - FN[layer]) < Math.exp(-0.5 * x * x)) {
+                return x;
+            }
+        }
+    }
+}
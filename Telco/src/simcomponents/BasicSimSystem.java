@@ -27,8 +27,19 @@ package simcomponents;
 
 //import com.sun.corba.se.spi.transport.TransportDefault;
 
-import java.util.Collections;
-import java.util.LinkedList;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import javax.management.JMException;
+import randomgenr.RandomBackend;
+import randomgenr.RandomStreams;
+import simtrace.JobTraceWriter;
+import simtrace.TraceLevel;
+import simtrace.Tracer;
 
 /**
  * A simulation system providing an experimental frame for a simulation engine and
@@ -37,101 +48,88 @@ import java.util.LinkedList;
  * 
  * @author Gary R. Mayer
  */
-public class BasicSimSystem {
+public class BasicSimSystem implements SimModel {
+    private final int days;              // number of 'days' to work
+    private final int hoursInDay;
+    private final double jobArrivalRate; // the defined unit time here is an hour
+
+    private final int callCenterServers = 3;
+    private final int softwareTechnicianServers = 2;
+    private final int softwareManagerServers = 1;
+    private final int hardwareTechnicianServers = 2;
+    private final int hardwareManagerServers = 1;
+    private final int repairTechnicianServers = 2;
+
+    private final double callCenterServiceRate;
+    private final double softwareTechnicianServiceRate;
+    private final double softwareManagerServiceRate;
+    private final double hardwareTechnicianServiceRate;
+    private final double hardwareManagerServiceRate;
+    private final double repairTechnicianServiceRate;
+    
+    private boolean streamingArrivals = true;
 
     /**
-     * Takes up to two (optional) arguments. The first must be a double value that
-     * represents the end time of the simulation. If a second argument is given,
-     * it must be a long value representing the random number generator seed.
+     * Creates the call center model for a number of work days.
      * 
-     * @param args the command line arguments
+     * @param days number of work days to simulate
+     * @param hoursInDay hours in each work day
      */
-    public static void main(String[] args) {
-        
-        Long testSeed;                // default random seed
-        //testSeed = 543210L;
-        testSeed = Long.MIN_VALUE;
-        
+    public BasicSimSystem(int days, int hoursInDay) {
+        this.days = days;
+        this.hoursInDay = hoursInDay;
 
-        // number of 'days' to work
-        int days = 1;
-        int hoursInDay = 8;
-        double endSimTime = hoursInDay * days;       // max hours to simulate
-        // the defined unit time here is an hour
-        double jobArrivalRate = 1.25;    // average jobs per hour
-        jobArrivalRate = jobArrivalRate + (jobArrivalRate * 8);
-        jobArrivalRate = jobArrivalRate + (jobArrivalRate * days); // how many work days?
-        jobArrivalRate = jobArrivalRate + (jobArrivalRate * 0.05); // include percentage of 'return calls'
-        System.out.println("Simulation Work Days: " + days);
-        System.out.println("Job Arrival Rate for Simulation: " + jobArrivalRate);
-
-        int callCenterServers = 3;
-        int softwareTechnicianServers = 2;
-        int softwareManagerServers = 1;
-        int hardwareTechnicianServers = 2;
-        int hardwareManagerServers = 1;
-        int repairTechnicianServers = 2;
-
-        double callCenterServiceRate = (3.0 / 60.0) * hoursInDay;
-        double softwareTechnicianServiceRate = (20.0 / 60.0) * hoursInDay ;
-        double softwareManagerServiceRate = (45.0 / 60.0) * hoursInDay;
-        double hardwareTechnicianServiceRate = (40.0 / 60.0)* hoursInDay;
-        double hardwareManagerServiceRate = (60.0 / 60.0)* hoursInDay;
-        double repairTechnicianServiceRate = (0.8) * hoursInDay;
+        double rate = 1.25;    // average jobs per hour
+        rate = rate + (rate * 8);
+        rate = rate + (rate * days); // how many work days?
+        rate = rate + (rate * 0.05); // include percentage of 'return calls'
+        this.jobArrivalRate = rate;
 
-        
-        if (args.length > 2) {
-            throw new IllegalArgumentException("A maximum of two arguments is allowed.");
-        }
-        
-        if (args.length == 2) {
-            try {
-                endSimTime = Double.valueOf(args[0]);
-                testSeed = Long.valueOf(args[1]);
-            } catch (NumberFormatException nfe) {
-                System.err.println("Invalid arguments. When providing two"
-                        + " arguments, the first must be a double value and the"
-                        + " second must be a long value.");
-            }            
-        }
-        
-        else if (args.length == 1) {
-            try {
-                endSimTime = Double.valueOf(args[0]);
-            } catch (NumberFormatException nfe) {
-                System.err.println("Invalid argument. When providing only one"
-                        + " argument, the value must be a double value.");
-            }            
-        }
-        
-        // instantiate simulation components
-        SimEngine engine = SimEngine.getInstance();
-        engine.setEndTime(endSimTime);
+        this.callCenterServiceRate = (3.0 / 60.0) * hoursInDay;
+        this.softwareTechnicianServiceRate = (20.0 / 60.0) * hoursInDay ;
+        this.softwareManagerServiceRate = (45.0 / 60.0) * hoursInDay;
+        this.hardwareTechnicianServiceRate = (40.0 / 60.0)* hoursInDay;
+        this.hardwareManagerServiceRate = (60.0 / 60.0)* hoursInDay;
+        this.repairTechnicianServiceRate = (0.8) * hoursInDay;
+    }
+
+    public double getJobArrivalRate() {
+        return this.jobArrivalRate;
+    }
+
+    public double getDefaultEndTime() {
+        return this.hoursInDay * this.days;       // max hours to simulate
+    }
+
+    /**
+     * Selects whether the generator schedules arrivals one at a time (the
+     * default) or pre-schedules every arrival when the model is built.
+     * 
+     * @param streamingArrivals true to schedule arrivals one at a time
+     */
+    public void setStreamingArrivals(boolean streamingArrivals) {
+        this.streamingArrivals = streamingArrivals;
+    }
+
+    @Override
+    public List<QueueStation> build(SimEngine engine) {
         // Get Generators
-        Generator genr = new Generator("Gen_1", jobArrivalRate);
+        Generator genr = new Generator("Gen_1", this.jobArrivalRate);
+        genr.setStreaming(this.streamingArrivals);
         // Get Queue Stations
-        QueueStation callCenter = new QueueStation("Call_Center", callCenterServers, callCenterServiceRate);
-        QueueStation softwareTechnicians = new QueueStation("Software_Technicians", softwareTechnicianServers, softwareTechnicianServiceRate);
-        QueueStation softwareManagers = new QueueStation("Software_Managers", softwareManagerServers, softwareManagerServiceRate);
-        QueueStation hardwareTechnicians = new QueueStation("Hardware_Technicians", hardwareTechnicianServers, hardwareTechnicianServiceRate);
-        QueueStation hardwareManagers = new QueueStation("Hardware_Managers", hardwareManagerServers, hardwareManagerServiceRate);
-        QueueStation hardwareRepair = new QueueStation("Hardware_Repair", repairTechnicianServers, repairTechnicianServiceRate, true);
+        QueueStation callCenter = new QueueStation("Call_Center", this.callCenterServers, this.callCenterServiceRate);
+        QueueStation softwareTechnicians = new QueueStation("Software_Technicians", this.softwareTechnicianServers, this.softwareTechnicianServiceRate);
+        QueueStation softwareManagers = new QueueStation("Software_Managers", this.softwareManagerServers, this.softwareManagerServiceRate);
+        QueueStation hardwareTechnicians = new QueueStation("Hardware_Technicians", this.hardwareTechnicianServers, this.hardwareTechnicianServiceRate);
+        QueueStation hardwareManagers = new QueueStation("Hardware_Managers", this.hardwareManagerServers, this.hardwareManagerServiceRate);
+        QueueStation hardwareRepair = new QueueStation("Hardware_Repair", this.repairTechnicianServers, this.repairTechnicianServiceRate, true);
         // Get Transducers
         Transducer transd = new Transducer();
         Transducer repairTransd = new Transducer("Hardware_Repair_Transducer");
         Transducer failRepairTransd = new Transducer("Failed_Hardware_Repair_Transducer");
         
-        if (testSeed != Long.MIN_VALUE) {
-            genr.setRandomSeed(testSeed);
-            callCenter.setRandomSeed(testSeed);
-            softwareTechnicians.setRandomSeed(testSeed);
-            softwareManagers.setRandomSeed(testSeed);
-            hardwareTechnicians.setRandomSeed(testSeed);
-            hardwareManagers.setRandomSeed(testSeed);
-            hardwareRepair.setRandomSeed(testSeed);
-        }
-        
-        // register the simulation engine to monitor component events and connect the components
+        // register the simulation engine to monitor component events and connect the components;
+        // registering also seeds each component from the engine's random streams
         genr.register(engine);
         callCenter.register(engine);
         softwareTechnicians.register(engine);
@@ -139,6 +137,9 @@ public class BasicSimSystem {
         hardwareTechnicians.register(engine);
         hardwareManagers.register(engine);
         hardwareRepair.register(engine);
+        transd.register(engine);
+        repairTransd.register(engine);
+        failRepairTransd.register(engine);
 
         // Set output stations for the queues
         genr.setQueueStation(callCenter);
@@ -164,24 +165,302 @@ public class BasicSimSystem {
 
         hardwareRepair.addOutputStation(repairTransd, 0.75);
         hardwareRepair.addOutputStation(failRepairTransd, 0.25);
+
+        // catch routing mistakes before the simulation starts
+        for (QueueStation station : Arrays.asList(callCenter, softwareTechnicians, softwareManagers,
+                hardwareTechnicians, hardwareManagers, hardwareRepair)) {
+            station.compileRouting();
+        }
+
+        // schedule the arrivals
+        genr.initialize();
+
+        return Arrays.asList(callCenter, softwareTechnicians, softwareManagers, hardwareTechnicians,
+                hardwareManagers, hardwareRepair, transd, repairTransd, failRepairTransd);
+    }
+
+    /**
+     * Takes up to two (optional) arguments. The first must be a double value that
+     * represents the end time of the simulation. If a second argument is given,
+     * it must be a long value representing the random number generator seed.
+     * The future event list can be chosen with the system property
+     * telco.eventList (BINARY_HEAP, CALENDAR_QUEUE or LADDER_QUEUE). Setting
+     * telco.pooling to true recycles events and jobs instead of keeping them.
+     * Setting telco.trace to RUN, EVENT or JOB writes a binary trace to
+     * telco.traceFile (default telco-trace.bin); use simtrace.TraceDecoder to
+     * read it. Setting telco.jobTrace to a directory records every job's
+     * visit to every station there; use simtrace.JobTraceReader to query it.
+     * Setting telco.jmx to true publishes live engine and station metrics as
+     * MBeans (see SimMonitoring). Setting telco.jfr to a file records the
+     * run with Java Flight Recorder, including dispatches slower than
+     * telco.jfrDispatchThreshold microseconds (default 10) and every job start
+     * and completion (see SimFlightRecorder).
+     * Setting telco.replications to N runs N independent replications
+     * in parallel and prints their merged results instead. Station statistics
+     * are collected in constant memory; setting telco.retainJobs to true also
+     * keeps and prints every finished job. Arrivals are scheduled one at a
+     * time; setting telco.streamingArrivals to false schedules them all before
+     * the run starts. The uniform generator algorithm can be chosen with
+     * telco.rng (XOSHIRO256PP, L64X128 or JAVA_UTIL_RANDOM). Setting
+     * telco.logicalProcesses to N runs the single replication as a parallel
+     * simulation on N threads; telco.synchronization chooses CONSERVATIVE (the
+     * default) or OPTIMISTIC processes, and telco.optimismWindow limits how
+     * many hours optimistic processes run ahead (default 8). Setting
+     * telco.checkpointFile saves the run to that file every
+     * telco.checkpointInterval hours (default one work day); setting
+     * telco.resume to a checkpoint file continues the saved run instead of
+     * starting a new one. Setting telco.topology to a model file (see Topology)
+     * simulates that network instead of the built-in call center; a single
+     * replication then runs on the FlatSimulator unless telco.flat is false.
+     * Setting telco.analytic to true prints the steady state of the model as
+     * a Jackson network (see JacksonNetwork) instead of simulating it.
+     * 
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        
+        Long testSeed;                // default random seed
+        //testSeed = 543210L;
+        testSeed = Long.MIN_VALUE;
+        
+        BasicSimSystem model = new BasicSimSystem(1, 8);
+        double endSimTime = model.getDefaultEndTime();
+        String topologyFile = System.getProperty("telco.topology");
+        Topology topology = null;
+        if (topologyFile != null) {
+            try {
+                topology = Topology.load(Paths.get(topologyFile));
+            } catch (IOException ioe) {
+                System.err.println("Unable to read topology: " + ioe.getMessage());
+                return;
+            }
+            endSimTime = topology.getDefaultEndTime();
+            System.out.println("Topology: " + topologyFile);
+        } else {
+            System.out.println("Simulation Work Days: " + model.days);
+            System.out.println("Job Arrival Rate for Simulation: " + model.getJobArrivalRate());
+        }
+        
+        if (args.length > 2) {
+            throw new IllegalArgumentException("A maximum of two arguments is allowed.");
+        }
+        
+        if (args.length == 2) {
+            try {
+                endSimTime = Double.valueOf(args[0]);
+                testSeed = Long.valueOf(args[1]);
+            } catch (NumberFormatException nfe) {
+                System.err.println("Invalid arguments. When providing two"
+                        + " arguments, the first must be a double value and the"
+                        + " second must be a long value.");
+            }            
+        }
+        
+        else if (args.length == 1) {
+            try {
+                endSimTime = Double.valueOf(args[0]);
+            } catch (NumberFormatException nfe) {
+                System.err.println("Invalid argument. When providing only one"
+                        + " argument, the value must be a double value.");
+            }            
+        }
+        
+        EventListType eventListType = EventListType.valueOf(
+                System.getProperty("telco.eventList", EventListType.BINARY_HEAP.name()));
+        boolean pooling = Boolean.getBoolean("telco.pooling");
+        int replications = Integer.getInteger("telco.replications", 0);
+        int logicalProcesses = Integer.getInteger("telco.logicalProcesses", 0);
+        boolean retainJobs = Boolean.getBoolean("telco.retainJobs");
+        RandomBackend backend = RandomBackend.valueOf(
+                System.getProperty("telco.rng", RandomBackend.XOSHIRO256PP.name()));
+        boolean streamingArrivals = Boolean.parseBoolean(System.getProperty("telco.streamingArrivals", "true"));
+        model.setStreamingArrivals(streamingArrivals);
+        SimModel simModel = model;
+        if (topology != null) {
+            topology.setStreamingArrivals(streamingArrivals);
+            simModel = topology;
+        }
+        
+        if (Boolean.getBoolean("telco.analytic")) {
+            JacksonNetwork network;
+            if (topology != null) {
+                network = JacksonNetwork.of(topology);
+            } else {
+                List<QueueStation> stations = model.build(new SimEngine(0L));
+                network = JacksonNetwork.of(stations, stations.get(0), model.getJobArrivalRate());
+            }
+            network.solve().report(System.out);
+            return;
+        }
+        
+        if (replications > 0) {
+            long baseSeed = (testSeed != Long.MIN_VALUE) ? testSeed : System.nanoTime();
+            ReplicationRunner runner = new ReplicationRunner(simModel, endSimTime, baseSeed);
+            runner.setEventListType(eventListType);
+            runner.setPooling(pooling);
+            runner.setRandomBackend(backend);
+            
+            System.out.println("Running " + replications + " replications...\n");
+            try {
+                runner.run(replications).print(System.out);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+        
+        if (logicalProcesses > 0) {
+            long seed = (testSeed != Long.MIN_VALUE) ? testSeed : System.nanoTime();
+            ParallelSimulator simulator = new ParallelSimulator(simModel, endSimTime, seed);
+            simulator.setLogicalProcesses(logicalProcesses);
+            simulator.setEventListType(eventListType);
+            simulator.setPooling(pooling);
+            simulator.setRandomBackend(backend);
+            Synchronization synchronization = Synchronization.valueOf(
+                    System.getProperty("telco.synchronization", Synchronization.CONSERVATIVE.name()));
+            simulator.setSynchronization(synchronization);
+            simulator.setOptimismWindow(Double.parseDouble(System.getProperty("telco.optimismWindow", "8")));
+            
+            System.out.println("Beginning simulation on " + logicalProcesses + " logical processes...\n");
+            try {
+                List<QueueStation> stations = simulator.run();
+                System.out.println("\nSIMULATION COMPLETE");
+                if (synchronization == Synchronization.OPTIMISTIC) {
+                    System.out.println(simulator.getEventCount() + " events, "
+                            + simulator.getRolledBackEventCount() + " rolled back in "
+                            + simulator.getRollbackCount() + " rollbacks, "
+                            + simulator.getAntiMessageCount() + " anti-messages");
+                } else {
+                    System.out.println(simulator.getEventCount() + " events, "
+                            + simulator.getNullMessageCount() + " null messages");
+                }
+                for (QueueStation station : stations) {
+                    station.printJobResults();
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+        
+        if (topology != null && Boolean.parseBoolean(System.getProperty("telco.flat", "true"))) {
+            long seed = (testSeed != Long.MIN_VALUE) ? testSeed : System.nanoTime();
+            FlatSimulator simulator = new FlatSimulator(topology.compile(), new RandomStreams(seed, backend), endSimTime);
+            
+            System.out.println("Beginning simulation...\n");
+            simulator.simulate();
+            System.out.println("\nSIMULATION COMPLETE");
+            simulator.printResults(System.out);
+            return;
+        }
+        
+        String resumeFile = System.getProperty("telco.resume");
+        String checkpointFile = System.getProperty("telco.checkpointFile");
+        if ((resumeFile != null || checkpointFile != null) && backend != RandomBackend.XOSHIRO256PP) {
+            System.err.println("Checkpoints need the XOSHIRO256PP backend, not " + backend + ".");
+            return;
+        }
+        
+        // instantiate simulation components
+        SimEngine engine = SimEngine.getInstance();
+        long seed = (testSeed != Long.MIN_VALUE) ? testSeed : engine.getRandomStreams().getMasterSeed();
+        engine.setRandomStreams(new RandomStreams(seed, backend));
+        engine.setEndTime(endSimTime);
+        engine.setEventList(eventListType.create());
+        engine.setPooling(pooling);
+        TraceLevel traceLevel = TraceLevel.valueOf(System.getProperty("telco.trace", TraceLevel.OFF.name()));
+        if (traceLevel != TraceLevel.OFF) {
+            try {
+                engine.setTracer(new Tracer(traceLevel, Paths.get(System.getProperty("telco.traceFile", "telco-trace.bin"))));
+            } catch (IOException ioe) {
+                System.err.println("Unable to open trace file: " + ioe.getMessage());
+            }
+        }
+        String jobTraceDirectory = System.getProperty("telco.jobTrace");
+        if (jobTraceDirectory != null) {
+            try {
+                engine.setJobTrace(new JobTraceWriter(Paths.get(jobTraceDirectory)));
+            } catch (IOException ioe) {
+                System.err.println("Unable to open job trace: " + ioe.getMessage());
+            }
+        }
         
         // run the simulation
         System.out.println("Beginning simulation...\n");
-        genr.initialize();
-        engine.simulate();
+        List<QueueStation> stations = simModel.build(engine);
+        for (QueueStation station : stations) {
+            station.setRetainJobs(retainJobs);
+        }
+        SimMonitoring monitoring = null;
+        if (Boolean.getBoolean("telco.jmx")) {
+            try {
+                monitoring = new SimMonitoring(engine, stations, 1.0);
+            } catch (JMException jme) {
+                System.err.println("Unable to register MBeans: " + jme.getMessage());
+            }
+        }
+        SimFlightRecorder flightRecorder = null;
+        String flightRecording = System.getProperty("telco.jfr");
+        if (flightRecording != null) {
+            flightRecorder = new SimFlightRecorder(engine, stations);
+            try {
+                flightRecorder.startRecording(Paths.get(flightRecording),
+                        Duration.ofNanos(1000L * Long.getLong("telco.jfrDispatchThreshold", 10L)));
+            } catch (IOException | ParseException e) {
+                System.err.println("Unable to start flight recording: " + e.getMessage());
+            }
+        }
+        if (resumeFile != null) {
+            try {
+                CheckpointFile.restore(Paths.get(resumeFile), engine, stations);
+            } catch (IOException | IllegalStateException e) {
+                System.err.println("Unable to read checkpoint: " + e.getMessage());
+                return;
+            }
+            engine.setEventList(eventListType.create());
+            System.out.println("Resumed at time " + engine.getSimTime());
+        }
+        if (checkpointFile != null) {
+            Path checkpointPath = Paths.get(checkpointFile);
+            double checkpointInterval = Double.parseDouble(
+                    System.getProperty("telco.checkpointInterval", String.valueOf(model.hoursInDay)));
+            engine.simulate(checkpointInterval, () -> {
+                try {
+                    CheckpointFile.write(checkpointPath, engine, stations);
+                } catch (IOException | IllegalStateException e) {
+                    System.err.println("Unable to write checkpoint: " + e.getMessage());
+                }
+            });
+        } else {
+            engine.simulate();
+        }
         System.out.println("\nSIMULATION COMPLETE");
-        engine.printResults();
-
-        callCenter.printJobResults();
-        softwareTechnicians.printJobResults();
-        softwareManagers.printJobResults();
-        hardwareTechnicians.printJobResults();
-        hardwareManagers.printJobResults();
-        hardwareRepair.printJobResults();
-
-        transd.printJobResults();
-        repairTransd.printJobResults();
-        failRepairTransd.printJobResults();
+        try {
+            engine.getTracer().close();
+        } catch (IOException ioe) {
+            System.err.println("Unable to write trace file: " + ioe.getMessage());
+        }
+        if (engine.getJobTrace() != null) {
+            try {
+                engine.getJobTrace().close();
+            } catch (IOException ioe) {
+                System.err.println("Unable to write job trace: " + ioe.getMessage());
+            }
+        }
+        if (flightRecorder != null) {
+            try {
+                flightRecorder.close();
+            } catch (IOException ioe) {
+                System.err.println("Unable to write flight recording: " + ioe.getMessage());
+            }
+        }
+
+        for (QueueStation station : stations) {
+            station.printJobResults();
+        }
+        if (monitoring != null) {
+            monitoring.close();
+        }
         
     }
     
@@ -0,0 +1,87 @@
+package simcomponents;
+
+import java.util.Arrays;
+
+/**
+ * Array-backed binary min-heap of simulation events. O(log n) insert and removal,
+ * but comparisons are made directly on the primitive event times.
+ *
+ * @author Ryan Owens
+ */
+public class BinaryHeapEventList implements FutureEventList {
+    private SimEvent[] heap;
+    private int size;
+
+    public BinaryHeapEventList() {
+        this(64);
+    }
+
+    public BinaryHeapEventList(int initialCapacity) {
+        this.heap = new SimEvent[Math.max(2, initialCapacity)];
+        this.size = 0;
+    }
+
+    @Override
+    public void add(SimEvent event) {
+        if (this.size == this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap, this.size * 2);
+        }
+
+        // sift the new event up from the last leaf
+        int child = this.size++;
+        while (child > 0) {
+            int parent = (child - 1) >>> 1;
+            SimEvent p = this.heap[parent];
+            if (!SimEvent.precedes(event, p)) {
+                break;
+            }
+            this.heap[child] = p;
+            child = parent;
+        }
+        this.heap[child] = event;
+    }
+
+    @Override
+    public SimEvent poll() {
+        if (this.size == 0) {
+            return null;
+        }
+
+        SimEvent first = this.heap[0];
+        SimEvent last = this.heap[--this.size];
+        this.heap[this.size] = null;
+
+        if (this.size > 0) {
+            // sift the last event down from the root
+            int parent = 0;
+            int half = this.size >>> 1;
+            while (parent < half) {
+                int child = (parent << 1) + 1;
+                SimEvent c = this.heap[child];
+                int right = child + 1;
+                if (right < this.size && SimEvent.precedes(this.heap[right], c)) {
+                    child = right;
+                    c = this.heap[child];
+                }
+                if (!SimEvent.precedes(c, last)) {
+                    break;
+                }
+                this.heap[parent] = c;
+                parent = child;
+            }
+            this.heap[parent] = last;
+        }
+
+        return first;
+    }
+
+    @Override
+    public SimEvent peek() {
+        return (this.size == 0) ? null : this.heap[0];
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+}
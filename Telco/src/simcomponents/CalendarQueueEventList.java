@@ -0,0 +1,262 @@
+package simcomponents;
+
+/**
+ * Calendar queue (R. Brown, 1988). Events are hashed by time into an array of
+ * "day" buckets, each holding a short sorted list. Dequeue walks the calendar
+ * forward one day at a time, so both operations are O(1) amortized as long as
+ * the bucket width matches the event density. The calendar is resized, and the
+ * bucket width re-estimated, whenever the number of events doubles or halves.
+ *
+ * @author Ryan Owens
+ */
+public class CalendarQueueEventList implements FutureEventList {
+    private static final int MIN_BUCKETS = 2;
+    private static final int WIDTH_SAMPLE = 25;
+
+    private SimEvent[] buckets;     // sorted, intrusively linked lists
+    private SimEvent[] tails;       // last event of each bucket, for O(1) appends
+    private int numBuckets;
+    private double width;           // length of time covered by one bucket
+    private long currentSlot;       // absolute bucket ("day") number being examined
+    private int size;
+    private int growThreshold;
+    private int shrinkThreshold;
+    private boolean resizeEnabled;
+
+    public CalendarQueueEventList() {
+        this(MIN_BUCKETS, 1.0);
+    }
+
+    /**
+     * Creates a calendar queue with an initial bucket count and width. Both are
+     * adjusted automatically as the queue grows and shrinks.
+     *
+     * @param initialBuckets initial number of buckets
+     * @param initialWidth initial time span of a bucket
+     */
+    public CalendarQueueEventList(int initialBuckets, double initialWidth) {
+        if (initialWidth <= 0.0) {
+            throw new IllegalArgumentException("Bucket width must be positive.");
+        }
+
+        this.size = 0;
+        this.currentSlot = 0;
+        this.resizeEnabled = true;
+        allocate(Math.max(MIN_BUCKETS, initialBuckets), initialWidth);
+    }
+
+    @Override
+    public void add(SimEvent event) {
+        long slot = slotOf(event.getEventTime());
+
+        // an event before the current day moves the calendar back
+        if (slot < this.currentSlot) {
+            this.currentSlot = slot;
+        }
+
+        insert(event, slot);
+        this.size++;
+
+        if (this.size > this.growThreshold && this.resizeEnabled) {
+            resize(this.numBuckets * 2);
+        }
+    }
+
+    @Override
+    public SimEvent poll() {
+        int bucket = locate();
+
+        if (bucket < 0) {
+            return null;
+        }
+
+        SimEvent first = this.buckets[bucket];
+        this.buckets[bucket] = first.next;
+        if (first.next == null) {
+            this.tails[bucket] = null;
+        }
+        first.next = null;
+        this.size--;
+
+        if (this.size < this.shrinkThreshold && this.resizeEnabled) {
+            resize(this.numBuckets / 2);
+        }
+
+        return first;
+    }
+
+    @Override
+    public SimEvent peek() {
+        int bucket = locate();
+
+        return (bucket < 0) ? null : this.buckets[bucket];
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Finds the bucket whose head is the earliest event, advancing the current
+     * day to it.
+     *
+     * @return the bucket index, or -1 if the queue is empty
+     */
+    private int locate() {
+        if (this.size == 0) {
+            return -1;
+        }
+
+        // walk one year of the calendar looking for an event in the current day
+        for (int d = 0; d < this.numBuckets; d++) {
+            int bucket = (int) Math.floorMod(this.currentSlot, (long) this.numBuckets);
+            SimEvent head = this.buckets[bucket];
+
+            if (head != null && slotOf(head.getEventTime()) <= this.currentSlot) {
+                return bucket;
+            }
+            this.currentSlot++;
+        }
+
+        // the calendar is sparse; jump directly to the earliest event
+        int minBucket = -1;
+        for (int b = 0; b < this.numBuckets; b++) {
+            SimEvent head = this.buckets[b];
+
+            if (head != null && (minBucket < 0 || SimEvent.precedes(head, this.buckets[minBucket]))) {
+                minBucket = b;
+            }
+        }
+        this.currentSlot = slotOf(this.buckets[minBucket].getEventTime());
+
+        return minBucket;
+    }
+
+    private long slotOf(double time) {
+        return (long) Math.floor(time / this.width);
+    }
+
+    private void insert(SimEvent event, long slot) {
+        int bucket = (int) Math.floorMod(slot, (long) this.numBuckets);
+        SimEvent tail = this.tails[bucket];
+
+        // events are usually scheduled in time order; append without a scan
+        if (tail == null || !SimEvent.precedes(event, tail)) {
+            event.next = null;
+            if (tail == null) {
+                this.buckets[bucket] = event;
+            } else {
+                tail.next = event;
+            }
+            this.tails[bucket] = event;
+            return;
+        }
+
+        SimEvent prev = null;
+        SimEvent cur = this.buckets[bucket];
+
+        while (cur != null && !SimEvent.precedes(event, cur)) {
+            prev = cur;
+            cur = cur.next;
+        }
+
+        event.next = cur;
+        if (prev == null) {
+            this.buckets[bucket] = event;
+        } else {
+            prev.next = event;
+        }
+    }
+
+    private void allocate(int newBuckets, double newWidth) {
+        this.buckets = new SimEvent[newBuckets];
+        this.tails = new SimEvent[newBuckets];
+        this.numBuckets = newBuckets;
+        this.width = newWidth;
+        this.growThreshold = 2 * newBuckets;
+        this.shrinkThreshold = (newBuckets > MIN_BUCKETS) ? newBuckets / 2 - 2 : -1;
+    }
+
+    /**
+     * Rebuilds the calendar with a new number of buckets and a bucket width
+     * estimated from the separation of the earliest pending events.
+     */
+    private void resize(int newBuckets) {
+        if (newBuckets < MIN_BUCKETS) {
+            return;
+        }
+
+        double newWidth = estimateWidth();
+
+        // unlink every event from the old calendar
+        SimEvent all = null;
+        for (int b = 0; b < this.numBuckets; b++) {
+            SimEvent cur = this.buckets[b];
+            while (cur != null) {
+                SimEvent next = cur.next;
+                cur.next = all;
+                all = cur;
+                cur = next;
+            }
+        }
+
+        allocate(newBuckets, newWidth);
+        this.currentSlot = Long.MAX_VALUE;
+
+        while (all != null) {
+            SimEvent next = all.next;
+            long slot = slotOf(all.getEventTime());
+            if (slot < this.currentSlot) {
+                this.currentSlot = slot;
+            }
+            insert(all, slot);
+            all = next;
+        }
+
+        if (this.size == 0) {
+            this.currentSlot = 0;
+        }
+    }
+
+    /**
+     * Samples the earliest events to choose a bucket width of roughly three
+     * average event separations, ignoring unusually large gaps.
+     */
+    private double estimateWidth() {
+        int samples = Math.min(this.size, WIDTH_SAMPLE);
+
+        if (samples < 2) {
+            return this.width;
+        }
+
+        // temporarily dequeue the earliest events, without triggering a resize
+        this.resizeEnabled = false;
+        SimEvent[] sampled = new SimEvent[samples];
+        for (int i = 0; i < samples; i++) {
+            sampled[i] = poll();
+        }
+
+        double totalSeparation = sampled[samples - 1].getEventTime() - sampled[0].getEventTime();
+        double avgSeparation = totalSeparation / (samples - 1);
+        double separationSum = 0.0;
+        int separationCount = 0;
+        for (int i = 1; i < samples; i++) {
+            double separation = sampled[i].getEventTime() - sampled[i - 1].getEventTime();
+            if (separation < 2.0 * avgSeparation) {
+                separationSum += separation;
+                separationCount++;
+            }
+        }
+
+        for (SimEvent event : sampled) {
+            add(event);
+        }
+        this.resizeEnabled = true;
+
+        if (separationCount == 0 || separationSum <= 0.0) {
+            return this.width;
+        }
+        return 3.0 * (separationSum / separationCount);
+    }
+}
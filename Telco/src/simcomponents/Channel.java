@@ -0,0 +1,92 @@
+package simcomponents;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A one-way, FIFO link between two logical processes of a parallel simulation.
+ * It carries timestamped jobs and null messages; every message promises that
+ * no later message on the channel has an earlier timestamp.
+ *
+ * @author Ryan Owens
+ */
+final class Channel implements JobLink {
+    private final ConcurrentLinkedQueue<Message> messages = new ConcurrentLinkedQueue<>();
+    private final LogicalProcess sender;
+    private final LogicalProcess receiver;
+    private double clock = 0.0;                             // read and written by the receiver only
+    private double lastBound = Double.NEGATIVE_INFINITY;    // read and written by the sender only
+    private long nullMessages = 0;
+
+    Channel(LogicalProcess sender, LogicalProcess receiver) {
+        this.sender = sender;
+        this.receiver = receiver;
+    }
+
+    @Override
+    public void send(double time, InboundPort port, Job job) {
+        this.sender.jobSent();
+        this.messages.add(new Message(time, port, job));
+        this.receiver.wake();
+    }
+
+    /**
+     * Promises that no job will be sent with a timestamp earlier than a bound.
+     * Nothing is sent unless the bound has advanced.
+     */
+    void sendNull(double bound) {
+        if (bound > this.lastBound) {
+            this.lastBound = bound;
+            this.nullMessages++;
+            this.messages.add(new Message(bound, null, null));
+            this.receiver.wake();
+        }
+    }
+
+    /**
+     * Delivers every waiting job to the receiver's engine and advances the
+     * channel clock.
+     *
+     * @return the number of jobs delivered, or -1 if no message was waiting
+     */
+    int deliver(SimEngine engine) {
+        Message message;
+        int jobs = -1;
+
+        while ((message = this.messages.poll()) != null) {
+            if (jobs < 0) {
+                jobs = 0;
+            }
+            if (message.port != null) {
+                engine.schedule(message.port, message.time, message.job);
+                jobs++;
+            }
+            if (message.time > this.clock) {
+                this.clock = message.time;
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * @return the time before which no further job can arrive on this channel
+     */
+    double getClock() {
+        return this.clock;
+    }
+
+    long getNullMessageCount() {
+        return this.nullMessages;
+    }
+
+    private static final class Message {
+        private final double time;
+        private final InboundPort port;
+        private final Job job;
+
+        private Message(double time, InboundPort port, Job job) {
+            this.time = time;
+            this.port = port;
+            this.job = job;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package simcomponents;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import randomgenr.RandomBackend;
+
+/**
+ * Saves the complete state of a serial run to a file, and restores it into a
+ * freshly built copy of the same model, so that the resumed run continues
+ * exactly as the original would have.
+ *
+ * A checkpoint holds the clock, every pending event with its sequence number,
+ * and the state of every station and of every generator with pending
+ * arrivals: queued and in-service jobs, statistics and random stream
+ * positions. Its size depends only on this live state, not on how long the
+ * run has been going; finished jobs kept for debugging are not saved. The
+ * file is written through a memory mapping to a temporary file that then
+ * replaces the previous checkpoint, so a crash while writing leaves the
+ * previous checkpoint intact.
+ *
+ * Random stream positions can only be saved with the XOSHIRO256PP backend.
+ *
+ * File layout (big-endian):
+ * <pre>
+ * int magic "TLCK", int version
+ * double simTime, long eventSequence, long eventCount, int jobSequence
+ * int stations, then per station: name, station state
+ * int generators, then per generator: name, generator state
+ * int events, then per event: byte kind, int component index, double time,
+ *     long sequence, int server slot
+ * </pre>
+ * Names are an int length followed by UTF-8 bytes.
+ *
+ * @author Ryan Owens
+ */
+public final class CheckpointFile {
+    private static final int MAGIC = 0x544C434B;
+    private static final int VERSION = 2;
+    private static final byte COMPLETION = 0;
+    private static final byte ARRIVAL = 1;
+    private static final int EVENT_BYTES = 1 + Integer.BYTES + Double.BYTES + Long.BYTES + Integer.BYTES;
+
+    private CheckpointFile() {
+    }
+
+    /**
+     * Writes a checkpoint of a run between events.
+     *
+     * @param file the checkpoint file, replaced if it exists
+     * @param engine the engine of the run
+     * @param stations every station of the model, as returned by its build
+     * @throws IOException if the file cannot be written
+     * @throws IllegalStateException if the run does not use the XOSHIRO256PP
+     *         backend or an event cannot be saved
+     */
+    public static void write(Path file, SimEngine engine, List<QueueStation> stations) throws IOException {
+        checkBackend(engine);
+        List<SimEvent> events = engine.pendingEvents();
+        Map<QueueStation, Integer> stationIndex = new IdentityHashMap<>();
+        for (int i = 0; i < stations.size(); i++) {
+            stationIndex.put(stations.get(i), i);
+        }
+        Map<Generator, Integer> generatorIndex = new IdentityHashMap<>();
+        List<Generator> generators = new ArrayList<>();
+        for (SimEvent event : events) {
+            Simulatable simulatable = event.getSimulatable();
+            if (simulatable instanceof Generator) {
+                if (!generatorIndex.containsKey(simulatable)) {
+                    generatorIndex.put((Generator) simulatable, generators.size());
+                    generators.add((Generator) simulatable);
+                }
+            } else if (!stationIndex.containsKey(simulatable) || event.getSlot() < 0) {
+                throw new IllegalStateException("Cannot save the event of " + simulatable.getName() + ".");
+            }
+        }
+
+        long size = 2 * Integer.BYTES + Double.BYTES + 2 * Long.BYTES + 4 * Integer.BYTES
+                + (long) events.size() * EVENT_BYTES;
+        List<QueueStation.State> stationStates = new ArrayList<>(stations.size());
+        for (QueueStation station : stations) {
+            QueueStation.State state = station.saveState();
+            stationStates.add(state);
+            size += nameSize(station.getName()) + state.byteSize();
+        }
+        List<Generator.State> generatorStates = new ArrayList<>(generators.size());
+        for (Generator generator : generators) {
+            generatorStates.add(generator.saveState());
+            size += nameSize(generator.getName()) + Generator.State.BYTES;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Checkpoint of " + size + " bytes is too large.");
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+            buffer.putInt(MAGIC).putInt(VERSION);
+            buffer.putDouble(engine.getSimTime()).putLong(engine.getEventSequence()).putLong(engine.getEventCount())
+                    .putInt(engine.getJobSequence());
+
+            buffer.putInt(stations.size());
+            for (int i = 0; i < stations.size(); i++) {
+                putName(buffer, stations.get(i).getName());
+                stationStates.get(i).writeTo(buffer);
+            }
+
+            buffer.putInt(generators.size());
+            for (int i = 0; i < generators.size(); i++) {
+                putName(buffer, generators.get(i).getName());
+                generatorStates.get(i).writeTo(buffer);
+            }
+
+            buffer.putInt(events.size());
+            for (SimEvent event : events) {
+                Simulatable simulatable = event.getSimulatable();
+                if (simulatable instanceof Generator) {
+                    buffer.put(ARRIVAL).putInt(generatorIndex.get(simulatable));
+                } else {
+                    buffer.put(COMPLETION).putInt(stationIndex.get(simulatable));
+                }
+                buffer.putDouble(event.getEventTime()).putLong(event.sequence).putInt(event.getSlot());
+            }
+            buffer.force();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Restores a checkpoint into a run whose model has just been built, with
+     * the same structure, on the given engine. The run then continues with
+     * SimEngine.simulate.
+     *
+     * @param file the checkpoint file
+     * @param engine the engine the model was built on
+     * @param stations every station of the model, as returned by its build
+     * @throws IOException if the file cannot be read or is not a checkpoint
+     * @throws IllegalStateException if the checkpoint is of another model, or
+     *         the run does not use the XOSHIRO256PP backend
+     */
+    public static void restore(Path file, SimEngine engine, List<QueueStation> stations) throws IOException {
+        checkBackend(engine);
+
+        // the generators are only known through their pending arrivals
+        Map<String, Generator> built = new HashMap<>();
+        for (SimEvent event : engine.pendingEvents()) {
+            if (event.getSimulatable() instanceof Generator) {
+                built.put(event.getSimulatable().getName(), (Generator) event.getSimulatable());
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException(file + " is not a checkpoint of this version.");
+            }
+            double simTime = buffer.getDouble();
+            long eventSequence = buffer.getLong();
+            long eventCount = buffer.getLong();
+            int jobSequence = buffer.getInt();
+
+            int stationCount = buffer.getInt();
+            if (stationCount != stations.size()) {
+                throw new IllegalStateException("The checkpoint has " + stationCount
+                        + " stations but the model has " + stations.size() + ".");
+            }
+            for (QueueStation station : stations) {
+                String name = getName(buffer);
+                if (!name.equals(station.getName())) {
+                    throw new IllegalStateException("The checkpoint has station " + name
+                            + " where the model has " + station.getName() + ".");
+                }
+                station.restoreState(QueueStation.State.readFrom(buffer, station));
+            }
+
+            List<Generator> generators = new ArrayList<>();
+            int generatorCount = buffer.getInt();
+            for (int i = 0; i < generatorCount; i++) {
+                String name = getName(buffer);
+                Generator generator = built.get(name);
+                if (generator == null) {
+                    throw new IllegalStateException("The model has no generator " + name + " with arrivals.");
+                }
+                generator.restoreState(Generator.State.readFrom(buffer));
+                generators.add(generator);
+            }
+
+            engine.restore(simTime, eventSequence, eventCount, jobSequence);
+            int eventTotal = buffer.getInt();
+            for (int i = 0; i < eventTotal; i++) {
+                byte kind = buffer.get();
+                int index = buffer.getInt();
+                double time = buffer.getDouble();
+                long sequence = buffer.getLong();
+                int slot = buffer.getInt();
+
+                if (kind == ARRIVAL) {
+                    engine.restoreEvent(generators.get(index), time, -1, null, sequence);
+                } else {
+                    QueueStation station = stations.get(index);
+                    Job job = station.getJobInService(slot);
+                    if (job == null) {
+                        throw new IOException("Station " + station.getName() + " has no job in slot " + slot + ".");
+                    }
+                    engine.restoreEvent(station, time, slot, job, sequence);
+                }
+            }
+        }
+    }
+
+    private static void checkBackend(SimEngine engine) {
+        if (engine.getRandomStreams().getBackend() != RandomBackend.XOSHIRO256PP) {
+            throw new IllegalStateException("Checkpoints need the XOSHIRO256PP backend.");
+        }
+    }
+
+    private static int nameSize(String name) {
+        return Integer.BYTES + name.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void putName(ByteBuffer buffer, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static String getName(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
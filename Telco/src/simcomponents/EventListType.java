@@ -0,0 +1,28 @@
+package simcomponents;
+
+/**
+ * The future event list implementations that can be selected for a run.
+ *
+ * @author Ryan Owens
+ */
+public enum EventListType {
+    BINARY_HEAP,
+    CALENDAR_QUEUE,
+    LADDER_QUEUE;
+
+    /**
+     * Creates an empty event list of this type.
+     *
+     * @return a new future event list
+     */
+    public FutureEventList create() {
+        switch (this) {
+            case CALENDAR_QUEUE:
+                return new CalendarQueueEventList();
+            case LADDER_QUEUE:
+                return new LadderQueueEventList();
+            default:
+                return new BinaryHeapEventList();
+        }
+    }
+}
@@ -32,4 +32,28 @@ package simcomponents;
  */
 public interface EventObserver {
     void notify(SimEvent simEvent);
+    
+    /**
+     * Notification of an upcoming event for a simulatable. Observers that pool
+     * their SimEvent instances override this to avoid allocating one per event.
+     * 
+     * @param simulatable the Simulatable object with the upcoming event
+     * @param eventTime the event time delta
+     */
+    default void notify(Simulatable simulatable, double eventTime) {
+        notify(simulatable, eventTime, -1, null);
+    }
+    
+    /**
+     * Notification of an upcoming event that carries a handle back to the
+     * state it applies to.
+     * 
+     * @param simulatable the Simulatable object with the upcoming event
+     * @param eventTime the event time delta
+     * @param slot a simulatable-specific index, e.g. a server slot; -1 if unused
+     * @param job the job the event applies to, or null
+     */
+    default void notify(Simulatable simulatable, double eventTime, int slot, Job job) {
+        notify(new SimEvent(simulatable, eventTime, slot, job));
+    }
 }
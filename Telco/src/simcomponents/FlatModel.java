@@ -0,0 +1,84 @@
+package simcomponents;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import randomgenr.Distribution;
+
+/**
+ * A queueing network compiled into primitive arrays indexed by station, the
+ * form run by FlatSimulator. Server slots of every station are numbered
+ * consecutively, station s owning slots slotOffset[s] to slotOffset[s + 1] - 1;
+ * routes are stored the same way. Created by Topology.compile; immutable, so
+ * one model can be run by several simulators at once.
+ *
+ * Each station's routes hold either cumulative probabilities (fan-outs of up
+ * to RoutingTable.CUMULATIVE_LIMIT) or Walker alias tables, exactly as
+ * RoutingTable would build them.
+ *
+ * @author Ryan Owens
+ */
+public final class FlatModel {
+    final String[] names;
+    final int[] servers;                 // -1 for a transducer
+    final List<Supplier<Distribution>> serviceTimes;
+    final int[] slotOffset;
+    final int[] slotStation;             // station owning each server slot
+    final int[] routeOffset;
+    final int[] routeTarget;
+    final double[] routeThreshold;       // cumulative probability, or alias keep probability
+    final int[] routeAlias;              // alias column, relative to the station's first route
+    final String[] generatorNames;
+    final double[] generatorRate;
+    final int[] generatorStation;
+
+    FlatModel(String[] names, int[] servers, List<Supplier<Distribution>> serviceTimes, int[] slotOffset,
+            int[] routeOffset, int[] routeTarget, double[] routeThreshold, int[] routeAlias,
+            String[] generatorNames, double[] generatorRate, int[] generatorStation) {
+        this.names = names;
+        this.servers = servers;
+        this.serviceTimes = serviceTimes;
+        this.slotOffset = slotOffset;
+        this.routeOffset = routeOffset;
+        this.routeTarget = routeTarget;
+        this.routeThreshold = routeThreshold;
+        this.routeAlias = routeAlias;
+        this.generatorNames = generatorNames;
+        this.generatorRate = generatorRate;
+        this.generatorStation = generatorStation;
+
+        this.slotStation = new int[slotOffset[names.length]];
+        for (int s = 0; s < names.length; s++) {
+            for (int slot = slotOffset[s]; slot < slotOffset[s + 1]; slot++) {
+                this.slotStation[slot] = s;
+            }
+        }
+    }
+
+    public int getStationCount() {
+        return this.names.length;
+    }
+
+    public String getStationName(int station) {
+        return this.names[station];
+    }
+
+    /**
+     * @param station a station index
+     * @return the station's servers, or -1 for a transducer
+     */
+    public int getServers(int station) {
+        return this.servers[station];
+    }
+
+    public int getGeneratorCount() {
+        return this.generatorNames.length;
+    }
+
+    /**
+     * @return the total number of server slots of every station
+     */
+    public int getSlotCount() {
+        return this.slotStation.length;
+    }
+}
@@ -0,0 +1,417 @@
+package simcomponents;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+import randomgenr.Distribution;
+import randomgenr.ExponentialGenr;
+import randomgenr.PoissonGenr;
+import randomgenr.RandomStreams;
+import simstats.StationStatistics;
+
+/**
+ * Runs a FlatModel. Station state is held in primitive arrays indexed by
+ * station and server slot, and the future event list is a binary heap over
+ * parallel arrays of times, sequence numbers and targets, so the event loop
+ * neither allocates events nor follows references between stations.
+ *
+ * The simulator draws from the same named random streams, in the same order,
+ * as the stations and generators a Topology builds on a SimEngine, and breaks
+ * ties between events the same way, so both engines produce identical
+ * results. Arrivals are always streamed. It does not trace, checkpoint or keep
+ * finished jobs; build the topology on a SimEngine for those.
+ *
+ * Jobs live in a JobTable: queues and server slots hold int ids, and a job's
+ * id is reused once it leaves through a transducer.
+ *
+ * @author Ryan Owens
+ */
+public final class FlatSimulator {
+    private final FlatModel model;
+    private final double endTime;
+    private double simTime = 0.0;
+    private long eventCount = 0;
+
+    // stations
+    private final StationStatistics[] statistics;
+    private final RandomGenerator[] routing;
+    private final Distribution[] serviceTime;
+    private final double[] serviceTimes;         // prefetched block of each station
+    private final int[] serviceTimePos;
+    private final int[] busyCount;
+    private final int[] freeCount;
+    private final int[] absorbed;                // jobs absorbed by each transducer
+    private final JobTable jobs = new JobTable(256);
+    private final int[][] queue;                 // ring buffer of job ids of each station
+    private final int[] queueHead;
+    private final int[] queueSize;
+
+    // server slots
+    private final int[] freeSlots;               // stack of idle slots of each station, at its slot offset
+    private final int[] slotJob;                 // id of the job in service, or -1
+
+    // generators
+    private final PoissonGenr[] arrivalCount;
+    private final ExponentialGenr[] arrivalTime;
+    private final int[] pendingArrivals;
+    private final int[] remainingArrivals;
+
+    // future events: target >= 0 completes a server slot, target < 0 is an arrival of generator -target - 1
+    private double[] eventTime = new double[64];
+    private long[] eventSequence = new long[64];
+    private int[] eventTarget = new int[64];
+    private int eventSize = 0;
+    private long nextSequence = 0;
+
+    /**
+     * Prepares a run of a model and schedules its first arrivals.
+     *
+     * @param model the model to run
+     * @param streams the run's random streams
+     * @param endTime time at which the run stops
+     */
+    public FlatSimulator(FlatModel model, RandomStreams streams, double endTime) {
+        this.model = model;
+        this.endTime = endTime;
+
+        int n = model.getStationCount();
+        this.statistics = new StationStatistics[n];
+        this.routing = new RandomGenerator[n];
+        this.serviceTime = new Distribution[n];
+        this.serviceTimes = new double[n * QueueStation.DEFAULT_SERVICE_TIME_BLOCK];
+        this.serviceTimePos = new int[n];
+        this.busyCount = new int[n];
+        this.freeCount = new int[n];
+        this.absorbed = new int[n];
+        this.queue = new int[n][];
+        this.queueHead = new int[n];
+        this.queueSize = new int[n];
+        this.freeSlots = new int[model.getSlotCount()];
+        this.slotJob = new int[model.getSlotCount()];
+        Arrays.fill(this.slotJob, -1);
+
+        for (int s = 0; s < n; s++) {
+            String name = model.names[s];
+            this.statistics[s] = new StationStatistics(name, model.servers[s]);
+            if (model.servers[s] < 0) {
+                continue;
+            }
+            this.routing[s] = streams.generatorFor(name, "routing");
+            this.serviceTime[s] = model.serviceTimes.get(s).get();
+            this.serviceTime[s].setGenerator(streams.generatorFor(name, "service"));
+            this.serviceTimePos[s] = QueueStation.DEFAULT_SERVICE_TIME_BLOCK;
+            this.queue[s] = new int[16];
+
+            // slot 0 is at the top of the stack
+            int base = model.slotOffset[s];
+            int slots = model.servers[s];
+            for (int i = 0; i < slots; i++) {
+                this.freeSlots[base + i] = base + slots - 1 - i;
+            }
+            this.freeCount[s] = slots;
+        }
+
+        int g = model.getGeneratorCount();
+        this.arrivalCount = new PoissonGenr[g];
+        this.arrivalTime = new ExponentialGenr[g];
+        this.pendingArrivals = new int[g];
+        this.remainingArrivals = new int[g];
+        for (int i = 0; i < g; i++) {
+            this.arrivalCount[i] = new PoissonGenr();
+            this.arrivalCount[i].setEventRate(model.generatorRate[i]);
+            this.arrivalCount[i].setGenerator(streams.generatorFor(model.generatorNames[i], "arrivalCount"));
+            this.arrivalTime[i] = new ExponentialGenr();
+            this.arrivalTime[i].setEventRate(model.generatorRate[i]);
+            this.arrivalTime[i].setGenerator(streams.generatorFor(model.generatorNames[i], "arrivalTime"));
+        }
+        for (int i = 0; i < g; i++) {
+            this.remainingArrivals[i] = (int) this.arrivalCount[i].nextVariate();
+            if (this.remainingArrivals[i] > 0) {
+                scheduleNextArrival(i);
+            }
+        }
+    }
+
+    /**
+     * Runs until the end time, or until no events remain.
+     */
+    public void simulate() {
+        while (this.endTime > this.simTime && this.eventSize > 0) {
+            int target = this.eventTarget[0];
+            this.simTime = this.eventTime[0];
+            removeFirstEvent();
+            this.eventCount++;
+
+            if (target >= 0) {
+                completeJob(target);
+            } else {
+                arrive(-target - 1);
+            }
+        }
+    }
+
+    private void arrive(int generator) {
+        this.pendingArrivals[generator]--;
+        if (this.remainingArrivals[generator] > 0) {
+            scheduleNextArrival(generator);
+        }
+        int job = this.jobs.allocate();
+        this.jobs.setEntryTime(job, this.simTime);
+        addJob(this.model.generatorStation[generator], job);
+    }
+
+    private void scheduleNextArrival(int generator) {
+        this.remainingArrivals[generator]--;
+        this.pendingArrivals[generator]++;
+        schedule(this.simTime + this.arrivalTime[generator].nextVariate(), -generator - 1);
+    }
+
+    private void addJob(int station, int job) {
+        if (this.model.servers[station] < 0) {
+            this.absorbed[station]++;
+            this.statistics[station].jobAbsorbed(this.simTime, this.simTime - this.jobs.getEntryTime(job));
+            this.jobs.release(job);
+            return;
+        }
+
+        this.jobs.setArrivalTime(job, this.simTime);
+        int size = this.queueSize[station];
+        int[] ring = this.queue[station];
+        if (size == ring.length) {
+            ring = growQueue(station);
+        }
+        ring[(this.queueHead[station] + size) & (ring.length - 1)] = job;
+        this.queueSize[station] = size + 1;
+
+        if (this.busyCount[station] < this.model.servers[station]) {
+            startNextJob(station);
+        }
+        this.statistics[station].jobArrived(this.simTime, this.queueSize[station]);
+    }
+
+    private int[] growQueue(int station) {
+        int[] ring = this.queue[station];
+        int head = this.queueHead[station];
+        int[] grown = new int[ring.length * 2];
+        System.arraycopy(ring, head, grown, 0, ring.length - head);
+        System.arraycopy(ring, 0, grown, ring.length - head, head);
+        this.queue[station] = grown;
+        this.queueHead[station] = 0;
+        return grown;
+    }
+
+    private void startNextJob(int station) {
+        int size = this.queueSize[station];
+        if (size == 0) {
+            return;
+        }
+        int[] ring = this.queue[station];
+        int head = this.queueHead[station];
+        int job = ring[head];
+        this.queueHead[station] = (head + 1) & (ring.length - 1);
+        this.queueSize[station] = size - 1;
+
+        this.jobs.setStartTime(job, this.simTime);
+        int slot = this.freeSlots[this.model.slotOffset[station] + --this.freeCount[station]];
+        double service = nextServiceTime(station);
+        this.jobs.setEndTime(job, this.simTime + service);
+        this.slotJob[slot] = job;
+        this.busyCount[station]++;
+        schedule(this.simTime + service, slot);
+
+        this.statistics[station].jobStarted(this.simTime, this.simTime - this.jobs.getArrivalTime(job),
+                size - 1, this.busyCount[station]);
+    }
+
+    private double nextServiceTime(int station) {
+        int block = QueueStation.DEFAULT_SERVICE_TIME_BLOCK;
+        int base = station * block;
+        if (this.serviceTimePos[station] == block) {
+            this.serviceTime[station].nextVariates(this.serviceTimes, base, block);
+            this.serviceTimePos[station] = 0;
+        }
+        return this.serviceTimes[base + this.serviceTimePos[station]++];
+    }
+
+    private void completeJob(int slot) {
+        int station = this.model.slotStation[slot];
+        int job = this.slotJob[slot];
+        this.slotJob[slot] = -1;
+        this.freeSlots[this.model.slotOffset[station] + this.freeCount[station]++] = slot;
+        this.busyCount[station]--;
+
+        this.statistics[station].jobCompleted(this.simTime, this.jobs.getEndTime(job) - this.jobs.getStartTime(job),
+                this.simTime - this.jobs.getArrivalTime(job), this.busyCount[station]);
+
+        addJob(selectOutput(station), job);
+        startNextJob(station);
+    }
+
+    /**
+     * Selects an output station as RoutingTable.select would.
+     */
+    private int selectOutput(int station) {
+        FlatModel m = this.model;
+        int base = m.routeOffset[station];
+        int size = m.routeOffset[station + 1] - base;
+        RandomGenerator random = this.routing[station];
+
+        if (size <= RoutingTable.CUMULATIVE_LIMIT) {
+            double u = random.nextDouble();
+            int lo = base;
+            int hi = base + size - 1;
+
+            // first entry whose cumulative probability exceeds u
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (u < m.routeThreshold[mid]) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            return m.routeTarget[lo];
+        }
+
+        int column = (int) (random.nextDouble() * size);
+        if (column >= size) {
+            column = size - 1;
+        }
+        return (random.nextDouble() < m.routeThreshold[base + column])
+                ? m.routeTarget[base + column] : m.routeTarget[base + m.routeAlias[base + column]];
+    }
+
+    private void schedule(double time, int target) {
+        if (this.eventSize == this.eventTime.length) {
+            int capacity = this.eventSize * 2;
+            this.eventTime = Arrays.copyOf(this.eventTime, capacity);
+            this.eventSequence = Arrays.copyOf(this.eventSequence, capacity);
+            this.eventTarget = Arrays.copyOf(this.eventTarget, capacity);
+        }
+        long sequence = this.nextSequence++;
+
+        // sift the new event up from the last leaf
+        int child = this.eventSize++;
+        while (child > 0) {
+            int parent = (child - 1) >>> 1;
+            if (!precedes(time, sequence, parent)) {
+                break;
+            }
+            moveEvent(parent, child);
+            child = parent;
+        }
+        this.eventTime[child] = time;
+        this.eventSequence[child] = sequence;
+        this.eventTarget[child] = target;
+    }
+
+    private void removeFirstEvent() {
+        int last = --this.eventSize;
+        if (last == 0) {
+            return;
+        }
+        double time = this.eventTime[last];
+        long sequence = this.eventSequence[last];
+        int target = this.eventTarget[last];
+
+        // sift the last event down from the root
+        int parent = 0;
+        int half = last >>> 1;
+        while (parent < half) {
+            int child = (parent << 1) + 1;
+            int right = child + 1;
+            if (right < last && precedes(this.eventTime[right], this.eventSequence[right], child)) {
+                child = right;
+            }
+            if (!precedes(this.eventTime[child], this.eventSequence[child], time, sequence)) {
+                break;
+            }
+            moveEvent(child, parent);
+            parent = child;
+        }
+        this.eventTime[parent] = time;
+        this.eventSequence[parent] = sequence;
+        this.eventTarget[parent] = target;
+    }
+
+    private boolean precedes(double time, long sequence, int index) {
+        return precedes(time, sequence, this.eventTime[index], this.eventSequence[index]);
+    }
+
+    private static boolean precedes(double aTime, long aSequence, double bTime, long bSequence) {
+        return (aTime < bTime) || (aTime == bTime && aSequence < bSequence);
+    }
+
+    private void moveEvent(int from, int to) {
+        this.eventTime[to] = this.eventTime[from];
+        this.eventSequence[to] = this.eventSequence[from];
+        this.eventTarget[to] = this.eventTarget[from];
+    }
+
+    public double getSimTime() {
+        return this.simTime;
+    }
+
+    /**
+     * @return the number of events executed
+     */
+    public long getEventCount() {
+        return this.eventCount;
+    }
+
+    public StationStatistics getStatistics(int station) {
+        return this.statistics[station];
+    }
+
+    /**
+     * @return jobs queued or in service at a station
+     */
+    public int getJobsAt(int station) {
+        return this.queueSize[station] + this.busyCount[station];
+    }
+
+    /**
+     * @return jobs that have entered and not yet left the network
+     */
+    public int getJobsInSystem() {
+        return this.jobs.getLiveCount();
+    }
+
+    /**
+     * Copies the jobs queued at a station, in queue order, e.g. for
+     * debugging.
+     *
+     * @param station a station index
+     * @return copies of the queued jobs
+     */
+    public List<Job> getQueuedJobs(int station) {
+        int size = this.queueSize[station];
+        List<Job> queued = new ArrayList<>(size);
+        int[] ring = this.queue[station];
+        for (int i = 0; i < size; i++) {
+            queued.add(this.jobs.toJob(ring[(this.queueHead[station] + i) & (ring.length - 1)]));
+        }
+        return queued;
+    }
+
+    /**
+     * @return jobs absorbed by a transducer
+     */
+    public int getAbsorbedCount(int station) {
+        return this.absorbed[station];
+    }
+
+    /**
+     * Prints the statistics of every station, in model order.
+     *
+     * @param out the stream to print to
+     */
+    public void printResults(PrintStream out) {
+        for (StationStatistics station : this.statistics) {
+            station.report(out, this.simTime);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package simcomponents;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of the simulation engine, for correlating
+ * simulator hot spots with GC and CPU activity in JDK Mission Control. Every
+ * event is disabled unless a recording enables it, e.g. through
+ * SimFlightRecorder. The hot path checks the event types below before creating
+ * an event, so a disabled event costs a check of its enabled flag and nothing
+ * is allocated.
+ *
+ * @author Ryan Owens
+ */
+final class FlightEvents {
+    private static final String CATEGORY = "Telco Simulation";
+
+    static final EventType DISPATCH = EventType.getEventType(Dispatch.class);
+    static final EventType JOB_STARTED = EventType.getEventType(JobStarted.class);
+    static final EventType JOB_COMPLETED = EventType.getEventType(JobCompleted.class);
+
+    private FlightEvents() {
+    }
+
+    @Name("simcomponents.Dispatch")
+    @Label("Event Dispatch")
+    @Description("Execution of one simulation event by a component")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Dispatch extends Event {
+        @Label("Component")
+        String component;
+
+        @Label("Simulation Time")
+        double simTime;
+    }
+
+    @Name("simcomponents.JobStarted")
+    @Label("Job Started")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    static final class JobStarted extends Event {
+        @Label("Station")
+        String station;
+
+        @Label("Simulation Time")
+        double simTime;
+
+        @Label("Wait Time")
+        double waitTime;
+
+        @Label("Service Time")
+        double serviceTime;
+
+        @Label("Busy Servers")
+        int busyServers;
+
+        @Label("Queue Length")
+        int queueLength;
+    }
+
+    @Name("simcomponents.JobCompleted")
+    @Label("Job Completed")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    static final class JobCompleted extends Event {
+        @Label("Station")
+        String station;
+
+        @Label("Simulation Time")
+        double simTime;
+
+        @Label("Sojourn Time")
+        double sojournTime;
+
+        @Label("Next Station")
+        String nextStation;
+    }
+
+    @Name("simcomponents.EventListSample")
+    @Label("Event List Sample")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    @Period("1 s")
+    static final class EventListSample extends Event {
+        @Label("Simulation Time")
+        double simTime;
+
+        @Label("Scheduled Events")
+        int scheduledEvents;
+
+        @Label("Dispatched Events")
+        long dispatchedEvents;
+    }
+
+    @Name("simcomponents.QueueDepthSample")
+    @Label("Queue Depth Sample")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    @Period("1 s")
+    static final class QueueDepthSample extends Event {
+        @Label("Station")
+        String station;
+
+        @Label("Queue Length")
+        int queueLength;
+
+        @Label("Busy Servers")
+        int busyServers;
+    }
+}
@@ -0,0 +1,38 @@
+package simcomponents;
+
+/**
+ * Pending event set used by the simulation engine. Implementations order events
+ * by their (absolute) event time, using the scheduling sequence to break ties so
+ * that every implementation produces the same execution order.
+ *
+ * @author Ryan Owens
+ */
+public interface FutureEventList {
+
+    /**
+     * Adds an event whose time has already been converted to simulation time.
+     *
+     * @param event the event to schedule
+     */
+    void add(SimEvent event);
+
+    /**
+     * Removes and returns the earliest event.
+     *
+     * @return the earliest event, or null if the list is empty
+     */
+    SimEvent poll();
+
+    /**
+     * Returns the earliest event without removing it.
+     *
+     * @return the earliest event, or null if the list is empty
+     */
+    SimEvent peek();
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -25,10 +25,12 @@
  */
 package simcomponents;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import randomgenr.ExponentialGenr;
 import randomgenr.PoissonGenr;
+import randomgenr.RandomStreams;
+import simtrace.Tracer;
 
 /**
  * Produces the external events (job arrivals) into the system.
@@ -38,10 +40,14 @@ public class Generator implements Simulatable {
     private final String name;
     private final PoissonGenr arrivalGenr;
     private final ExponentialGenr arrivalTimeGenr;
-    private final LinkedList<SimEvent> arrivalEvents;
     private final ArrayList<EventObserver> observers;
     private QueueStation queueStation;
+    private SimEngine engine;
+    private int pendingArrivals = 0;     // arrivals scheduled but not yet sent
+    private int remainingArrivals = 0;   // arrivals not yet scheduled (streaming)
     private int eventCount = 0;
+    private double nextArrivalTime = Double.POSITIVE_INFINITY;  // time of the pending arrival (streaming)
+    private boolean streaming = true;
     
     /**
      * Constructor. Calculates all arrivals *in one unit time* using a Poisson
@@ -57,7 +63,6 @@ public class Generator implements Simulatable {
         this.arrivalGenr.setEventRate(rate);
         this.arrivalTimeGenr = new ExponentialGenr();
         this.arrivalTimeGenr.setEventRate(rate);
-        this.arrivalEvents = new LinkedList<>();
         this.observers = new ArrayList<>();
         this.queueStation = null;
     }
@@ -68,11 +73,16 @@ public class Generator implements Simulatable {
     @Override
     public void execute(double simTime) {
         // provide the queue station with its input
-        if (this.queueStation == null || this.arrivalEvents.isEmpty()) {
-            System.out.printf("  Generator: No jobs to send.%n");
+        if (this.queueStation == null || this.pendingArrivals == 0) {
+            tracer().generatorIdle(this.name, simTime);
         } 
         else {
-            Job j = new Job();
+            this.pendingArrivals--;
+            if (this.remainingArrivals > 0) {
+                scheduleNextArrival();
+            }
+            Job j = (this.engine != null) ? this.engine.obtainJob() : new Job();
+            j.setEntryTime(simTime);
             //j.setStartTime(simTime);
             this.queueStation.addJob(j, simTime);
            // System.out.printf("  Generator: Sent job " + this.jobCount + " to " + this.queueStation.getName() + ".%n");
@@ -85,12 +95,23 @@ public class Generator implements Simulatable {
     }
     
     /**
-     * Establish arrivals and time for each arrival.
+     * Establish arrivals and time for each arrival. In streaming mode only the
+     * first arrival is scheduled; each arrival schedules the one after it, so
+     * the event list holds at most one arrival at a time.
      */
     public void initialize() {
         // calculate the number of arrivals in the unit time
         int numArrivalsWithinUnitTime = (int) (this.arrivalGenr.nextVariate());
         
+        if (this.streaming) {
+            this.remainingArrivals = numArrivalsWithinUnitTime;
+            if (this.remainingArrivals > 0) {
+                scheduleNextArrival();
+            }
+            tracer().arrivalsCreated(this.name, 0.0, numArrivalsWithinUnitTime);
+            return;
+        }
+        
         // calculate the times of the arrivals
         double currentTime = 0.0;
         double arrivalTime;
@@ -98,38 +119,185 @@ public class Generator implements Simulatable {
             arrivalTime = this.arrivalTimeGenr.nextVariate();
             currentTime += arrivalTime;
             this.eventCount++;
-            SimEvent newEvent = new SimEvent(this, currentTime);
-            this.arrivalEvents.add(newEvent);
-            notifyObservers(newEvent);
+            this.pendingArrivals++;
+            notifyObservers(currentTime);
         }
         
-        System.out.printf("Generator: %d job(s) created.\n",
-                numArrivalsWithinUnitTime);
+        tracer().arrivalsCreated(this.name, 0.0, numArrivalsWithinUnitTime);
     }
 
     @Override
     public void register(EventObserver observer) {
         this.observers.add(observer);
+        
+        if (observer instanceof SimEngine) {
+            this.engine = (SimEngine) observer;
+            setRandomStreams(this.engine.getRandomStreams());
+        }
     }
 
+    /**
+     * Selects whether arrivals are scheduled one at a time as the simulation
+     * runs (the default) or all at once by initialize. Both modes draw the same
+     * arrival times.
+     * 
+     * @param streaming true to schedule arrivals one at a time
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+    
+    public boolean isStreaming() {
+        return this.streaming;
+    }
+    
     public void setQueueStation(QueueStation station) {
         this.queueStation = station;
     }
     
+    QueueStation getQueueStation() {
+        return this.queueStation;
+    }
+    
+    /**
+     * Moves this generator to another engine without reseeding its streams.
+     * 
+     * @param newEngine the engine that will execute the arrivals
+     */
+    void rebind(SimEngine newEngine) {
+        this.observers.removeIf(observer -> observer instanceof SimEngine);
+        this.observers.add(newEngine);
+        this.engine = newEngine;
+    }
+    
+    /**
+     * Saves the arrival counts and the position of the random streams.
+     * Pending arrivals are not part of the state; a generator that does not
+     * stream its arrivals can have any number of them.
+     * 
+     * @return the saved state
+     */
+    State saveState() {
+        State state = new State();
+        state.pendingArrivals = this.pendingArrivals;
+        state.remainingArrivals = this.remainingArrivals;
+        state.eventCount = this.eventCount;
+        state.nextArrivalTime = this.nextArrivalTime;
+        state.countRandom = RandomState.save(this.arrivalGenr);
+        state.timeRandom = RandomState.save(this.arrivalTimeGenr);
+        return state;
+    }
+    
+    /**
+     * Returns to a saved state. The pending arrival is not rescheduled; see
+     * scheduleArrival.
+     * 
+     * @param state a state returned by saveState
+     */
+    void restoreState(State state) {
+        this.pendingArrivals = state.pendingArrivals;
+        this.remainingArrivals = state.remainingArrivals;
+        this.eventCount = state.eventCount;
+        this.nextArrivalTime = state.nextArrivalTime;
+        RandomState.restore(this.arrivalGenr, state.countRandom);
+        RandomState.restore(this.arrivalTimeGenr, state.timeRandom);
+    }
+    
+    /**
+     * Schedules the pending arrival of a streaming generator, if any, e.g. on
+     * an engine whose events were discarded after restoring a saved state.
+     * 
+     * @param target the engine to schedule on
+     */
+    void scheduleArrival(SimEngine target) {
+        if (this.pendingArrivals > 0) {
+            target.enqueue(new SimEvent(this, this.nextArrivalTime));
+        }
+    }
+    
     public void setRandomSeed(long seed) {
         this.arrivalGenr.setSeed(seed);
         this.arrivalTimeGenr.setSeed(seed);
     }
     
+    /**
+     * Gives the arrival count and arrival time generators separate streams.
+     * 
+     * @param streams the run's random streams
+     */
+    public void setRandomStreams(RandomStreams streams) {
+        this.arrivalGenr.setGenerator(streams.generatorFor(this.name, "arrivalCount"));
+        this.arrivalTimeGenr.setGenerator(streams.generatorFor(this.name, "arrivalTime"));
+    }
+    
     @Override
     public void unregister(EventObserver observer) {
         this.observers.remove(observer);
     }
     
-    private void notifyObservers(SimEvent event) {
+    private Tracer tracer() {
+        return (this.engine != null) ? this.engine.getTracer() : Tracer.OFF;
+    }
+    
+    private void scheduleNextArrival() {
+        this.remainingArrivals--;
+        this.eventCount++;
+        this.pendingArrivals++;
+        double delay = this.arrivalTimeGenr.nextVariate();
+        this.nextArrivalTime = ((this.engine != null) ? this.engine.getSimTime() : 0.0) + delay;
+        notifyObservers(delay);
+    }
+    
+    private void notifyObservers(double eventTime) {
         for (EventObserver observer : this.observers) {
-            observer.notify(event);
+            observer.notify(this, eventTime);
         }
     }
     
+    /**
+     * A saved copy of a generator's state, used to roll back optimistic
+     * execution.
+     */
+    static class State {
+        private int pendingArrivals;
+        private int remainingArrivals;
+        private int eventCount;
+        private double nextArrivalTime;
+        private long[] countRandom;
+        private long[] timeRandom;
+        
+        /** Number of bytes written by writeTo. */
+        static final int BYTES = 3 * Integer.BYTES + Double.BYTES + 8 * Long.BYTES;
+        
+        /**
+         * Writes the state in a compact binary form, e.g. to a checkpoint.
+         */
+        void writeTo(ByteBuffer buffer) {
+            buffer.putInt(this.pendingArrivals).putInt(this.remainingArrivals).putInt(this.eventCount);
+            buffer.putDouble(this.nextArrivalTime);
+            for (int i = 0; i < 4; i++) {
+                buffer.putLong(this.countRandom[i]);
+            }
+            for (int i = 0; i < 4; i++) {
+                buffer.putLong(this.timeRandom[i]);
+            }
+        }
+        
+        static State readFrom(ByteBuffer buffer) {
+            State state = new State();
+            state.pendingArrivals = buffer.getInt();
+            state.remainingArrivals = buffer.getInt();
+            state.eventCount = buffer.getInt();
+            state.nextArrivalTime = buffer.getDouble();
+            state.countRandom = new long[4];
+            for (int i = 0; i < 4; i++) {
+                state.countRandom[i] = buffer.getLong();
+            }
+            state.timeRandom = new long[4];
+            for (int i = 0; i < 4; i++) {
+                state.timeRandom[i] = buffer.getLong();
+            }
+            return state;
+        }
+    }
 }
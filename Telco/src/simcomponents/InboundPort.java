@@ -0,0 +1,42 @@
+package simcomponents;
+
+/**
+ * Receives jobs sent to a queue station from another logical process, adding
+ * each to the station at its timestamp.
+ *
+ * @author Ryan Owens
+ */
+final class InboundPort implements Simulatable {
+    private final QueueStation station;
+
+    InboundPort(QueueStation station) {
+        this.station = station;
+    }
+
+    @Override
+    public void execute(SimEvent event) {
+        receive(event.getJob(), event.getEventTime());
+    }
+
+    void receive(Job job, double time) {
+        this.station.addJob(job, time);
+    }
+
+    @Override
+    public void execute(double simTime) {
+        throw new UnsupportedOperationException("An inbound port needs the job of its event.");
+    }
+
+    @Override
+    public String getName() {
+        return this.station.getName();
+    }
+
+    @Override
+    public void register(EventObserver observer) {
+    }
+
+    @Override
+    public void unregister(EventObserver observer) {
+    }
+}
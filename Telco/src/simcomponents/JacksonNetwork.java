@@ -0,0 +1,428 @@
+package simcomponents;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import randomgenr.Distribution;
+import randomgenr.ExponentialGenr;
+
+/**
+ * Solves a queueing network analytically instead of simulating it, treating
+ * it as an open Jackson network: Poisson arrivals, probabilistic routing and
+ * an M/M/c queue at every station. The traffic equations are solved once when
+ * the network is created; each solution then costs one Erlang C evaluation per
+ * station, so thousands of staffing configurations can be screened before the
+ * promising ones are simulated.
+ *
+ * The results are exact in steady state when every station's service times
+ * are exponential. Other service time distributions are replaced by an
+ * exponential distribution with the same mean, which makes the solution an
+ * approximation; see Solution.isProductForm. Each generator is taken to be
+ * a Poisson stream at its rate that never stops. Times are in the model's
+ * time unit, e.g. hours.
+ *
+ * @author Ryan Owens
+ */
+public final class JacksonNetwork {
+    private final String[] names;
+    private final int[] servers;           // -1 for a transducer
+    private final double[] serviceRate;    // per server
+    private final double[] arrivalRate;    // total arrivals, solved from the traffic equations
+    private final double externalRate;
+    private final boolean productForm;
+
+    private JacksonNetwork(String[] names, int[] servers, double[] serviceRate, double[] externalArrivals,
+            double[][] routing, boolean productForm) {
+        this.names = names;
+        this.servers = servers;
+        this.serviceRate = serviceRate;
+        this.productForm = productForm;
+
+        double external = 0.0;
+        for (double rate : externalArrivals) {
+            external += rate;
+        }
+        this.externalRate = external;
+        this.arrivalRate = solveTrafficEquations(names, externalArrivals, routing);
+    }
+
+    /**
+     * Creates the network described by a topology, with its generators as the
+     * external arrivals.
+     *
+     * @param topology the topology
+     * @return the network
+     * @throws IllegalArgumentException if jobs can circulate forever without
+     *         leaving the network
+     */
+    public static JacksonNetwork of(Topology topology) {
+        FlatModel model = topology.compile();
+        int n = model.getStationCount();
+
+        double[] arrivals = new double[n];
+        for (int g = 0; g < model.getGeneratorCount(); g++) {
+            arrivals[model.generatorStation[g]] += model.generatorRate[g];
+        }
+
+        double[] serviceRate = new double[n];
+        boolean productForm = true;
+        for (int s = 0; s < n; s++) {
+            if (model.servers[s] >= 0) {
+                Distribution serviceTime = model.serviceTimes.get(s).get();
+                serviceRate[s] = 1.0 / serviceTime.getMean();
+                productForm &= serviceTime instanceof ExponentialGenr;
+            }
+        }
+        return new JacksonNetwork(model.names.clone(), model.servers.clone(), serviceRate, arrivals,
+                topology.routingMatrix(), productForm);
+    }
+
+    /**
+     * Creates the network of stations built by a model, e.g. BasicSimSystem,
+     * whose jobs all arrive at one station.
+     *
+     * @param stations every station and transducer of the network
+     * @param entry the station jobs arrive at
+     * @param arrivalRate mean arrivals per unit time
+     * @return the network
+     * @throws IllegalArgumentException if a station routes to one that is not
+     *         listed, or jobs can circulate forever without leaving the network
+     */
+    public static JacksonNetwork of(List<QueueStation> stations, QueueStation entry, double arrivalRate) {
+        double[] arrivals = new double[stations.size()];
+        int index = stations.indexOf(entry);
+        if (index < 0) {
+            throw new IllegalArgumentException("The entry station " + entry.getName() + " is not listed.");
+        }
+        arrivals[index] = arrivalRate;
+        return of(stations, arrivals);
+    }
+
+    private static JacksonNetwork of(List<QueueStation> stations, double[] externalArrivals) {
+        int n = stations.size();
+        Map<QueueStation, Integer> index = new IdentityHashMap<>();
+        for (int s = 0; s < n; s++) {
+            index.put(stations.get(s), s);
+        }
+
+        String[] names = new String[n];
+        int[] servers = new int[n];
+        double[] serviceRate = new double[n];
+        double[][] routing = new double[n][n];
+        boolean productForm = true;
+
+        for (int s = 0; s < n; s++) {
+            QueueStation station = stations.get(s);
+            names[s] = station.getName();
+            if (station instanceof Transducer) {
+                servers[s] = -1;
+                continue;
+            }
+
+            servers[s] = station.getNumServers();
+            Distribution serviceTime = station.getServiceTimeDistribution();
+            serviceRate[s] = 1.0 / serviceTime.getMean();
+            productForm &= serviceTime instanceof ExponentialGenr;
+
+            RoutingTable table = station.getRoutingTable();
+            for (int r = 0; r < table.size(); r++) {
+                Integer target = index.get(table.getStation(r));
+                if (target == null) {
+                    throw new IllegalArgumentException(names[s] + " routes to " + table.getStation(r).getName()
+                            + ", which is not listed.");
+                }
+                routing[s][target] += table.getProbability(r);
+            }
+        }
+        return new JacksonNetwork(names, servers, serviceRate, externalArrivals, routing, productForm);
+    }
+
+    /**
+     * Solves lambda = gamma + lambda P for the total arrival rate at every
+     * station, by Gaussian elimination with partial pivoting.
+     */
+    private static double[] solveTrafficEquations(String[] names, double[] external, double[][] routing) {
+        int n = names.length;
+        double[][] a = new double[n][n + 1];
+
+        // row j: lambda_j - sum_i lambda_i p_ij = gamma_j
+        for (int j = 0; j < n; j++) {
+            for (int i = 0; i < n; i++) {
+                a[j][i] = ((i == j) ? 1.0 : 0.0) - routing[i][j];
+            }
+            a[j][n] = external[j];
+        }
+
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < n; row++) {
+                if (Math.abs(a[row][col]) > Math.abs(a[pivot][col])) {
+                    pivot = row;
+                }
+            }
+            if (Math.abs(a[pivot][col]) < 1e-12) {
+                throw new IllegalArgumentException("Jobs at " + names[col] + " can never leave the network.");
+            }
+            double[] swap = a[col];
+            a[col] = a[pivot];
+            a[pivot] = swap;
+
+            for (int row = col + 1; row < n; row++) {
+                double factor = a[row][col] / a[col][col];
+                if (factor != 0.0) {
+                    for (int k = col; k <= n; k++) {
+                        a[row][k] -= factor * a[col][k];
+                    }
+                }
+            }
+        }
+
+        double[] rates = new double[n];
+        for (int row = n - 1; row >= 0; row--) {
+            double sum = a[row][n];
+            for (int k = row + 1; k < n; k++) {
+                sum -= a[row][k] * rates[k];
+            }
+            rates[row] = sum / a[row][row];
+        }
+        return rates;
+    }
+
+    public int getStationCount() {
+        return this.names.length;
+    }
+
+    public String getStationName(int station) {
+        return this.names[station];
+    }
+
+    /**
+     * @param station a station index, in the order the stations were given
+     * @return the station's servers, or -1 for a transducer
+     */
+    public int getServers(int station) {
+        return this.servers[station];
+    }
+
+    /**
+     * @param station a station index
+     * @return the mean rate at which jobs arrive at the station, from outside
+     *         the network and from other stations
+     */
+    public double getArrivalRate(int station) {
+        return this.arrivalRate[station];
+    }
+
+    /**
+     * Solves the network with the servers it was created with.
+     *
+     * @return the solution
+     */
+    public Solution solve() {
+        return solve(this.servers);
+    }
+
+    /**
+     * Solves the network with other numbers of servers; routing, arrival and
+     * service rates are unchanged.
+     *
+     * @param staffing servers at each station, indexed like the stations;
+     *        ignored for transducers
+     * @return the solution
+     */
+    public Solution solve(int[] staffing) {
+        if (staffing.length != this.names.length) {
+            throw new IllegalArgumentException("Expected servers for " + this.names.length + " stations.");
+        }
+
+        Solution solution = new Solution(this);
+        double inSystem = 0.0;
+        for (int s = 0; s < this.names.length; s++) {
+            if (this.servers[s] >= 0) {
+                solution.servers[s] = staffing[s];
+                inSystem += solveStation(s, staffing[s], solution);
+            }
+        }
+        solution.networkResponseTime = (this.externalRate > 0.0) ? inSystem / this.externalRate : 0.0;
+        return solution;
+    }
+
+    /**
+     * Applies the M/M/c formulas to one station.
+     *
+     * @return the mean number of jobs at the station
+     */
+    private double solveStation(int s, int c, Solution solution) {
+        double lambda = this.arrivalRate[s];
+        double mu = this.serviceRate[s];
+        double offered = lambda / mu;
+        double rho = (c > 0) ? offered / c : Double.POSITIVE_INFINITY;
+
+        if (lambda <= 0.0) {
+            solution.utilization[s] = 0.0;
+            solution.waitTime[s] = 0.0;
+            solution.responseTime[s] = 1.0 / mu;
+            return 0.0;
+        }
+        solution.utilization[s] = rho;
+        if (!(rho < 1.0)) {
+            solution.stable[s] = false;
+            solution.waitProbability[s] = 1.0;
+            solution.queueLength[s] = Double.POSITIVE_INFINITY;
+            solution.waitTime[s] = Double.POSITIVE_INFINITY;
+            solution.responseTime[s] = Double.POSITIVE_INFINITY;
+            return Double.POSITIVE_INFINITY;
+        }
+
+        // Erlang B by its recurrence, then Erlang C, the probability of waiting
+        double erlangB = 1.0;
+        for (int k = 1; k <= c; k++) {
+            erlangB = offered * erlangB / (k + offered * erlangB);
+        }
+        double erlangC = erlangB / (1.0 - rho * (1.0 - erlangB));
+
+        solution.waitProbability[s] = erlangC;
+        solution.queueLength[s] = erlangC * rho / (1.0 - rho);
+        solution.waitTime[s] = solution.queueLength[s] / lambda;
+        solution.responseTime[s] = solution.waitTime[s] + 1.0 / mu;
+        return lambda * solution.responseTime[s];
+    }
+
+    /**
+     * The steady state of a network with one choice of servers.
+     */
+    public static final class Solution {
+        private final JacksonNetwork network;
+        private final int[] servers;
+        private final boolean[] stable;
+        private final double[] utilization;
+        private final double[] waitProbability;
+        private final double[] queueLength;
+        private final double[] waitTime;
+        private final double[] responseTime;
+        private double networkResponseTime;
+
+        Solution(JacksonNetwork network) {
+            int n = network.names.length;
+            this.network = network;
+            this.servers = network.servers.clone();
+            this.stable = new boolean[n];
+            Arrays.fill(this.stable, true);
+            this.utilization = new double[n];
+            this.waitProbability = new double[n];
+            this.queueLength = new double[n];
+            this.waitTime = new double[n];
+            this.responseTime = new double[n];
+        }
+
+        /**
+         * @return true if every station's service times are exponential, so
+         *         the solution is exact rather than an approximation
+         */
+        public boolean isProductForm() {
+            return this.network.productForm;
+        }
+
+        /**
+         * @return true if every station can keep up with its arrivals
+         */
+        public boolean isStable() {
+            return getUnstableStations().isEmpty();
+        }
+
+        /**
+         * @return the names of the stations whose arrivals meet or exceed
+         *         their capacity, whose queues grow without bound
+         */
+        public List<String> getUnstableStations() {
+            List<String> unstable = new ArrayList<>();
+            for (int s = 0; s < this.stable.length; s++) {
+                if (!this.stable[s]) {
+                    unstable.add(this.network.names[s]);
+                }
+            }
+            return unstable;
+        }
+
+        public boolean isStable(int station) {
+            return this.stable[station];
+        }
+
+        public int getServers(int station) {
+            return this.servers[station];
+        }
+
+        public double getArrivalRate(int station) {
+            return this.network.arrivalRate[station];
+        }
+
+        /**
+         * @return the fraction of the station's servers that are busy; 1 or
+         *         more for an unstable station
+         */
+        public double getUtilization(int station) {
+            return this.utilization[station];
+        }
+
+        /**
+         * @return the probability that an arriving job has to queue
+         */
+        public double getWaitProbability(int station) {
+            return this.waitProbability[station];
+        }
+
+        /**
+         * @return the mean number of jobs queued, not in service
+         */
+        public double getMeanQueueLength(int station) {
+            return this.queueLength[station];
+        }
+
+        public double getMeanWaitTime(int station) {
+            return this.waitTime[station];
+        }
+
+        /**
+         * @return the mean time from arrival at the station to departure
+         */
+        public double getMeanResponseTime(int station) {
+            return this.responseTime[station];
+        }
+
+        /**
+         * @return the mean time a job spends in the network, from entering it
+         *         to leaving it
+         */
+        public double getNetworkResponseTime() {
+            return this.networkResponseTime;
+        }
+
+        /**
+         * Writes the solution of every station.
+         *
+         * @param out stream to write to
+         */
+        public void report(PrintStream out) {
+            out.printf("Analytical solution (%s)%n", isProductForm()
+                    ? "exact" : "approximate: not every station has exponential service");
+            for (int s = 0; s < this.stable.length; s++) {
+                String name = this.network.names[s];
+                if (this.network.servers[s] < 0) {
+                    out.printf("%s: throughput %.4f%n", name, getArrivalRate(s));
+                    continue;
+                }
+                out.printf("%s: arrival rate %.4f%s%n", name, getArrivalRate(s), this.stable[s] ? "" : ", UNSTABLE");
+                out.printf("\tutilization %.4f of %d server(s), P(wait) %.4f%n", this.utilization[s],
+                        this.servers[s], this.waitProbability[s]);
+                out.printf("\tqueue    mean %.4f%n", this.queueLength[s]);
+                out.printf("\twait     mean %.4f%n", this.waitTime[s]);
+                out.printf("\tresponse mean %.4f%n", this.responseTime[s]);
+            }
+            out.printf("Network response time %.4f%n", this.networkResponseTime);
+        }
+    }
+}
@@ -35,12 +35,25 @@ public class Job {
     private double startTime;
     private double endTime;
     private double arrivalTime;
+    private double entryTime;       // when the job entered the system
     private int ID;
     
     public Job() {
         this.startTime = Double.NEGATIVE_INFINITY;
         this.endTime = Double.NEGATIVE_INFINITY;
         this.arrivalTime = Double.NEGATIVE_INFINITY;
+        this.entryTime = Double.NEGATIVE_INFINITY;
+        this.ID = -1;
+    }
+
+    /**
+     * Clears the recorded times so that a pooled job can be reused.
+     */
+    void reset() {
+        this.startTime = Double.NEGATIVE_INFINITY;
+        this.endTime = Double.NEGATIVE_INFINITY;
+        this.arrivalTime = Double.NEGATIVE_INFINITY;
+        this.entryTime = Double.NEGATIVE_INFINITY;
         this.ID = -1;
     }
 
@@ -50,6 +63,8 @@ public class Job {
         j.setArrivalTime(this.arrivalTime);
         j.setStartTime(this.startTime);
         j.setEndTime(this.endTime);
+        j.setEntryTime(this.entryTime);
+        j.setId(this.ID);
         return j;
     }
     
@@ -71,5 +86,16 @@ public class Job {
 
     public void setArrivalTime(double arrival) { this.arrivalTime = arrival;}
 
+    public double getEntryTime() { return this.entryTime; }
+
+    public void setEntryTime(double entry) { this.entryTime = entry; }
+
+    /**
+     * @return the job's number within its run, or -1 if it was not numbered
+     */
+    public int getId() { return this.ID; }
+
+    public void setId(int id) { this.ID = id; }
+
 
 }
@@ -0,0 +1,19 @@
+package simcomponents;
+
+/**
+ * Carries jobs that leave one logical process of a parallel simulation to a
+ * station of another.
+ *
+ * @author Ryan Owens
+ */
+interface JobLink {
+
+    /**
+     * Sends a job to a station of the receiving process.
+     *
+     * @param time time at which the job arrives
+     * @param port the receiving station's port
+     * @param job the job
+     */
+    void send(double time, InboundPort port, Job job);
+}
@@ -0,0 +1,141 @@
+package simcomponents;
+
+import java.util.Arrays;
+
+/**
+ * The jobs of a run stored as parallel arrays of their recorded times, indexed
+ * by an int id, so that queues and server slots hold ids instead of Job
+ * objects. A job takes 36 bytes (four doubles and a free-list link), against
+ * about 56 for a Job object and the reference to it, and reading a job's
+ * times does not follow a pointer.
+ *
+ * Released ids are kept on a free list threaded through the link array and
+ * reused before the table grows, so its size follows the number of jobs in
+ * the system at once. Not thread-safe; each run owns its own table.
+ *
+ * @author Ryan Owens
+ */
+final class JobTable {
+    private static final int NONE = -1;
+
+    private double[] entryTime;
+    private double[] arrivalTime;
+    private double[] startTime;
+    private double[] endTime;
+    private int[] nextFree;
+    private int freeHead = NONE;
+    private int used = 0;           // ids ever handed out
+    private int live = 0;
+
+    JobTable(int initialCapacity) {
+        int capacity = Math.max(2, initialCapacity);
+        this.entryTime = new double[capacity];
+        this.arrivalTime = new double[capacity];
+        this.startTime = new double[capacity];
+        this.endTime = new double[capacity];
+        this.nextFree = new int[capacity];
+    }
+
+    /**
+     * Creates a job with no recorded times, reusing a released id if any.
+     *
+     * @return the id of the job
+     */
+    int allocate() {
+        int id = this.freeHead;
+
+        if (id != NONE) {
+            this.freeHead = this.nextFree[id];
+        } else {
+            if (this.used == this.entryTime.length) {
+                grow();
+            }
+            id = this.used++;
+        }
+        this.entryTime[id] = Double.NEGATIVE_INFINITY;
+        this.arrivalTime[id] = Double.NEGATIVE_INFINITY;
+        this.startTime[id] = Double.NEGATIVE_INFINITY;
+        this.endTime[id] = Double.NEGATIVE_INFINITY;
+        this.nextFree[id] = NONE;
+        this.live++;
+        return id;
+    }
+
+    /**
+     * Returns a job's id for reuse. The caller must no longer use it.
+     *
+     * @param id the id of a live job
+     */
+    void release(int id) {
+        this.nextFree[id] = this.freeHead;
+        this.freeHead = id;
+        this.live--;
+    }
+
+    private void grow() {
+        int capacity = this.entryTime.length * 2;
+        this.entryTime = Arrays.copyOf(this.entryTime, capacity);
+        this.arrivalTime = Arrays.copyOf(this.arrivalTime, capacity);
+        this.startTime = Arrays.copyOf(this.startTime, capacity);
+        this.endTime = Arrays.copyOf(this.endTime, capacity);
+        this.nextFree = Arrays.copyOf(this.nextFree, capacity);
+    }
+
+    double getEntryTime(int id) {
+        return this.entryTime[id];
+    }
+
+    void setEntryTime(int id, double time) {
+        this.entryTime[id] = time;
+    }
+
+    double getArrivalTime(int id) {
+        return this.arrivalTime[id];
+    }
+
+    void setArrivalTime(int id, double time) {
+        this.arrivalTime[id] = time;
+    }
+
+    double getStartTime(int id) {
+        return this.startTime[id];
+    }
+
+    void setStartTime(int id, double time) {
+        this.startTime[id] = time;
+    }
+
+    double getEndTime(int id) {
+        return this.endTime[id];
+    }
+
+    void setEndTime(int id, double time) {
+        this.endTime[id] = time;
+    }
+
+    /**
+     * @return jobs allocated and not yet released
+     */
+    int getLiveCount() {
+        return this.live;
+    }
+
+    /**
+     * @return the number of jobs the table can hold without growing
+     */
+    int getCapacity() {
+        return this.entryTime.length;
+    }
+
+    /**
+     * Copies a job into a Job object, e.g. for reporting.
+     */
+    Job toJob(int id) {
+        Job job = new Job();
+        job.setEntryTime(this.entryTime[id]);
+        job.setArrivalTime(this.arrivalTime[id]);
+        job.setStartTime(this.startTime[id]);
+        job.setEndTime(this.endTime[id]);
+        return job;
+    }
+}
@@ -0,0 +1,263 @@
+package simcomponents;
+
+/**
+ * Ladder queue (Tang, Goh and Thng, 2005). Far-future events are appended,
+ * unsorted, to the Top list. When the near future is needed, Top is spread over
+ * a rung of buckets; crowded buckets are spread over finer child rungs, and only
+ * the first small bucket is ever sorted into the Bottom list. Both enqueue and
+ * dequeue are O(1) amortized, independent of the event time distribution.
+ *
+ * @author Ryan Owens
+ */
+public class LadderQueueEventList implements FutureEventList {
+    private static final int THRESHOLD = 50;    // largest bucket sorted into Bottom
+    private static final int MAX_RUNGS = 8;
+
+    // Top: unsorted events at or after topStart
+    private SimEvent top;
+    private int topCount;
+    private double topMin;
+    private double topMax;
+    private double topStart;
+
+    // Rungs: rung 0 is the coarsest, rung (numRungs - 1) the finest
+    private final SimEvent[][] rungBuckets = new SimEvent[MAX_RUNGS][];
+    private final int[][] rungCounts = new int[MAX_RUNGS][];
+    private final double[] rungStart = new double[MAX_RUNGS];
+    private final double[] rungWidth = new double[MAX_RUNGS];
+    private final int[] rungSize = new int[MAX_RUNGS];          // buckets in use
+    private final int[] rungCurrent = new int[MAX_RUNGS];       // first unconsumed bucket
+    private int numRungs;
+
+    // Bottom: sorted events, all earlier than anything on the rungs
+    private SimEvent bottom;
+
+    private int size;
+
+    public LadderQueueEventList() {
+        this.topStart = Double.NEGATIVE_INFINITY;
+        resetTopBounds();
+    }
+
+    @Override
+    public void add(SimEvent event) {
+        double time = event.getEventTime();
+        this.size++;
+
+        if (time >= this.topStart) {
+            event.next = this.top;
+            this.top = event;
+            this.topCount++;
+            if (time < this.topMin) {
+                this.topMin = time;
+            }
+            if (time > this.topMax) {
+                this.topMax = time;
+            }
+            return;
+        }
+
+        // find the coarsest rung whose unconsumed range covers the event
+        for (int r = 0; r < this.numRungs; r++) {
+            if (time >= currentBucketStart(r)) {
+                addToRung(r, event);
+                return;
+            }
+        }
+
+        insertBottom(event);
+    }
+
+    @Override
+    public SimEvent poll() {
+        if (!prepareBottom()) {
+            return null;
+        }
+
+        SimEvent first = this.bottom;
+        this.bottom = first.next;
+        first.next = null;
+        this.size--;
+
+        return first;
+    }
+
+    @Override
+    public SimEvent peek() {
+        return prepareBottom() ? this.bottom : null;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Ensures the Bottom list holds the earliest events, spreading Top and
+     * crowded buckets over new rungs as needed.
+     *
+     * @return false if the queue is empty
+     */
+    private boolean prepareBottom() {
+        if (this.bottom != null) {
+            return true;
+        }
+        if (this.size == 0) {
+            return false;
+        }
+
+        if (this.numRungs == 0) {
+            spreadTop();
+        }
+
+        while (this.bottom == null) {
+            int r = this.numRungs - 1;
+
+            if (r < 0) {
+                // every rung has been consumed; the rest of the events are in Top
+                spreadTop();
+                continue;
+            }
+
+            // advance to the next non-empty bucket on the finest rung
+            int b = this.rungCurrent[r];
+            while (b < this.rungSize[r] && this.rungCounts[r][b] == 0) {
+                b++;
+            }
+            this.rungCurrent[r] = b;
+
+            if (b == this.rungSize[r]) {
+                this.numRungs--;
+                continue;
+            }
+
+            SimEvent bucket = this.rungBuckets[r][b];
+            int count = this.rungCounts[r][b];
+            this.rungBuckets[r][b] = null;
+            this.rungCounts[r][b] = 0;
+            this.rungCurrent[r] = b + 1;
+
+            if (count > THRESHOLD && this.numRungs < MAX_RUNGS && !sameTime(bucket)) {
+                spawnRung(bucket, count, this.rungStart[r] + b * this.rungWidth[r], this.rungWidth[r]);
+            } else {
+                while (bucket != null) {
+                    SimEvent next = bucket.next;
+                    insertBottom(bucket);
+                    bucket = next;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Moves every event in Top onto a new first rung.
+     */
+    private void spreadTop() {
+        SimEvent events = this.top;
+        int count = this.topCount;
+        double min = this.topMin;
+        double max = this.topMax;
+
+        this.top = null;
+        this.topCount = 0;
+        this.topStart = max;
+        resetTopBounds();
+
+        if (max == min) {
+            // nothing to spread; the events only differ by sequence
+            while (events != null) {
+                SimEvent next = events.next;
+                insertBottom(events);
+                events = next;
+            }
+            return;
+        }
+
+        setupRung(0, min, (max - min) / count, count + 1);
+        this.numRungs = 1;
+        while (events != null) {
+            SimEvent next = events.next;
+            addToRung(0, events);
+            events = next;
+        }
+    }
+
+    /**
+     * Spreads the events of one bucket over a new, finer rung.
+     */
+    private void spawnRung(SimEvent events, int count, double start, double parentWidth) {
+        int r = this.numRungs++;
+
+        setupRung(r, start, parentWidth / count, count + 1);
+        while (events != null) {
+            SimEvent next = events.next;
+            addToRung(r, events);
+            events = next;
+        }
+    }
+
+    private void setupRung(int r, double start, double width, int buckets) {
+        if (this.rungBuckets[r] == null || this.rungBuckets[r].length < buckets) {
+            this.rungBuckets[r] = new SimEvent[buckets];
+            this.rungCounts[r] = new int[buckets];
+        }
+        this.rungStart[r] = start;
+        this.rungWidth[r] = width;
+        this.rungSize[r] = buckets;
+        this.rungCurrent[r] = 0;
+    }
+
+    private void addToRung(int r, SimEvent event) {
+        int b = (int) ((event.getEventTime() - this.rungStart[r]) / this.rungWidth[r]);
+
+        // guard against rounding at either end of the rung
+        if (b < this.rungCurrent[r]) {
+            b = this.rungCurrent[r];
+        } else if (b >= this.rungSize[r]) {
+            b = this.rungSize[r] - 1;
+        }
+
+        event.next = this.rungBuckets[r][b];
+        this.rungBuckets[r][b] = event;
+        this.rungCounts[r][b]++;
+    }
+
+    private double currentBucketStart(int r) {
+        return this.rungStart[r] + this.rungCurrent[r] * this.rungWidth[r];
+    }
+
+    private void insertBottom(SimEvent event) {
+        SimEvent prev = null;
+        SimEvent cur = this.bottom;
+
+        while (cur != null && !SimEvent.precedes(event, cur)) {
+            prev = cur;
+            cur = cur.next;
+        }
+
+        event.next = cur;
+        if (prev == null) {
+            this.bottom = event;
+        } else {
+            prev.next = event;
+        }
+    }
+
+    private void resetTopBounds() {
+        this.topMin = Double.POSITIVE_INFINITY;
+        this.topMax = Double.NEGATIVE_INFINITY;
+    }
+
+    private static boolean sameTime(SimEvent events) {
+        double time = events.getEventTime();
+
+        for (SimEvent e = events.next; e != null; e = e.next) {
+            if (e.getEventTime() != time) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
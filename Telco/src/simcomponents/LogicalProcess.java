@@ -0,0 +1,182 @@
+package simcomponents;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One partition of a parallel simulation: a set of queue stations with their
+ * own engine and event list, run on one thread. Jobs leaving the partition are
+ * sent over channels. Synchronisation is conservative (Chandy-Misra-Bryant):
+ * events are only executed once every input channel guarantees that no
+ * earlier job can still arrive, and after each step the process sends its own
+ * guarantee, the earliest time any of its stations could finish a job, as a
+ * null message on every output channel.
+ *
+ * @author Ryan Owens
+ */
+final class LogicalProcess implements Runnable {
+    private final int index;
+    private final SimEngine engine;
+    private final List<QueueStation> stations = new ArrayList<>();
+    private final List<Channel> inputs = new ArrayList<>();
+    private final List<Channel> outputs = new ArrayList<>();
+    private ProcessGroup group;
+    private volatile Thread thread;
+    private long events = 0;
+    private volatile boolean idle = false;      // no pending events
+    private volatile long jobsSent = 0;         // written by this process only
+    private volatile long jobsReceived = 0;
+
+    LogicalProcess(int index, SimEngine engine) {
+        this.index = index;
+        this.engine = engine;
+    }
+
+    @Override
+    public void run() {
+        try {
+            simulate();
+        } catch (RuntimeException | Error e) {
+            this.group.fail(e);
+        }
+    }
+
+    private void simulate() {
+        double endTime = this.engine.getEndTime();
+
+        while (!this.group.isStopped()) {
+            boolean received = false;
+            for (Channel input : this.inputs) {
+                int jobs = input.deliver(this.engine);
+                if (jobs > 0) {
+                    // busy before counted, so a quiescence check that sees the count also sees the process busy
+                    this.idle = false;
+                    this.jobsReceived += jobs;
+                }
+                received |= (jobs >= 0);
+            }
+
+            double safeTime = safeTime();
+            int executed = this.engine.simulateUntil(safeTime);
+            this.events += executed;
+
+            double nextTime = this.engine.nextEventTime();
+            this.idle = (nextTime == Double.POSITIVE_INFINITY);
+            if ((safeTime >= endTime && nextTime >= endTime) || this.group.isQuiescent()
+                    || (this.idle && this.group.checkQuiescent())) {
+                // nothing left to do before the end time
+                for (Channel output : this.outputs) {
+                    output.sendNull(Double.POSITIVE_INFINITY);
+                }
+                this.engine.advanceTo(endTime);
+                return;
+            }
+
+            double bound = lookahead(Math.min(nextTime, safeTime));
+            for (Channel output : this.outputs) {
+                output.sendNull(bound);
+            }
+
+            if (!received && executed == 0) {
+                LockSupport.park(this);
+            }
+        }
+    }
+
+    /**
+     * @return the time up to which every input channel is known
+     */
+    private double safeTime() {
+        double safeTime = Double.POSITIVE_INFINITY;
+
+        for (Channel input : this.inputs) {
+            safeTime = Math.min(safeTime, input.getClock());
+        }
+        return safeTime;
+    }
+
+    /**
+     * @param from time before which no further event happens here
+     * @return earliest time at which a job could leave any local station
+     */
+    private double lookahead(double from) {
+        double bound = Double.POSITIVE_INFINITY;
+
+        for (QueueStation station : this.stations) {
+            bound = Math.min(bound, station.earliestCompletion(from));
+        }
+        return bound;
+    }
+
+    /**
+     * Wakes the process if it is waiting for messages.
+     */
+    void wake() {
+        Thread t = this.thread;
+
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * Counts a job sent to another process; called on this process's thread.
+     */
+    void jobSent() {
+        this.jobsSent++;
+    }
+
+    boolean isIdle() {
+        return this.idle;
+    }
+
+    long getJobsSent() {
+        return this.jobsSent;
+    }
+
+    long getJobsReceived() {
+        return this.jobsReceived;
+    }
+
+    void setGroup(ProcessGroup group) {
+        this.group = group;
+    }
+
+    void setThread(Thread thread) {
+        this.thread = thread;
+    }
+
+    void addStation(QueueStation station) {
+        this.stations.add(station);
+    }
+
+    void addInput(Channel channel) {
+        this.inputs.add(channel);
+    }
+
+    void addOutput(Channel channel) {
+        this.outputs.add(channel);
+    }
+
+    int getIndex() {
+        return this.index;
+    }
+
+    SimEngine getEngine() {
+        return this.engine;
+    }
+
+    long getEventCount() {
+        return this.events;
+    }
+
+    long getNullMessageCount() {
+        long count = 0;
+
+        for (Channel output : this.outputs) {
+            count += output.getNullMessageCount();
+        }
+        return count;
+    }
+}
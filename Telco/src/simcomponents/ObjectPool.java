@@ -0,0 +1,51 @@
+package simcomponents;
+
+import java.util.Arrays;
+
+/**
+ * Simple free-list of reusable objects. Not thread-safe; each engine owns its
+ * own pools.
+ *
+ * @author Ryan Owens
+ */
+final class ObjectPool<T> {
+    private Object[] free;
+    private int count;
+
+    ObjectPool(int initialCapacity) {
+        this.free = new Object[Math.max(1, initialCapacity)];
+        this.count = 0;
+    }
+
+    /**
+     * Takes an object from the pool.
+     *
+     * @return a previously released object, or null if the pool is empty
+     */
+    @SuppressWarnings("unchecked")
+    T obtain() {
+        if (this.count == 0) {
+            return null;
+        }
+
+        T item = (T) this.free[--this.count];
+        this.free[this.count] = null;
+        return item;
+    }
+
+    /**
+     * Returns an object to the pool. The caller must no longer use it.
+     *
+     * @param item the object to reuse
+     */
+    void release(T item) {
+        if (this.count == this.free.length) {
+            this.free = Arrays.copyOf(this.free, this.count * 2);
+        }
+        this.free[this.count++] = item;
+    }
+
+    int size() {
+        return this.count;
+    }
+}
@@ -0,0 +1,383 @@
+package simcomponents;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One partition of an optimistic (Time Warp) parallel simulation: a set of
+ * queue stations and generators with their own engine, run on one thread.
+ * Events are executed as soon as they are known, without waiting for the
+ * other processes. A job that arrives with a timestamp earlier than the
+ * process's clock (a straggler) rolls the process back: it returns to the last
+ * state saved before that time, cancels the jobs it has since sent with
+ * anti-messages, and re-executes, without sending, the events up to the
+ * straggler (coasting forward).
+ *
+ * State is saved every few events rather than every event, so a rollback
+ * usually coasts forward over a few events. Saved states, received messages
+ * and sent messages older than GVT are discarded (fossil collection).
+ *
+ * @author Ryan Owens
+ */
+final class OptimisticProcess implements Runnable {
+    private final int index;
+    private final SimEngine engine;
+    private final EventListType eventListType;
+    private final List<QueueStation> stations = new ArrayList<>();
+    private final List<Generator> generators = new ArrayList<>();
+    private final ConcurrentLinkedQueue<TimeWarpMessage> inbox = new ConcurrentLinkedQueue<>();
+    private final List<TimeWarpMessage> received = new ArrayList<>();    // taken from the inbox, not yet handled
+    private final List<TimeWarpMessage> inputs = new ArrayList<>();      // received jobs that may be needed again
+    private final ArrayDeque<TimeWarpMessage> sent = new ArrayDeque<>(); // jobs sent, in time order
+    private final ArrayDeque<Checkpoint> checkpoints = new ArrayDeque<>();
+    private TimeWarpGroup group;
+    private volatile Thread thread;
+    private volatile boolean idle = false;
+    private int checkpointInterval;
+    private int gvtInterval;
+    private double window = Double.POSITIVE_INFINITY;
+    private double gvt = 0.0;
+    private long eventsSinceGvt = 0;
+    private boolean coasting = false;
+    private long rollbacks = 0;
+    private long rolledBackEvents = 0;
+    private long antiMessages = 0;
+
+    OptimisticProcess(int index, SimEngine engine, EventListType eventListType) {
+        this.index = index;
+        this.engine = engine;
+        this.eventListType = eventListType;
+    }
+
+    @Override
+    public void run() {
+        try {
+            simulate();
+        } catch (BrokenBarrierException | InterruptedException e) {
+            // another process failed, or the run was interrupted
+            this.group.fail(e);
+        } catch (RuntimeException | Error e) {
+            this.group.fail(e);
+        }
+    }
+
+    private void simulate() throws BrokenBarrierException, InterruptedException {
+        saveCheckpoint(Double.NEGATIVE_INFINITY);
+
+        while (!this.group.isStopped()) {
+            if (this.group.isGvtRequested()) {
+                if (!synchronizeGvt()) {
+                    return;
+                }
+                continue;
+            }
+
+            boolean receivedAny = receive();
+            int executed = this.engine.simulateUntil(this.gvt + this.window, this.checkpointInterval);
+            if (executed > 0) {
+                this.idle = false;
+                saveCheckpoint(this.engine.getSimTime());
+                this.eventsSinceGvt += executed;
+                this.group.setChanged();
+            }
+
+            if (this.eventsSinceGvt >= this.gvtInterval) {
+                // bound the memory held by saved states and messages
+                this.group.requestGvt();
+            } else if (!receivedAny && executed == 0) {
+                this.idle = true;
+                if (this.group.shouldRequestGvt()) {
+                    this.group.requestGvt();
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles the messages that have arrived: jobs are scheduled, and
+     * stragglers and anti-messages for jobs already executed roll the process
+     * back to the earliest of their times.
+     *
+     * @return true if any message was handled
+     */
+    private boolean receive() {
+        TimeWarpMessage message;
+
+        while ((message = this.inbox.poll()) != null) {
+            this.received.add(message);
+        }
+        if (this.received.isEmpty()) {
+            return false;
+        }
+        this.idle = false;
+        this.group.setChanged();
+
+        double rollbackTime = Double.POSITIVE_INFINITY;
+        double now = this.engine.getSimTime();
+        for (TimeWarpMessage m : this.received) {
+            if (m.isAntiMessage()) {
+                // annihilate the job; unexecuted, it is simply skipped
+                m.cancels.cancelled = true;
+                if (m.cancels.processedAt >= 0) {
+                    rollbackTime = Math.min(rollbackTime, m.time);
+                }
+            } else {
+                this.inputs.add(m);
+                if (m.time < now) {
+                    rollbackTime = Math.min(rollbackTime, m.time);
+                }
+            }
+        }
+
+        if (rollbackTime < Double.POSITIVE_INFINITY) {
+            // restoring reschedules every unexecuted job, including the new ones
+            rollback(rollbackTime);
+        } else {
+            for (TimeWarpMessage m : this.received) {
+                if (!m.isAntiMessage()) {
+                    this.engine.enqueue(new SimEvent(m, m.time));
+                }
+            }
+        }
+        this.received.clear();
+        return true;
+    }
+
+    /**
+     * Undoes every event at or after a time.
+     */
+    private void rollback(double time) {
+        long executed = this.engine.getEventCount();
+        this.rollbacks++;
+
+        // cancel the jobs sent by the undone events
+        while (!this.sent.isEmpty() && this.sent.peekLast().time >= time) {
+            TimeWarpMessage m = this.sent.pollLast();
+            m.receiver.post(new TimeWarpMessage(m));
+            this.antiMessages++;
+        }
+
+        // the first checkpoint, before any event, is never removed
+        while (this.checkpoints.peekLast().time >= time) {
+            this.checkpoints.pollLast();
+        }
+        restore(this.checkpoints.peekLast());
+
+        // re-execute up to the rollback time; those jobs were sent already
+        this.coasting = true;
+        this.engine.simulateUntil(Math.nextDown(time));
+        this.coasting = false;
+
+        this.rolledBackEvents += executed - this.engine.getEventCount();
+    }
+
+    private void saveCheckpoint(double time) {
+        QueueStation.State[] stationStates = new QueueStation.State[this.stations.size()];
+        for (int i = 0; i < stationStates.length; i++) {
+            stationStates[i] = this.stations.get(i).saveState();
+        }
+        Generator.State[] generatorStates = new Generator.State[this.generators.size()];
+        for (int i = 0; i < generatorStates.length; i++) {
+            generatorStates[i] = this.generators.get(i).saveState();
+        }
+
+        this.checkpoints.add(new Checkpoint(time, this.engine.getSimTime(), this.engine.getEventCount(),
+                stationStates, generatorStates));
+    }
+
+    /**
+     * Returns to a checkpoint and rebuilds the event list from the restored
+     * state: job completions, the generators' next arrivals and every received
+     * job not executed by then.
+     */
+    private void restore(Checkpoint checkpoint) {
+        this.engine.reset(checkpoint.simTime, checkpoint.eventCount, this.eventListType.create());
+
+        for (int i = 0; i < this.stations.size(); i++) {
+            QueueStation station = this.stations.get(i);
+            station.restoreState(checkpoint.stations[i]);
+            station.scheduleCompletions(this.engine);
+        }
+        for (int i = 0; i < this.generators.size(); i++) {
+            Generator generator = this.generators.get(i);
+            generator.restoreState(checkpoint.generators[i]);
+            generator.scheduleArrival(this.engine);
+        }
+        for (TimeWarpMessage m : this.inputs) {
+            if (!m.cancelled && (m.processedAt < 0 || m.processedAt > checkpoint.eventCount)) {
+                m.processedAt = -1;
+                this.engine.enqueue(new SimEvent(m, m.time));
+            }
+        }
+    }
+
+    /**
+     * Takes part in a GVT computation, then discards what GVT has made
+     * unnecessary.
+     *
+     * @return false if the run has ended
+     */
+    private boolean synchronizeGvt() throws BrokenBarrierException, InterruptedException {
+        this.group.awaitStopped();
+
+        // nothing is sent now, so every message is in an inbox
+        TimeWarpMessage message;
+        while ((message = this.inbox.poll()) != null) {
+            this.received.add(message);
+        }
+        double localTime = this.engine.nextEventTime();
+        for (TimeWarpMessage m : this.received) {
+            localTime = Math.min(localTime, m.time);
+        }
+
+        this.gvt = this.group.awaitGvt(this.index, localTime);
+        collectFossils(this.gvt);
+        this.eventsSinceGvt = 0;
+
+        if (this.gvt >= this.engine.getEndTime()) {
+            this.engine.advanceTo(this.engine.getEndTime());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Keeps the last checkpoint before GVT, the only one a rollback can still
+     * return to, and the messages that may be needed after restoring it.
+     */
+    private void collectFossils(double gvt) {
+        Checkpoint oldest = this.checkpoints.pollFirst();
+        while (!this.checkpoints.isEmpty() && this.checkpoints.peekFirst().time < gvt) {
+            oldest = this.checkpoints.pollFirst();
+        }
+        this.checkpoints.addFirst(oldest);
+
+        long committed = oldest.eventCount;
+        this.inputs.removeIf(m -> m.cancelled || (m.processedAt >= 0 && m.processedAt <= committed));
+        while (!this.sent.isEmpty() && this.sent.peekFirst().time < gvt) {
+            this.sent.pollFirst();
+        }
+    }
+
+    /**
+     * Creates the link carrying jobs from this process to another.
+     */
+    JobLink linkTo(OptimisticProcess receiver) {
+        return (time, port, job) -> send(receiver, time, port, job);
+    }
+
+    private void send(OptimisticProcess receiver, double time, InboundPort port, Job job) {
+        if (this.coasting) {
+            return;
+        }
+
+        TimeWarpMessage message = new TimeWarpMessage(receiver, time, port, job);
+        this.sent.add(message);
+        receiver.post(message);
+    }
+
+    /**
+     * Delivers a message or anti-message to this process; may be called from
+     * any thread.
+     */
+    void post(TimeWarpMessage message) {
+        this.inbox.add(message);
+        wake();
+    }
+
+    /**
+     * Wakes the process if it is waiting for messages.
+     */
+    void wake() {
+        Thread t = this.thread;
+
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    boolean isIdle() {
+        return this.idle;
+    }
+
+    void setGroup(TimeWarpGroup group) {
+        this.group = group;
+    }
+
+    void setThread(Thread thread) {
+        this.thread = thread;
+    }
+
+    void setCheckpointInterval(int checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    void setGvtInterval(int gvtInterval) {
+        this.gvtInterval = gvtInterval;
+    }
+
+    void setWindow(double window) {
+        this.window = window;
+    }
+
+    void addStation(QueueStation station) {
+        this.stations.add(station);
+    }
+
+    void addGenerator(Generator generator) {
+        this.generators.add(generator);
+    }
+
+    int getIndex() {
+        return this.index;
+    }
+
+    SimEngine getEngine() {
+        return this.engine;
+    }
+
+    /**
+     * @return events executed and not rolled back
+     */
+    long getEventCount() {
+        return this.engine.getEventCount();
+    }
+
+    long getRollbackCount() {
+        return this.rollbacks;
+    }
+
+    long getRolledBackEventCount() {
+        return this.rolledBackEvents;
+    }
+
+    long getAntiMessageCount() {
+        return this.antiMessages;
+    }
+
+    /**
+     * The saved state of every local component after a number of events.
+     */
+    private static final class Checkpoint {
+        final double time;              // time of the last event before the checkpoint
+        final double simTime;
+        final long eventCount;
+        final QueueStation.State[] stations;
+        final Generator.State[] generators;
+
+        Checkpoint(double time, double simTime, long eventCount,
+                QueueStation.State[] stations, Generator.State[] generators) {
+            this.time = time;
+            this.simTime = simTime;
+            this.eventCount = eventCount;
+            this.stations = stations;
+            this.generators = generators;
+        }
+    }
+}
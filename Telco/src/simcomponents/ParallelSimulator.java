@@ -0,0 +1,439 @@
+package simcomponents;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import randomgenr.RandomBackend;
+import randomgenr.RandomStreams;
+
+/**
+ * Runs one replication of a model as a conservative parallel discrete-event
+ * simulation. The model's queue stations are partitioned into logical
+ * processes, each with its own engine, event list and thread; jobs that cross
+ * a partition boundary travel as timestamped messages. By default the
+ * processes synchronise conservatively with null messages
+ * (Chandy-Misra-Bryant); they can instead execute optimistically and roll back
+ * when a job arrives late (Time Warp).
+ *
+ * Lookahead comes from the service time distributions: every server slot
+ * draws the service time of its next job in advance, so a process knows the
+ * earliest time any of its stations could next finish a job. Results do not
+ * depend on the number of processes, but every event before (and none at or
+ * after) the end time is executed, so they differ slightly from those of
+ * SimEngine.simulate, which executes the first event past the end time.
+ * Both kinds of synchronisation give the same results.
+ *
+ * @author Ryan Owens
+ */
+public class ParallelSimulator {
+    private final SimModel model;
+    private final double endTime;
+    private RandomStreams streams;
+    private int logicalProcesses;
+    private final Map<String, Integer> assignments;
+    private EventListType eventListType;
+    private boolean pooling;
+    private Synchronization synchronization;
+    private int checkpointInterval;
+    private int gvtInterval;
+    private double optimismWindow;
+    private List<LogicalProcess> processes;
+    private ProcessGroup group;
+    private List<OptimisticProcess> optimisticProcesses;
+    private TimeWarpGroup timeWarpGroup;
+
+    /**
+     * @param model the model to build and run
+     * @param endTime simulation end time
+     * @param seed master random seed
+     */
+    public ParallelSimulator(SimModel model, double endTime, long seed) {
+        this.model = model;
+        this.endTime = endTime;
+        this.streams = new RandomStreams(seed);
+        this.logicalProcesses = Runtime.getRuntime().availableProcessors();
+        this.assignments = new HashMap<>();
+        this.eventListType = EventListType.BINARY_HEAP;
+        this.pooling = false;
+        this.synchronization = Synchronization.CONSERVATIVE;
+        this.checkpointInterval = 32;
+        this.gvtInterval = 4096;
+        this.optimismWindow = Double.POSITIVE_INFINITY;
+        this.processes = new ArrayList<>();
+        this.optimisticProcesses = new ArrayList<>();
+    }
+
+    /**
+     * Sets the number of logical processes (and threads). Stations that have
+     * not been assigned explicitly are divided among them in build order.
+     *
+     * @param logicalProcesses number of logical processes
+     */
+    public void setLogicalProcesses(int logicalProcesses) {
+        if (logicalProcesses < 1) {
+            throw new IllegalArgumentException("At least one logical process is required.");
+        }
+        this.logicalProcesses = logicalProcesses;
+    }
+
+    /**
+     * Places a station in a particular logical process.
+     *
+     * @param stationName name of the station
+     * @param logicalProcess number of the process, from 0
+     */
+    public void assign(String stationName, int logicalProcess) {
+        this.assignments.put(stationName, logicalProcess);
+    }
+
+    public void setEventListType(EventListType eventListType) {
+        this.eventListType = eventListType;
+    }
+
+    public void setPooling(boolean pooling) {
+        this.pooling = pooling;
+    }
+
+    public void setRandomBackend(RandomBackend backend) {
+        this.streams = new RandomStreams(this.streams.getMasterSeed(), backend);
+    }
+
+    /**
+     * Chooses conservative or optimistic synchronisation. Optimistic runs
+     * save and restore the random streams, so they need the XOSHIRO256PP
+     * backend and streaming arrivals; they never pool or retain jobs.
+     *
+     * @param synchronization the synchronisation protocol
+     */
+    public void setSynchronization(Synchronization synchronization) {
+        this.synchronization = synchronization;
+    }
+
+    /**
+     * Sets how many events an optimistic process executes between saving its
+     * state. Longer intervals save less often but coast forward further after
+     * a rollback.
+     *
+     * @param checkpointInterval events between saved states
+     */
+    public void setCheckpointInterval(int checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive.");
+        }
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Sets how many events an optimistic process executes before asking for
+     * GVT, which bounds the saved states and messages it holds.
+     *
+     * @param gvtInterval events between GVT computations
+     */
+    public void setGvtInterval(int gvtInterval) {
+        if (gvtInterval < 1) {
+            throw new IllegalArgumentException("GVT interval must be positive.");
+        }
+        this.gvtInterval = gvtInterval;
+    }
+
+    /**
+     * Limits how far past GVT an optimistic process may execute. A narrower
+     * window means fewer and shorter rollbacks, but less parallelism.
+     *
+     * @param optimismWindow simulated time past GVT; infinity for no limit
+     */
+    public void setOptimismWindow(double optimismWindow) {
+        if (!(optimismWindow > 0.0)) {
+            throw new IllegalArgumentException("Optimism window must be positive.");
+        }
+        this.optimismWindow = optimismWindow;
+    }
+
+    /**
+     * Builds the model, partitions it and runs it to the end time.
+     *
+     * @return the model's stations, holding their results
+     * @throws InterruptedException if interrupted while waiting for the run
+     */
+    public List<QueueStation> run() throws InterruptedException {
+        boolean optimistic = (this.synchronization == Synchronization.OPTIMISTIC);
+        if (optimistic && this.streams.getBackend() != RandomBackend.XOSHIRO256PP) {
+            throw new IllegalStateException("Optimistic synchronisation needs the XOSHIRO256PP backend.");
+        }
+
+        // build on a staging engine, then move every station to its process
+        SimEngine staging = new SimEngine(this.streams);
+        staging.setEndTime(this.endTime);
+        staging.setPooling(this.pooling && !optimistic);
+        List<QueueStation> stations = this.model.build(staging);
+
+        int count = Math.min(this.logicalProcesses, stations.size());
+        List<SimEngine> engines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SimEngine engine = new SimEngine(this.streams);
+            engine.setEndTime(this.endTime);
+            engine.setEventList(this.eventListType.create());
+            engine.setPooling(this.pooling && !optimistic);
+            engines.add(engine);
+        }
+
+        Map<QueueStation, Integer> placement = new IdentityHashMap<>();
+        for (int i = 0; i < stations.size(); i++) {
+            QueueStation station = stations.get(i);
+            Integer assigned = this.assignments.get(station.getName());
+            int index = (assigned != null) ? assigned : (int) ((long) i * count / stations.size());
+
+            if (index < 0 || index >= count) {
+                throw new IllegalArgumentException("Station " + station.getName()
+                        + " is assigned to logical process " + index + " of " + count + ".");
+            }
+
+            station.rebind(engines.get(index));
+            station.presampleSlotServiceTimes();
+            if (optimistic) {
+                station.setRetainJobs(false);
+                station.setCopyOnRoute(true);
+            }
+            placement.put(station, index);
+        }
+
+        List<Thread> threads = new ArrayList<>(count);
+        if (optimistic) {
+            this.processes = new ArrayList<>();
+            this.optimisticProcesses = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                OptimisticProcess process = new OptimisticProcess(i, engines.get(i), this.eventListType);
+                process.setCheckpointInterval(this.checkpointInterval);
+                process.setGvtInterval(this.gvtInterval);
+                process.setWindow(this.optimismWindow);
+                this.optimisticProcesses.add(process);
+            }
+            this.timeWarpGroup = new TimeWarpGroup(this.optimisticProcesses);
+            for (OptimisticProcess process : this.optimisticProcesses) {
+                process.setGroup(this.timeWarpGroup);
+            }
+            for (QueueStation station : stations) {
+                this.optimisticProcesses.get(placement.get(station)).addStation(station);
+            }
+
+            connect(stations, placement, (from, to) ->
+                    this.optimisticProcesses.get(from).linkTo(this.optimisticProcesses.get(to)));
+            for (Generator generator : moveInitialEvents(staging, placement, engines)) {
+                if (!generator.isStreaming()) {
+                    throw new IllegalStateException("Optimistic synchronisation needs streaming arrivals.");
+                }
+                this.optimisticProcesses.get(placement.get(generator.getQueueStation())).addGenerator(generator);
+            }
+
+            for (OptimisticProcess process : this.optimisticProcesses) {
+                Thread t = new Thread(process, "logical-process-" + process.getIndex());
+                process.setThread(t);
+                threads.add(t);
+            }
+        } else {
+            this.optimisticProcesses = new ArrayList<>();
+            this.processes = new ArrayList<>(count);
+            this.group = new ProcessGroup(this.processes);
+            for (int i = 0; i < count; i++) {
+                LogicalProcess process = new LogicalProcess(i, engines.get(i));
+                process.setGroup(this.group);
+                this.processes.add(process);
+            }
+            for (QueueStation station : stations) {
+                this.processes.get(placement.get(station)).addStation(station);
+            }
+
+            Map<Long, Channel> channels = new HashMap<>();
+            connect(stations, placement, (from, to) -> channels.computeIfAbsent(((long) from << 32) | to, key -> {
+                Channel channel = new Channel(this.processes.get(from), this.processes.get(to));
+                this.processes.get(from).addOutput(channel);
+                this.processes.get(to).addInput(channel);
+                return channel;
+            }));
+            moveInitialEvents(staging, placement, engines);
+
+            for (LogicalProcess process : this.processes) {
+                Thread t = new Thread(process, "logical-process-" + process.getIndex());
+                process.setThread(t);
+                threads.add(t);
+            }
+        }
+
+        // run every process on its own thread
+        for (Thread t : threads) {
+            t.setDaemon(true);
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        try {
+            for (Thread t : threads) {
+                t.join();
+            }
+        } catch (InterruptedException ie) {
+            fail(ie);
+            throw ie;
+        }
+
+        Throwable failure = optimistic ? this.timeWarpGroup.getFailure() : this.group.getFailure();
+        if (failure != null) {
+            throw new IllegalStateException("Logical process failed.", failure);
+        }
+        return stations;
+    }
+
+    private void fail(Throwable cause) {
+        if (this.synchronization == Synchronization.OPTIMISTIC) {
+            this.timeWarpGroup.fail(cause);
+        } else {
+            this.group.fail(cause);
+        }
+    }
+
+    /**
+     * Replaces every cross-partition output station with a proxy that sends
+     * jobs over a link between the two processes.
+     *
+     * @param links creates the link from one process to another, by index
+     */
+    private static void connect(List<QueueStation> stations, Map<QueueStation, Integer> placement,
+            BiFunction<Integer, Integer, JobLink> links) {
+        Map<QueueStation, InboundPort> ports = new IdentityHashMap<>();
+        Map<QueueStation, Map<JobLink, RemoteStation>> proxies = new IdentityHashMap<>();
+
+        for (QueueStation station : stations) {
+            int from = placement.get(station);
+            RoutingTable routing = station.getRoutingTable();
+
+            for (int i = 0; i < routing.size(); i++) {
+                QueueStation target = routing.getStation(i);
+                Integer to = placement.get(target);
+
+                if (to == null) {
+                    throw new IllegalStateException("Station " + target.getName()
+                            + " is routed to but was not returned by the model.");
+                }
+                if (to == from) {
+                    continue;
+                }
+
+                JobLink link = links.apply(from, to);
+                InboundPort port = ports.computeIfAbsent(target, InboundPort::new);
+                RemoteStation proxy = proxies.computeIfAbsent(target, t -> new IdentityHashMap<>())
+                        .computeIfAbsent(link, l -> new RemoteStation(target, l, port));
+                routing.replace(target, proxy);
+            }
+        }
+    }
+
+    /**
+     * Moves the events scheduled while building the model, typically the
+     * generators' first arrivals, to the processes of their components.
+     *
+     * @return the generators that had events, each now bound to its process
+     */
+    private static List<Generator> moveInitialEvents(SimEngine staging, Map<QueueStation, Integer> placement,
+            List<SimEngine> engines) {
+        List<Generator> generators = new ArrayList<>();
+        SimEvent event;
+
+        while ((event = staging.pollEvent()) != null) {
+            Simulatable simulatable = event.getSimulatable();
+            Integer index;
+
+            if (simulatable instanceof Generator) {
+                Generator generator = (Generator) simulatable;
+                index = placement.get(generator.getQueueStation());
+                if (index == null) {
+                    throw new IllegalStateException("Generator " + generator.getName()
+                            + " feeds a station that was not returned by the model.");
+                }
+                generator.rebind(engines.get(index));
+                if (!generators.contains(generator)) {
+                    generators.add(generator);
+                }
+            } else {
+                index = placement.get(simulatable);
+                if (index == null) {
+                    throw new IllegalStateException("Cannot place the initial event of " + simulatable.getName() + ".");
+                }
+            }
+            engines.get(index).enqueue(event);
+        }
+        return generators;
+    }
+
+    /**
+     * @return events executed by all processes in the last run
+     */
+    public long getEventCount() {
+        long count = 0;
+
+        for (LogicalProcess process : this.processes) {
+            count += process.getEventCount();
+        }
+        for (OptimisticProcess process : this.optimisticProcesses) {
+            count += process.getEventCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return null messages sent by all processes in the last run
+     */
+    public long getNullMessageCount() {
+        long count = 0;
+
+        for (LogicalProcess process : this.processes) {
+            count += process.getNullMessageCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return rollbacks by all processes in the last optimistic run
+     */
+    public long getRollbackCount() {
+        long count = 0;
+
+        for (OptimisticProcess process : this.optimisticProcesses) {
+            count += process.getRollbackCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return events executed and then undone by rollbacks in the last
+     *         optimistic run
+     */
+    public long getRolledBackEventCount() {
+        long count = 0;
+
+        for (OptimisticProcess process : this.optimisticProcesses) {
+            count += process.getRolledBackEventCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return anti-messages sent by all processes in the last optimistic run
+     */
+    public long getAntiMessageCount() {
+        long count = 0;
+
+        for (OptimisticProcess process : this.optimisticProcesses) {
+            count += process.getAntiMessageCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return GVT computations in the last optimistic run
+     */
+    public long getGvtRounds() {
+        return (this.timeWarpGroup != null) ? this.timeWarpGroup.getGvtRounds() : 0;
+    }
+}
@@ -0,0 +1,80 @@
+package simcomponents;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The logical processes of one parallel run, with the state they share: the
+ * first failure, if any, and whether the whole group has run out of work.
+ * Quiescence is detected with Mattern's four-counter method, so that idle
+ * processes in a cycle stop instead of trading null messages up to the end
+ * time.
+ *
+ * @author Ryan Owens
+ */
+final class ProcessGroup {
+    private final List<LogicalProcess> processes;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean quiescent = false;
+
+    ProcessGroup(List<LogicalProcess> processes) {
+        this.processes = processes;
+    }
+
+    void fail(Throwable cause) {
+        this.failure.compareAndSet(null, cause);
+        wakeAll();
+    }
+
+    Throwable getFailure() {
+        return this.failure.get();
+    }
+
+    boolean isStopped() {
+        return this.failure.get() != null;
+    }
+
+    boolean isQuiescent() {
+        return this.quiescent;
+    }
+
+    /**
+     * Checks whether every process is idle with no job in transit, and if so
+     * stops the whole group. Two waves of counters are read; the group is
+     * quiescent if every process was idle in both and the jobs received by the
+     * first wave equal the jobs sent by the second.
+     *
+     * @return true if the group is quiescent
+     */
+    boolean checkQuiescent() {
+        long received = 0;
+        for (LogicalProcess process : this.processes) {
+            if (!process.isIdle()) {
+                return false;
+            }
+            received += process.getJobsReceived();
+        }
+
+        long sent = 0;
+        for (LogicalProcess process : this.processes) {
+            if (!process.isIdle()) {
+                return false;
+            }
+            sent += process.getJobsSent();
+        }
+
+        if (received != sent) {
+            return false;
+        }
+
+        this.quiescent = true;
+        wakeAll();
+        return true;
+    }
+
+    void wakeAll() {
+        for (LogicalProcess process : this.processes) {
+            process.wake();
+        }
+    }
+}
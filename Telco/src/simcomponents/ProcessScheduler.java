@@ -0,0 +1,130 @@
+package simcomponents;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs SimProcesses on a SimEngine. Every process has its own thread, but
+ * only one thread runs at a time: the engine hands control to a process when
+ * its event is dispatched and waits until the process holds, waits for a
+ * resource or ends. Runs are therefore as deterministic as event-driven ones.
+ *
+ * Processes run on virtual threads when the JVM provides them (Java 21, or
+ * 19 and 20 with preview features enabled), so millions of processes can be
+ * alive at once. Otherwise they fall back to daemon platform threads with
+ * small stacks, which limits a run to thousands of live processes.
+ *
+ * Close the scheduler after the run to end the processes still holding or
+ * waiting; otherwise their threads stay parked.
+ *
+ * @author Ryan Owens
+ */
+public final class ProcessScheduler implements Closeable {
+    private static final long PLATFORM_STACK_SIZE = 256 * 1024;
+    private static final ThreadFactory VIRTUAL_THREADS = virtualThreadFactory();
+
+    private final SimEngine engine;
+    private final ThreadFactory threads;
+    private final Set<SimProcess> live = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * @param engine the engine whose events resume the processes
+     */
+    public ProcessScheduler(SimEngine engine) {
+        this.engine = engine;
+        if (VIRTUAL_THREADS != null) {
+            this.threads = VIRTUAL_THREADS;
+        } else {
+            AtomicLong threadCount = new AtomicLong();
+            this.threads = r -> {
+                Thread t = new Thread(null, r, "process-" + threadCount.incrementAndGet(), PLATFORM_STACK_SIZE);
+                t.setDaemon(true);
+                return t;
+            };
+        }
+    }
+
+    /**
+     * Looks up Thread.ofVirtual reflectively, since it is not part of the Java
+     * version the simulator is compiled for.
+     *
+     * @return a factory of virtual threads, or null if there are none
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // older JVM, or preview features not enabled
+            return null;
+        }
+    }
+
+    /**
+     * @return true if processes run on virtual threads
+     */
+    public boolean isVirtual() {
+        return this.threads == VIRTUAL_THREADS;
+    }
+
+    public SimEngine getEngine() {
+        return this.engine;
+    }
+
+    /**
+     * Starts a process at the current simulation time.
+     *
+     * @param process a process that has not been started
+     */
+    public void start(SimProcess process) {
+        start(process, 0.0);
+    }
+
+    /**
+     * Starts a process after a delay. May be called by another process.
+     *
+     * @param process a process that has not been started
+     * @param delay simulated time until the process starts
+     */
+    public void start(SimProcess process, double delay) {
+        if (delay < 0.0 || Double.isNaN(delay)) {
+            throw new IllegalArgumentException("Delay must not be negative.");
+        }
+
+        process.bind(this);
+        this.live.add(process);
+        this.engine.schedule(process, this.engine.getSimTime() + delay, null);
+    }
+
+    /**
+     * @return the number of processes started and not yet ended
+     */
+    public int getLiveCount() {
+        return this.live.size();
+    }
+
+    Thread newThread(Runnable body) {
+        return this.threads.newThread(body);
+    }
+
+    void ended(SimProcess process) {
+        this.live.remove(process);
+    }
+
+    /**
+     * Ends every live process, unwinding the threads of those holding or
+     * waiting. Must not be called by a process.
+     */
+    @Override
+    public void close() {
+        for (SimProcess process : new ArrayList<>(this.live)) {
+            process.terminate();
+        }
+        this.live.clear();
+    }
+}
@@ -25,59 +25,89 @@
  */
 package simcomponents;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 
+import randomgenr.Distribution;
 import randomgenr.ExponentialGenr;
 import randomgenr.GammaGenr;
+import randomgenr.RandomStreams;
 import randomgenr.UniformGenr;
+import simmetrics.StationMetrics;
+import simstats.StationStatistics;
+import simtrace.JobTraceWriter;
+import simtrace.Tracer;
 
 /**
  *
  * @author Gary R. Mayer
  */
 public class QueueStation implements Simulatable {
-    private static UniformGenr outSelectGenr = new UniformGenr();   // pseudorandom uniform variate generator
+    static final int DEFAULT_SERVICE_TIME_BLOCK = 32;
+    
+    private final UniformGenr outSelectGenr = new UniformGenr();    // pseudorandom uniform variate generator
     
     private final String name;
-    private final LinkedList<Job> jobQueue;            // linked list implements a FIFO queue
+    private final ArrayDeque<Job> jobQueue;            // FIFO queue
     private final int numServers;                      // number of servers
-    private final ArrayList<Job> activeServers;        // active job servers for this station
-    private final TreeSet<OutputPair> outputStations;  // set of output stations
+    private final Job[] servers;                       // job in service at each server slot, or null
+    private final int[] freeSlots;                     // stack of idle server slots
+    private int freeCount;
+    private int busyCount;
+    private final RoutingTable outputStations;         // compiled routing to output stations
     private final ArrayList<EventObserver> observers;
 
-    private final ExponentialGenr serviceTimeGenr;
-    private final GammaGenr gammaServiceTimeGenr;
-
-    protected LinkedList<Job> finishedJobs = new LinkedList<>();
-
-    private final boolean useGamma;
+    private final Distribution serviceTimeDistribution;
+    private double[] serviceTimes = new double[DEFAULT_SERVICE_TIME_BLOCK];  // prefetched service times
+    private int serviceTimePos = 0;
+    private int serviceTimeCount = 0;
+    private double[] slotServiceTimes = null;  // next service time of each server slot, when presampled
+
+    protected LinkedList<Job> finishedJobs = new LinkedList<>();   // only kept when retainJobs is set
+    protected final StationStatistics statistics;
+    private boolean retainJobs = false;
+    private boolean copyOnRoute = false;               // never hand on a job a saved state may hold
+    protected StationMetrics metrics;                  // null unless monitored
+    protected SimEngine engine;                        // engine this station is registered with
     
     protected QueueStation(String name, int numServers, double serviceRate) {
-        this.name = name;
-        this.jobQueue = new LinkedList<>();
-        this.numServers = numServers;
-        this.activeServers = new ArrayList<>();
-        this.outputStations = new TreeSet<>();
-        this.observers = new ArrayList<>(2);
-        this.serviceTimeGenr = new ExponentialGenr();
-        this.gammaServiceTimeGenr = new GammaGenr();
-        this.serviceTimeGenr.setEventRate(serviceRate);
-        this.useGamma = false;
-
+        this(name, numServers, exponential(serviceRate));
     }
 
+    /**
+     * Creates a station whose service times are exponential with the given
+     * rate, or gamma distributed with the default gamma parameters.
+     */
     protected QueueStation(String name, int numServers, double serviceRate, boolean useGamma) {
+        this(name, numServers, useGamma ? new GammaGenr() : exponential(serviceRate));
+    }
+
+    /**
+     * Creates a station with any service time distribution, e.g. an
+     * EmpiricalGenr built from measured handling times.
+     * 
+     * @param name name of the station
+     * @param numServers number of servers
+     * @param serviceTime distribution of the service times
+     */
+    protected QueueStation(String name, int numServers, Distribution serviceTime) {
         this.name = name;
-        this.jobQueue = new LinkedList<>();
+        this.jobQueue = new ArrayDeque<>();
         this.numServers = numServers;
-        this.activeServers = new ArrayList<>();
-        this.outputStations = new TreeSet<>();
+        this.servers = new Job[Math.max(0, numServers)];
+        this.freeSlots = new int[this.servers.length];
+        this.outputStations = new RoutingTable();
         this.observers = new ArrayList<>(2);
-        this.serviceTimeGenr = new ExponentialGenr();
-        this.gammaServiceTimeGenr = new GammaGenr();
-        this.serviceTimeGenr.setEventRate(serviceRate);
-        this.useGamma = useGamma;
+        this.serviceTimeDistribution = serviceTime;
+        initServerSlots();
+        this.statistics = new StationStatistics(name, numServers);
+
+    }
 
+    private static Distribution exponential(double serviceRate) {
+        ExponentialGenr genr = new ExponentialGenr();
+        genr.setEventRate(serviceRate);
+        return genr;
     }
 
     /**
@@ -91,9 +121,10 @@ public class QueueStation implements Simulatable {
         this.jobQueue.add(job);
         
         // if a server is not used, start job immediately
-        if (this.activeServers.size() < this.numServers) {
+        if (this.busyCount < this.numServers) {
             startNextJob(simTime);
         }
+        this.statistics.jobArrived(simTime, this.jobQueue.size());
     }
     
     /**
@@ -104,37 +135,93 @@ public class QueueStation implements Simulatable {
      * @param probability probability that this station gets the output
      */
     public void addOutputStation(QueueStation station, double probability) {
-        this.outputStations.add(new OutputPair(station, probability));
+        this.outputStations.add(station, probability);
     }
     
+    /**
+     * Validates the output probabilities and compiles the routing table. Called
+     * automatically on first use; call it after adding every output station to
+     * detect configuration errors before the simulation starts.
+     * 
+     * @throws IllegalStateException if the probabilities do not sum to unity
+     */
+    public void compileRouting() {
+        this.outputStations.compile();
+    }
+    
+    /**
+     * Completes the job named by a completion event. The event carries the
+     * server slot and job it was scheduled for, so no search is needed.
+     * 
+     * @param event the completion event
+     */
+    @Override
+    public void execute(SimEvent event) {
+        int slot = event.getSlot();
+        
+        if (slot < 0 || slot >= this.servers.length || this.servers[slot] == null
+                || (event.getJob() != null && this.servers[slot] != event.getJob())) {
+            tracer().jobMissing(this.name, event.getEventTime());
+            return;
+        }
+        
+        completeJob(slot, event.getEventTime());
+    }
+    
+    /**
+     * Completes the job whose end time is the given time. Prefer
+     * execute(SimEvent), which does not need to search the servers.
+     * 
+     * @param simTime the current simulation time
+     */
     @Override
     public void execute(double simTime) {
-        // remove job from server;
-        Job finishedJob = null;
-        for(Job j: this.activeServers){
-            if(j.getEndTime() == simTime)
-            {
-                finishedJob = j;
-                break;
+        for (int slot = 0; slot < this.servers.length; slot++) {
+            if (this.servers[slot] != null && this.servers[slot].getEndTime() == simTime) {
+                completeJob(slot, simTime);
+                return;
             }
         }
-        if(finishedJobs != null)
-        {
-            this.activeServers.remove(this.activeServers.indexOf(finishedJob));
+        
+        tracer().jobMissing(this.name, simTime);
+    }
+    
+    private void completeJob(int slot, double simTime) {
+        // remove job from server
+        Job finishedJob = this.servers[slot];
+        this.servers[slot] = null;
+        this.freeSlots[this.freeCount++] = slot;
+        this.busyCount--;
+        
+        this.statistics.jobCompleted(simTime, finishedJob.getEndTime() - finishedJob.getStartTime(),
+                simTime - finishedJob.getArrivalTime(), this.busyCount);
+        if (isRetainingJobs()) {
             this.finishedJobs.push(finishedJob.copy());
+        }
+        if (this.metrics != null) {
+            this.metrics.jobCompleted(simTime);
+        }
 
-            // send job to selected output station
-            QueueStation outputStation = selectOutputStation();
-            outputStation.addJob(finishedJob, simTime);
-            System.out.println("  " + this.name + " sending job to " + outputStation.getName());
-
-            // get next job from queue
-            startNextJob(simTime);
-        }else
-        {
-            System.out.println("Could not find job with end time: " + simTime);
+        // send job to selected output station
+        QueueStation outputStation = selectOutputStation();
+        JobTraceWriter jobTrace = jobTrace();
+        if (jobTrace != null) {
+            jobTrace.record(finishedJob.getId(), this.name, finishedJob.getArrivalTime(),
+                    finishedJob.getStartTime(), simTime, outputStation.getName());
+        }
+        if (FlightEvents.JOB_COMPLETED.isEnabled()) {
+            FlightEvents.JobCompleted flightEvent = new FlightEvents.JobCompleted();
+            flightEvent.station = this.name;
+            flightEvent.simTime = simTime;
+            flightEvent.sojournTime = simTime - finishedJob.getArrivalTime();
+            flightEvent.nextStation = outputStation.getName();
+            flightEvent.commit();
         }
+        outputStation.addJob(this.copyOnRoute ? finishedJob.copy() : finishedJob, simTime);
+        tracer().jobRouted(this.name, simTime, outputStation.getName());
 
+        // get next job from queue
+        startNextJob(simTime);
     }
     
     @Override
@@ -145,12 +232,28 @@ public class QueueStation implements Simulatable {
     @Override
     public void register(EventObserver observer) {
         this.observers.add(observer);
+        
+        if (observer instanceof SimEngine) {
+            this.engine = (SimEngine) observer;
+            setRandomStreams(this.engine.getRandomStreams());
+        }
     }
     
     public void setRandomSeed(long seed) {
-        QueueStation.outSelectGenr.setSeed(seed);
-        this.serviceTimeGenr.setSeed(seed);
-        this.gammaServiceTimeGenr.setSeed(seed);
+        this.outSelectGenr.setSeed(seed);
+        this.serviceTimeDistribution.setSeed(seed);
+        discardServiceTimes();
+    }
+    
+    /**
+     * Gives each of this station's generators its own stream.
+     * 
+     * @param streams the run's random streams
+     */
+    public void setRandomStreams(RandomStreams streams) {
+        this.outSelectGenr.setGenerator(streams.generatorFor(this.name, "routing"));
+        this.serviceTimeDistribution.setGenerator(streams.generatorFor(this.name, "service"));
+        discardServiceTimes();
     }
 
     @Override
@@ -158,39 +261,189 @@ public class QueueStation implements Simulatable {
         this.observers.remove(observer);
     }
     
-    private QueueStation selectOutputStation() {
-        if (this.outputStations.isEmpty())
-            return null;
+    QueueStation selectOutputStation() {
+        return this.outputStations.select(this.outSelectGenr);
+    }
+
+    /**
+     * Takes the next service time from the prefetched block, refilling the
+     * block from the service time generator when it runs out.
+     */
+    private double nextServiceTime() {
+        if (this.serviceTimePos == this.serviceTimeCount) {
+            this.serviceTimeDistribution.nextVariates(this.serviceTimes, 0, this.serviceTimes.length);
+            this.serviceTimePos = 0;
+            this.serviceTimeCount = this.serviceTimes.length;
+        }
+        
+        return this.serviceTimes[this.serviceTimePos++];
+    }
+    
+    /**
+     * Sets how many service times are drawn at a time. Service times are the
+     * same whatever the block size; a size of 1 draws them one at a time.
+     * 
+     * @param blockSize number of service times drawn at once
+     */
+    public void setServiceTimeBlockSize(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive.");
+        }
+        
+        this.serviceTimes = new double[blockSize];
+        discardServiceTimes();
+    }
+    
+    private void discardServiceTimes() {
+        this.serviceTimePos = 0;
+        this.serviceTimeCount = 0;
         
-        double outputSelect = outSelectGenr.nextVariate();
-        double currentSelect = 0.0;
-        OutputPair outPair;
-        QueueStation outputStation = null;
-        Iterator<OutputPair> osIter = this.outputStations.descendingIterator();
-
-        while (outputSelect > currentSelect) {
-            // update outputStation to next station in list
-            if (!osIter.hasNext()) {
-                throw new IllegalStateException("Invalid output station. Unable to send output."
-                        + " Ensure output probabilities sum to unity.");
+        if (this.slotServiceTimes != null) {
+            presampleSlotServiceTimes();
+        }
+    }
+    
+    /**
+     * Draws the service time of the next job on every server slot in advance,
+     * so that the earliest time this station can finish a job is known.
+     */
+    void presampleSlotServiceTimes() {
+        if (this.slotServiceTimes == null) {
+            this.slotServiceTimes = new double[this.servers.length];
+        }
+        for (int slot = 0; slot < this.slotServiceTimes.length; slot++) {
+            this.slotServiceTimes[slot] = nextServiceTime();
+        }
+    }
+    
+    /**
+     * Provides a lower bound on the time of this station's next job completion,
+     * given that no job arrives before a time. Requires presampled service
+     * times.
+     * 
+     * @param from time before which no job arrives
+     * @return the bound, or infinity for a station without servers
+     */
+    double earliestCompletion(double from) {
+        double earliest = Double.POSITIVE_INFINITY;
+        
+        for (int slot = 0; slot < this.servers.length; slot++) {
+            double completion = (this.servers[slot] != null)
+                    ? this.servers[slot].getEndTime() : from + this.slotServiceTimes[slot];
+            if (completion < earliest) {
+                earliest = completion;
             }
-
-            outPair = osIter.next();
-            outputStation = outPair.getStation();
-
-            // add next item probability to currentSelect
-            currentSelect += outPair.getProbability();
         }
+        return earliest;
+    }
+    
+    /**
+     * Moves this station to another engine without reseeding its streams.
+     * 
+     * @param newEngine the engine that will execute this station's events
+     */
+    void rebind(SimEngine newEngine) {
+        // transducers keep an engine without observing it
+        if (this.observers.removeIf(observer -> observer instanceof SimEngine)) {
+            this.observers.add(newEngine);
+        }
+        this.engine = newEngine;
+    }
+    
+    RoutingTable getRoutingTable() {
+        return this.outputStations;
+    }
+    
+    /**
+     * @return the job in service on a server slot, or null if it is idle
+     */
+    Job getJobInService(int slot) {
+        return (slot >= 0 && slot < this.servers.length) ? this.servers[slot] : null;
+    }
+    
+    /**
+     * Routes a copy of each finished job instead of the job itself, so that
+     * jobs held by a saved state are never changed by later stations.
+     */
+    void setCopyOnRoute(boolean copyOnRoute) {
+        this.copyOnRoute = copyOnRoute;
+    }
+    
+    /**
+     * Saves everything an event can change: the queue, the server slots, the
+     * statistics and the position of the random streams. Queued jobs are
+     * shared with the saved state, which is safe while routing copies them.
+     * 
+     * @return the saved state
+     */
+    State saveState() {
+        State state = new State();
+        state.queue = this.jobQueue.toArray(new Job[0]);
+        state.servers = new Job[this.servers.length];
+        for (int slot = 0; slot < this.servers.length; slot++) {
+            if (this.servers[slot] != null) {
+                state.servers[slot] = this.servers[slot].copy();
+            }
+        }
+        state.freeSlots = this.freeSlots.clone();
+        state.freeCount = this.freeCount;
+        state.busyCount = this.busyCount;
+        state.statistics = new StationStatistics(this.name, this.numServers);
+        state.statistics.copyFrom(this.statistics);
         
-        return outputStation;
+        if (this.servers.length > 0) {
+            state.routingRandom = RandomState.save(this.outSelectGenr);
+            state.serviceRandom = RandomState.save(this.serviceTimeDistribution);
+            state.serviceTimes = this.serviceTimes.clone();
+            state.serviceTimePos = this.serviceTimePos;
+            state.serviceTimeCount = this.serviceTimeCount;
+            state.slotServiceTimes = (this.slotServiceTimes != null) ? this.slotServiceTimes.clone() : null;
+        }
+        return state;
     }
-
+    
     /**
-     * Internal data class to capture probability when output may nondeterministically
-     * go to a different next place.
+     * Returns to a saved state. Pending completions are not rescheduled; see
+     * scheduleCompletions.
+     * 
+     * @param state a state returned by saveState, which is left unchanged
      */
-
-
+    void restoreState(State state) {
+        this.jobQueue.clear();
+        Collections.addAll(this.jobQueue, state.queue);
+        for (int slot = 0; slot < this.servers.length; slot++) {
+            this.servers[slot] = (state.servers[slot] != null) ? state.servers[slot].copy() : null;
+        }
+        System.arraycopy(state.freeSlots, 0, this.freeSlots, 0, this.freeSlots.length);
+        this.freeCount = state.freeCount;
+        this.busyCount = state.busyCount;
+        this.statistics.copyFrom(state.statistics);
+        
+        if (this.servers.length > 0) {
+            RandomState.restore(this.outSelectGenr, state.routingRandom);
+            RandomState.restore(this.serviceTimeDistribution, state.serviceRandom);
+            this.serviceTimes = state.serviceTimes.clone();
+            this.serviceTimePos = state.serviceTimePos;
+            this.serviceTimeCount = state.serviceTimeCount;
+            this.slotServiceTimes = (state.slotServiceTimes != null) ? state.slotServiceTimes.clone() : null;
+        }
+    }
+    
+    /**
+     * Schedules the completion of every job in service, e.g. on an engine
+     * whose events were discarded after restoring a saved state.
+     * 
+     * @param target the engine to schedule on
+     */
+    void scheduleCompletions(SimEngine target) {
+        for (int slot = 0; slot < this.servers.length; slot++) {
+            Job job = this.servers[slot];
+            if (job != null) {
+                target.enqueue(new SimEvent(this, job.getEndTime(), slot, job));
+            }
+        }
+    }
+    
     private void startNextJob(double simTime) {
         // get pending job from queue
         Job nextJob = this.jobQueue.poll();
@@ -199,37 +452,152 @@ public class QueueStation implements Simulatable {
             // determine the delta time from now to complete the job
             // and notify observers of the pending simulation event
             nextJob.setStartTime(simTime);
+            int slot = this.freeSlots[--this.freeCount];
             double serviceTime;
-            if(!this.useGamma)
-            {
-                serviceTime = this.serviceTimeGenr.nextVariate();
-            }else
-            {
-                serviceTime = this.gammaServiceTimeGenr.nextVariate();
+            if (this.slotServiceTimes != null) {
+                serviceTime = this.slotServiceTimes[slot];
+                this.slotServiceTimes[slot] = nextServiceTime();
+            } else {
+                serviceTime = nextServiceTime();
             }
             nextJob.setEndTime(simTime + serviceTime);
-            notifyObservers(serviceTime);
 
-            // process the job until event completion time
-            this.activeServers.add(nextJob);
+            // process the job on an idle server until event completion time
+            this.servers[slot] = nextJob;
+            this.busyCount++;
+            notifyObservers(serviceTime, slot, nextJob);
 
-            System.out.printf("  " + this.name + ": Started job at %f. Done in %.3f. "
-                + this.activeServers.size() + " of " + this.numServers
-                + " server(s) busy.%n", simTime, serviceTime);
+            this.statistics.jobStarted(simTime, simTime - nextJob.getArrivalTime(),
+                    this.jobQueue.size(), this.busyCount);
+            if (this.metrics != null) {
+                this.metrics.jobStarted(simTime, simTime - nextJob.getArrivalTime());
+            }
+
+            tracer().jobStarted(this.name, simTime, serviceTime, this.busyCount, this.numServers);
+
+            if (FlightEvents.JOB_STARTED.isEnabled()) {
+                FlightEvents.JobStarted flightEvent = new FlightEvents.JobStarted();
+                flightEvent.station = this.name;
+                flightEvent.simTime = simTime;
+                flightEvent.waitTime = simTime - nextJob.getArrivalTime();
+                flightEvent.serviceTime = serviceTime;
+                flightEvent.busyServers = this.busyCount;
+                flightEvent.queueLength = this.jobQueue.size();
+                flightEvent.commit();
+            }
         }
     }
 
-    private void notifyObservers(double eventTime) {
-        SimEvent simEvent = new SimEvent(this, eventTime);
+    private void notifyObservers(double eventTime, int slot, Job job) {
+        for (int i = 0; i < this.observers.size(); i++) {
+            this.observers.get(i).notify(this, eventTime, slot, job);
+        }
+    }
 
-        for (EventObserver observer : this.observers) {
-            observer.notify(simEvent);
+    private void initServerSlots() {
+        // slot 0 is at the top of the stack
+        for (int i = 0; i < this.servers.length; i++) {
+            this.freeSlots[i] = this.servers.length - 1 - i;
         }
+        this.freeCount = this.servers.length;
+        this.busyCount = 0;
+    }
+
+    public int getNumServers() {
+        return this.numServers;
+    }
+    
+    public Distribution getServiceTimeDistribution() {
+        return this.serviceTimeDistribution;
+    }
+
+    public int getBusyServers() {
+        return this.busyCount;
+    }
+
+    public int getQueueLength() {
+        return this.jobQueue.size();
+    }
+
+    /**
+     * Jobs are recycled by the engine while pooling, so they cannot be retained.
+     */
+    protected boolean isPooling() {
+        return this.engine != null && this.engine.isPooling();
+    }
+
+    /**
+     * Keeps a copy of every finished job for debugging. Memory then grows with
+     * simulated time; ignored while the engine pools jobs.
+     * 
+     * @param retainJobs true to keep finished jobs
+     */
+    public void setRetainJobs(boolean retainJobs) {
+        this.retainJobs = retainJobs;
+    }
+
+    protected boolean isRetainingJobs() {
+        return this.retainJobs && !isPooling();
+    }
+
+    public StationStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Counts started and completed jobs for monitoring, e.g. over JMX.
+     * 
+     * @param metrics the counters to update, or null to stop counting
+     */
+    public void setMetrics(StationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    protected Tracer tracer() {
+        return (this.engine != null) ? this.engine.getTracer() : Tracer.OFF;
+    }
+
+    protected JobTraceWriter jobTrace() {
+        return (this.engine != null) ? this.engine.getJobTrace() : null;
     }
 
     public LinkedList<Job> getFinishedJobs() { return this.finishedJobs; }
 
+    /**
+     * Number of jobs that have completed service at this station.
+     * 
+     * @return completed job count
+     */
+    public int getCompletedJobCount() {
+        return (int) this.statistics.getCompleted();
+    }
+
+    /**
+     * Average time completed jobs spent queued before service.
+     * 
+     * @return mean wait, or NaN if no job has started
+     */
+    public double getMeanWaitTime() {
+        return this.statistics.getWaitTime().getMean();
+    }
+
+    /**
+     * Average time completed jobs spent at this station, queued and in service.
+     * For a transducer, this is the time jobs spent in the whole system.
+     * 
+     * @return mean response time, or NaN if no job has completed
+     */
+    public double getMeanResponseTime() {
+        return this.statistics.getSojournTime().getMean();
+    }
+
+    /**
+     * Prints the station's statistics, followed by every finished job if they
+     * are being retained.
+     */
     public void printJobResults() {
+        this.statistics.report(System.out, (this.engine != null) ? this.engine.getSimTime() : 0.0);
+
         if(this.finishedJobs.size() > 0)
         System.out.println(this.name + " Finished Jobs");
         this.finishedJobs.sort(Comparator.comparingInt(o -> (int) o.getStartTime()));
@@ -239,33 +607,161 @@ public class QueueStation implements Simulatable {
         }
     }
 
-    private class OutputPair implements Comparable<OutputPair> {
-
-        private QueueStation station;
-
-        private Double probability;
-
-        public OutputPair(QueueStation station, double probability) {
-            this.station = station;
-            this.probability = probability;
+    /**
+     * A saved copy of a station's state, used to roll back optimistic
+     * execution.
+     */
+    static class State {
+        private Job[] queue;
+        private Job[] servers;
+        private int[] freeSlots;
+        private int freeCount;
+        private int busyCount;
+        private StationStatistics statistics;
+        private long[] routingRandom;
+        private long[] serviceRandom;
+        private double[] serviceTimes;
+        private int serviceTimePos;
+        private int serviceTimeCount;
+        private double[] slotServiceTimes;
+        int jobCount;                       // jobs absorbed by a transducer
+        
+        private static final int JOB_BYTES = 4 * Double.BYTES + Integer.BYTES;
+        
+        /**
+         * @return the number of bytes written by writeTo
+         */
+        int byteSize() {
+            int size = Integer.BYTES + this.queue.length * JOB_BYTES + Integer.BYTES;
+            for (Job job : this.servers) {
+                size += 1 + ((job != null) ? JOB_BYTES : 0);
+            }
+            size += (this.freeSlots.length + 2) * Integer.BYTES + StationStatistics.BYTES;
+            if (this.servers.length > 0) {
+                size += 8 * Long.BYTES + 3 * Integer.BYTES + this.serviceTimes.length * Double.BYTES
+                        + 1 + ((this.slotServiceTimes != null) ? this.slotServiceTimes.length * Double.BYTES : 0);
+            }
+            return size + Integer.BYTES;
         }
-
-        @Override
-        public int compareTo(OutputPair op) {
-            if (this.probability >= op.getProbability())
-                return 1;
-
-            else
-                return -1;
+        
+        /**
+         * Writes the state in a compact binary form, e.g. to a checkpoint.
+         * 
+         * @param buffer buffer with at least byteSize() bytes remaining
+         */
+        void writeTo(ByteBuffer buffer) {
+            buffer.putInt(this.queue.length);
+            for (Job job : this.queue) {
+                writeJob(buffer, job);
+            }
+            buffer.putInt(this.servers.length);
+            for (Job job : this.servers) {
+                buffer.put((byte) ((job != null) ? 1 : 0));
+                if (job != null) {
+                    writeJob(buffer, job);
+                }
+            }
+            for (int slot : this.freeSlots) {
+                buffer.putInt(slot);
+            }
+            buffer.putInt(this.freeCount).putInt(this.busyCount);
+            this.statistics.writeTo(buffer);
+            
+            if (this.servers.length > 0) {
+                for (int i = 0; i < 4; i++) {
+                    buffer.putLong(this.routingRandom[i]);
+                }
+                for (int i = 0; i < 4; i++) {
+                    buffer.putLong(this.serviceRandom[i]);
+                }
+                buffer.putInt(this.serviceTimes.length);
+                for (double serviceTime : this.serviceTimes) {
+                    buffer.putDouble(serviceTime);
+                }
+                buffer.putInt(this.serviceTimePos).putInt(this.serviceTimeCount);
+                buffer.put((byte) ((this.slotServiceTimes != null) ? 1 : 0));
+                if (this.slotServiceTimes != null) {
+                    for (double serviceTime : this.slotServiceTimes) {
+                        buffer.putDouble(serviceTime);
+                    }
+                }
+            }
+            buffer.putInt(this.jobCount);
         }
-
-        public Double getProbability() {
-            return this.probability;
+        
+        /**
+         * Reads a state written by writeTo for a station of the same model.
+         * 
+         * @param buffer buffer positioned at the state
+         * @param station the station the state was saved from
+         * @return the state
+         * @throws IllegalStateException if the station's servers differ
+         */
+        static State readFrom(ByteBuffer buffer, QueueStation station) {
+            State state = new State();
+            state.queue = new Job[buffer.getInt()];
+            for (int i = 0; i < state.queue.length; i++) {
+                state.queue[i] = readJob(buffer);
+            }
+            int slots = buffer.getInt();
+            if (slots != station.servers.length) {
+                throw new IllegalStateException("Station " + station.name + " has " + station.servers.length
+                        + " server(s) but the saved state has " + slots + ".");
+            }
+            state.servers = new Job[slots];
+            for (int slot = 0; slot < slots; slot++) {
+                if (buffer.get() != 0) {
+                    state.servers[slot] = readJob(buffer);
+                }
+            }
+            state.freeSlots = new int[slots];
+            for (int i = 0; i < slots; i++) {
+                state.freeSlots[i] = buffer.getInt();
+            }
+            state.freeCount = buffer.getInt();
+            state.busyCount = buffer.getInt();
+            state.statistics = new StationStatistics(station.name, station.numServers);
+            state.statistics.readFrom(buffer);
+            
+            if (slots > 0) {
+                state.routingRandom = new long[4];
+                for (int i = 0; i < 4; i++) {
+                    state.routingRandom[i] = buffer.getLong();
+                }
+                state.serviceRandom = new long[4];
+                for (int i = 0; i < 4; i++) {
+                    state.serviceRandom[i] = buffer.getLong();
+                }
+                state.serviceTimes = new double[buffer.getInt()];
+                for (int i = 0; i < state.serviceTimes.length; i++) {
+                    state.serviceTimes[i] = buffer.getDouble();
+                }
+                state.serviceTimePos = buffer.getInt();
+                state.serviceTimeCount = buffer.getInt();
+                if (buffer.get() != 0) {
+                    state.slotServiceTimes = new double[slots];
+                    for (int i = 0; i < slots; i++) {
+                        state.slotServiceTimes[i] = buffer.getDouble();
+                    }
+                }
+            }
+            state.jobCount = buffer.getInt();
+            return state;
         }
-
-        public QueueStation getStation() {
-            return this.station;
+        
+        private static void writeJob(ByteBuffer buffer, Job job) {
+            buffer.putDouble(job.getEntryTime()).putDouble(job.getArrivalTime())
+                    .putDouble(job.getStartTime()).putDouble(job.getEndTime()).putInt(job.getId());
+        }
+        
+        private static Job readJob(ByteBuffer buffer) {
+            Job job = new Job();
+            job.setEntryTime(buffer.getDouble());
+            job.setArrivalTime(buffer.getDouble());
+            job.setStartTime(buffer.getDouble());
+            job.setEndTime(buffer.getDouble());
+            job.setId(buffer.getInt());
+            return job;
         }
-
     }
 }
@@ -0,0 +1,36 @@
+package simcomponents;
+
+import java.util.random.RandomGenerator;
+import randomgenr.Distribution;
+import randomgenr.Xoshiro256PlusPlus;
+
+/**
+ * Saves and restores the position of a distribution's uniform generator, so
+ * that a rolled-back component draws the same variates again. Only the
+ * xoshiro256++ backend exposes its state.
+ *
+ * @author Ryan Owens
+ */
+final class RandomState {
+
+    private RandomState() {
+    }
+
+    static long[] save(Distribution distribution) {
+        return xoshiro(distribution).getState();
+    }
+
+    static void restore(Distribution distribution, long[] state) {
+        xoshiro(distribution).setState(state);
+    }
+
+    private static Xoshiro256PlusPlus xoshiro(Distribution distribution) {
+        RandomGenerator generator = distribution.getGenerator();
+
+        if (!(generator instanceof Xoshiro256PlusPlus)) {
+            throw new IllegalStateException("The state of " + generator.getClass().getSimpleName()
+                    + " cannot be saved; use the XOSHIRO256PP backend.");
+        }
+        return (Xoshiro256PlusPlus) generator;
+    }
+}
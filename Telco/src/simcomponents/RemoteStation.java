@@ -0,0 +1,33 @@
+package simcomponents;
+
+/**
+ * Stands in for a queue station of another logical process in the routing
+ * tables of local stations, forwarding every job it is given over a link.
+ *
+ * @author Ryan Owens
+ */
+final class RemoteStation extends QueueStation {
+    private final JobLink link;
+    private final InboundPort port;
+
+    RemoteStation(QueueStation station, JobLink link, InboundPort port) {
+        super(station.getName(), -1, 0.0);
+        this.link = link;
+        this.port = port;
+    }
+
+    @Override
+    public void addJob(Job job, double simTime) {
+        this.link.send(simTime, this.port, job);
+    }
+
+    @Override
+    public void execute(double simTime) {
+        throw new UnsupportedOperationException("A remote station never executes events.");
+    }
+
+    @Override
+    public void register(EventObserver observer) {
+        throw new UnsupportedOperationException("A remote station cannot be registered.");
+    }
+}
@@ -0,0 +1,123 @@
+package simcomponents;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics merged across independent replications. For every station, each
+ * per-replication measure is accumulated as one observation, giving the mean,
+ * standard deviation and a 95% confidence interval across replications.
+ *
+ * @author Ryan Owens
+ */
+public class ReplicationResults {
+    public static final String COMPLETED = "completed jobs";
+    public static final String WAIT = "mean wait";
+    public static final String RESPONSE = "mean response";
+
+    private final Map<String, Map<String, Accumulator>> stations = new LinkedHashMap<>();
+    private int replications;
+
+    /**
+     * Adds the results of one finished replication.
+     *
+     * @param results station name to measure name to value
+     */
+    synchronized void add(Map<String, Map<String, Double>> results) {
+        for (Map.Entry<String, Map<String, Double>> station : results.entrySet()) {
+            Map<String, Accumulator> measures = this.stations.computeIfAbsent(station.getKey(), k -> new LinkedHashMap<>());
+
+            for (Map.Entry<String, Double> measure : station.getValue().entrySet()) {
+                measures.computeIfAbsent(measure.getKey(), k -> new Accumulator()).add(measure.getValue());
+            }
+        }
+        this.replications++;
+    }
+
+    /**
+     * Collects the measures of a finished run.
+     */
+    static Map<String, Map<String, Double>> collect(List<QueueStation> stations) {
+        Map<String, Map<String, Double>> results = new LinkedHashMap<>();
+
+        for (QueueStation station : stations) {
+            Map<String, Double> measures = new LinkedHashMap<>();
+            measures.put(COMPLETED, (double) station.getCompletedJobCount());
+            if (!(station instanceof Transducer)) {
+                measures.put(WAIT, station.getMeanWaitTime());
+            }
+            measures.put(RESPONSE, station.getMeanResponseTime());
+            results.put(station.getName(), measures);
+        }
+        return results;
+    }
+
+    public synchronized int getReplications() {
+        return this.replications;
+    }
+
+    public synchronized double getMean(String station, String measure) {
+        return accumulator(station, measure).mean;
+    }
+
+    public synchronized double getStandardDeviation(String station, String measure) {
+        return Math.sqrt(accumulator(station, measure).variance());
+    }
+
+    /**
+     * Half-width of an approximate 95% confidence interval for the mean.
+     */
+    public synchronized double getHalfWidth(String station, String measure) {
+        Accumulator acc = accumulator(station, measure);
+        return (acc.count < 2) ? Double.NaN : 1.96 * Math.sqrt(acc.variance() / acc.count);
+    }
+
+    public synchronized void print(PrintStream out) {
+        out.printf("Results over %d replication(s)%n", this.replications);
+        for (Map.Entry<String, Map<String, Accumulator>> station : this.stations.entrySet()) {
+            out.println(station.getKey());
+            for (Map.Entry<String, Accumulator> measure : station.getValue().entrySet()) {
+                Accumulator acc = measure.getValue();
+                out.printf("\t%-14s %12.4f +/- %.4f (sd %.4f, n=%d)%n", measure.getKey(), acc.mean,
+                        (acc.count < 2) ? Double.NaN : 1.96 * Math.sqrt(acc.variance() / acc.count),
+                        Math.sqrt(acc.variance()), acc.count);
+            }
+        }
+    }
+
+    private Accumulator accumulator(String station, String measure) {
+        Map<String, Accumulator> measures = this.stations.get(station);
+        Accumulator acc = (measures == null) ? null : measures.get(measure);
+
+        if (acc == null) {
+            throw new IllegalArgumentException("No results for " + station + " / " + measure);
+        }
+        return acc;
+    }
+
+    /**
+     * Welford running mean and variance; replications without a value (NaN)
+     * are skipped.
+     */
+    private static final class Accumulator {
+        private int count;
+        private double mean;
+        private double m2;
+
+        void add(double x) {
+            if (Double.isNaN(x)) {
+                return;
+            }
+            this.count++;
+            double delta = x - this.mean;
+            this.mean += delta / this.count;
+            this.m2 += delta * (x - this.mean);
+        }
+
+        double variance() {
+            return (this.count < 2) ? Double.NaN : this.m2 / (this.count - 1);
+        }
+    }
+}
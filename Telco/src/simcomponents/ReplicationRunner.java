@@ -0,0 +1,114 @@
+package simcomponents;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import randomgenr.RandomBackend;
+import randomgenr.RandomStreams;
+
+/**
+ * Runs independent replications of a model concurrently. Every replication gets
+ * its own SimEngine and its own random streams, derived from a base seed by
+ * replication number, so results do not depend on the number of threads.
+ *
+ * @author Ryan Owens
+ */
+public class ReplicationRunner {
+    private final SimModel model;
+    private final double endTime;
+    private RandomStreams baseStreams;
+    private EventListType eventListType;
+    private boolean pooling;
+
+    /**
+     * @param model the model to build for every replication
+     * @param endTime simulation end time of each replication
+     * @param baseSeed seed from which every replication's seed is derived
+     */
+    public ReplicationRunner(SimModel model, double endTime, long baseSeed) {
+        this.model = model;
+        this.endTime = endTime;
+        this.baseStreams = new RandomStreams(baseSeed);
+        this.eventListType = EventListType.BINARY_HEAP;
+        this.pooling = false;
+    }
+
+    public void setEventListType(EventListType eventListType) {
+        this.eventListType = eventListType;
+    }
+
+    public void setPooling(boolean pooling) {
+        this.pooling = pooling;
+    }
+
+    public void setRandomBackend(RandomBackend backend) {
+        this.baseStreams = new RandomStreams(this.baseStreams.getMasterSeed(), backend);
+    }
+
+    /**
+     * Runs replications on one thread per available processor.
+     *
+     * @param replications number of replications
+     * @return the merged results
+     */
+    public ReplicationResults run(int replications) throws InterruptedException {
+        return run(replications, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Runs replications on a fixed number of threads.
+     *
+     * @param replications number of replications
+     * @param threads number of worker threads
+     * @return the merged results
+     */
+    public ReplicationResults run(int replications, int threads) throws InterruptedException {
+        if (replications < 1 || threads < 1) {
+            throw new IllegalArgumentException("Replications and threads must be positive.");
+        }
+
+        ReplicationResults results = new ReplicationResults();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, replications), r -> {
+            Thread t = new Thread(r, "replication-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            List<Future<Map<String, Map<String, Double>>>> futures = new ArrayList<>(replications);
+            for (int r = 0; r < replications; r++) {
+                final int index = r;
+                futures.add(executor.submit(() -> runReplication(index)));
+            }
+
+            // merge in replication order so results do not depend on scheduling
+            for (Future<Map<String, Map<String, Double>>> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException ee) {
+            throw new IllegalStateException("Replication failed.", ee.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return results;
+    }
+
+    private Map<String, Map<String, Double>> runReplication(int index) {
+        SimEngine engine = new SimEngine(this.baseStreams.replication(index));
+        engine.setEndTime(this.endTime);
+        engine.setEventList(this.eventListType.create());
+        engine.setPooling(this.pooling);
+
+        List<QueueStation> stations = this.model.build(engine);
+        engine.simulate();
+
+        return ReplicationResults.collect(stations);
+    }
+}
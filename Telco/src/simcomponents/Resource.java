@@ -0,0 +1,117 @@
+package simcomponents;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+
+import simstats.StationStatistics;
+
+/**
+ * A station for SimProcesses: a number of identical servers and a FIFO queue
+ * of the processes waiting for one. A released server is handed straight to
+ * the first waiting process, so later arrivals cannot overtake it. Waits,
+ * service (the time a server is held) and sojourn times are collected in the
+ * same StationStatistics as a QueueStation's.
+ *
+ * @author Ryan Owens
+ */
+public final class Resource {
+    private final String name;
+    private final int servers;
+    private final ArrayDeque<SimProcess> waiting = new ArrayDeque<>();
+    private final IdentityHashMap<SimProcess, double[]> visits = new IdentityHashMap<>();  // arrival, start
+    private final StationStatistics statistics;
+    private int busy = 0;
+
+    /**
+     * @param name name of the resource
+     * @param servers number of servers
+     */
+    public Resource(String name, int servers) {
+        if (servers < 1) {
+            throw new IllegalArgumentException("A resource needs at least one server.");
+        }
+
+        this.name = name;
+        this.servers = servers;
+        this.statistics = new StationStatistics(name, servers);
+    }
+
+    /**
+     * Queues a process and gives it a server if one is free.
+     *
+     * @return true if the process has a server, false if it must wait
+     */
+    boolean acquire(SimProcess process, double simTime) {
+        if (this.visits.containsKey(process)) {
+            throw new IllegalStateException("Process " + process.getName() + " already holds or waits for "
+                    + this.name + ".");
+        }
+
+        this.visits.put(process, new double[] {simTime, Double.NaN});
+        this.waiting.add(process);
+
+        boolean served = this.busy < this.servers;
+        if (served) {
+            startNext(simTime);
+        }
+        this.statistics.jobArrived(simTime, this.waiting.size());
+        return served;
+    }
+
+    /**
+     * Frees a process's server and hands it to the first waiting process,
+     * which resumes at the current time.
+     */
+    void release(SimProcess process, double simTime) {
+        double[] visit = this.visits.remove(process);
+        this.busy--;
+        this.statistics.jobCompleted(simTime, simTime - visit[1], simTime - visit[0], this.busy);
+
+        SimProcess next = startNext(simTime);
+        if (next != null) {
+            next.wake();
+        }
+    }
+
+    private SimProcess startNext(double simTime) {
+        SimProcess next = this.waiting.poll();
+        if (next != null) {
+            double[] visit = this.visits.get(next);
+            visit[1] = simTime;
+            this.busy++;
+            this.statistics.jobStarted(simTime, simTime - visit[0], this.waiting.size(), this.busy);
+        }
+        return next;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public int getServers() {
+        return this.servers;
+    }
+
+    public int getBusyServers() {
+        return this.busy;
+    }
+
+    public int getQueueLength() {
+        return this.waiting.size();
+    }
+
+    public StationStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Writes the resource's statistics up to a time.
+     *
+     * @param out stream to write to
+     * @param simTime the current simulation time
+     */
+    public void report(PrintStream out, double simTime) {
+        this.statistics.report(out, simTime);
+    }
+}
@@ -0,0 +1,220 @@
+package simcomponents;
+
+import java.util.Arrays;
+
+import randomgenr.UniformGenr;
+
+/**
+ * Probabilistic routing from a queue station to its output stations, compiled
+ * once into a form that selects a destination in constant time. Small fan-outs
+ * use a cumulative distribution with binary search (one uniform draw); larger
+ * fan-outs use Walker's alias method (two uniform draws).
+ *
+ * @author Ryan Owens
+ */
+final class RoutingTable {
+    static final int CUMULATIVE_LIMIT = 8;      // largest fan-out using the cumulative form
+    private static final double TOLERANCE = 1e-9;
+
+    private QueueStation[] stations = new QueueStation[4];
+    private double[] probabilities = new double[4];
+    private int size;
+
+    // compiled form
+    private boolean compiled;
+    private double[] cumulative;
+    private double[] aliasProbability;
+    private int[] alias;
+
+    void add(QueueStation station, double probability) {
+        if (probability < 0.0 || Double.isNaN(probability)) {
+            throw new IllegalArgumentException("Output probability must not be negative.");
+        }
+
+        if (this.size == this.stations.length) {
+            this.stations = Arrays.copyOf(this.stations, this.size * 2);
+            this.probabilities = Arrays.copyOf(this.probabilities, this.size * 2);
+        }
+        this.stations[this.size] = station;
+        this.probabilities[this.size] = probability;
+        this.size++;
+        this.compiled = false;
+    }
+
+    /**
+     * Validates the probabilities and builds the selection tables.
+     *
+     * @throws IllegalStateException if there are no outputs, or the
+     * probabilities do not sum to unity
+     */
+    void compile() {
+        if (this.size == 0) {
+            throw new IllegalStateException("No output stations have been added.");
+        }
+
+        double sum = checkedSum(this.probabilities, this.size);
+
+        if (this.size <= CUMULATIVE_LIMIT) {
+            this.cumulative = new double[this.size];
+            buildCumulative(this.probabilities, this.size, this.cumulative);
+            this.aliasProbability = null;
+            this.alias = null;
+        } else {
+            this.aliasProbability = new double[this.size];
+            this.alias = new int[this.size];
+            buildAlias(this.probabilities, this.size, sum, this.aliasProbability, this.alias);
+            this.cumulative = null;
+        }
+        this.compiled = true;
+    }
+
+    /**
+     * Selects an output station, compiling the table on first use.
+     *
+     * @param uniform generator of uniform variates on [0,1)
+     * @return the selected station
+     */
+    QueueStation select(UniformGenr uniform) {
+        if (!this.compiled) {
+            compile();
+        }
+
+        if (this.cumulative != null) {
+            double u = uniform.nextVariate();
+            int lo = 0;
+            int hi = this.size - 1;
+
+            // first entry whose cumulative probability exceeds u
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (u < this.cumulative[mid]) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            return this.stations[lo];
+        }
+
+        int column = (int) (uniform.nextVariate() * this.size);
+        if (column >= this.size) {
+            column = this.size - 1;
+        }
+        return (uniform.nextVariate() < this.aliasProbability[column])
+                ? this.stations[column] : this.stations[this.alias[column]];
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    QueueStation getStation(int i) {
+        return this.stations[i];
+    }
+
+    double getProbability(int i) {
+        return this.probabilities[i];
+    }
+
+    /**
+     * Replaces every occurrence of one output station with another, keeping
+     * the probabilities and any compiled tables.
+     */
+    void replace(QueueStation oldStation, QueueStation newStation) {
+        for (int i = 0; i < this.size; i++) {
+            if (this.stations[i] == oldStation) {
+                this.stations[i] = newStation;
+            }
+        }
+    }
+
+    /**
+     * Sums output probabilities, checking that they sum to unity.
+     *
+     * @param probabilities the probabilities
+     * @param n number of probabilities
+     * @return their sum
+     * @throws IllegalStateException if the probabilities do not sum to unity
+     */
+    static double checkedSum(double[] probabilities, int n) {
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            sum += probabilities[i];
+        }
+        if (Math.abs(sum - 1.0) > TOLERANCE) {
+            throw new IllegalStateException("Invalid output stations. Output probabilities sum to "
+                    + sum + "; ensure they sum to unity.");
+        }
+        return sum;
+    }
+
+    /**
+     * Builds the cumulative table searched by select.
+     *
+     * @param probabilities the probabilities
+     * @param n number of probabilities
+     * @param cumulative receives the cumulative probabilities
+     */
+    static void buildCumulative(double[] probabilities, int n, double[] cumulative) {
+        double total = 0.0;
+        for (int i = 0; i < n; i++) {
+            total += probabilities[i];
+            cumulative[i] = total;
+        }
+        // guard against rounding leaving a gap just below one
+        cumulative[n - 1] = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Builds Walker alias tables using Vose's method.
+     *
+     * @param weights the (not necessarily normalized) weights
+     * @param n number of weights
+     * @param total sum of the weights
+     * @param probability receives the probability of keeping each column
+     * @param alias receives the alias of each column
+     */
+    static void buildAlias(double[] weights, int n, double total, double[] probability, int[] alias) {
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int numSmall = 0;
+        int numLarge = 0;
+
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1.0) {
+                small[numSmall++] = i;
+            } else {
+                large[numLarge++] = i;
+            }
+        }
+
+        while (numSmall > 0 && numLarge > 0) {
+            int s = small[--numSmall];
+            int l = large[--numLarge];
+
+            probability[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+
+            if (scaled[l] < 1.0) {
+                small[numSmall++] = l;
+            } else {
+                large[numLarge++] = l;
+            }
+        }
+
+        // whatever is left is (up to rounding) exactly full
+        while (numLarge > 0) {
+            int l = large[--numLarge];
+            probability[l] = 1.0;
+            alias[l] = l;
+        }
+        while (numSmall > 0) {
+            int s = small[--numSmall];
+            probability[s] = 1.0;
+            alias[s] = s;
+        }
+    }
+}
@@ -25,14 +25,20 @@
  */
 package simcomponents;
 
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+import randomgenr.RandomStreams;
+import simmetrics.EngineMetrics;
+import simtrace.JobTraceWriter;
+import simtrace.Tracer;
 
 /**
  * SimEngine class to execute queue station models.
- * Implements the Singleton design pattern...because.
+ * Each engine is an independent run context owning the clock, the future event
+ * list and the random number streams, so several runs can execute concurrently
+ * in one JVM. A shared default instance is still available through getInstance.
  * 
  * @author Gary R. Mayer
  */
@@ -40,10 +46,20 @@ public class SimEngine implements EventObserver {
     private static SimEngine instance;
     private double endTime;
     private double simTime;
-    private final PriorityQueue<SimEvent> eventQueue;
-    private List<SimEvent> finishedEvents;
+    private FutureEventList eventQueue;
+    private long eventSequence;
+    private long eventCount;                    // events dispatched
+    private int jobSequence;                    // id of the next job
+    private Tracer tracer;
+    private JobTraceWriter jobTrace;            // null unless job lifecycles are recorded
+    private EngineMetrics metrics;              // null unless monitored
+    private final IdentityHashMap<Simulatable, LongAdder> dispatchCounters = new IdentityHashMap<>();
+    private boolean pooling;                    // recycle events and jobs
+    private final ObjectPool<SimEvent> eventPool;
+    private final ObjectPool<Job> jobPool;
+    private RandomStreams randomStreams;
     
-    public static SimEngine getInstance() {
+    public static synchronized SimEngine getInstance() {
         
         if (SimEngine.instance == null) {
             SimEngine.instance = new SimEngine();
@@ -55,56 +71,470 @@ public class SimEngine implements EventObserver {
     @Override
     public void notify(SimEvent simEvent) {
         // change event delta time to simulation time
-        double eventTime = this.simTime + simEvent.getEventTime();
-        simEvent.setEventTime(eventTime);
+        simEvent.setEventTime(this.simTime + simEvent.getEventTime());
+        enqueue(simEvent);
+    }
+    
+    /**
+     * Puts an event whose time is already absolute in the event queue.
+     */
+    void enqueue(SimEvent simEvent) {
+        if (simEvent.getEventTime() < this.simTime) {
+            throw new IllegalStateException("Event for " + simEvent.getSimulatable().getName()
+                    + " at " + simEvent.getEventTime() + " is earlier than the simulation time " + this.simTime);
+        }
         
-        // put the simulation event in the event queue
+        simEvent.sequence = this.eventSequence++;
         this.eventQueue.add(simEvent);
-//        if(simEvent.getSimulatable().getName() != "Gen_1") {
-            System.out.printf("  Engine: Rec'vd event from " + simEvent.getSimulatable().getName()
-                    + " to occur at %.3f, total jobs: %d%n", eventTime, this.eventQueue.size());
-            this.finishedEvents.add(simEvent);
-//        }
+        this.tracer.eventScheduled(simEvent.getSimulatable().getName(), simEvent.getEventTime(), this.eventQueue.size());
+    }
+    
+    /**
+     * Schedules an event at an absolute simulation time.
+     * 
+     * @param simulatable the component to execute
+     * @param eventTime absolute time of the event
+     * @param job the job the event concerns, or null
+     */
+    void schedule(Simulatable simulatable, double eventTime, Job job) {
+        SimEvent simEvent = this.pooling ? this.eventPool.obtain() : null;
+        
+        if (simEvent == null) {
+            simEvent = new SimEvent(simulatable, eventTime, -1, job);
+        } else {
+            simEvent.reset(simulatable, eventTime, -1, job);
+        }
+        
+        enqueue(simEvent);
+    }
+    
+    /**
+     * Removes and returns the earliest pending event without executing it.
+     */
+    SimEvent pollEvent() {
+        return this.eventQueue.poll();
+    }
+    
+    /**
+     * @return the time of the earliest pending event, or infinity if none
+     */
+    double nextEventTime() {
+        SimEvent next = this.eventQueue.peek();
+        
+        return (next != null) ? next.getEventTime() : Double.POSITIVE_INFINITY;
+    }
+    
+    @Override
+    public void notify(Simulatable simulatable, double eventTime, int slot, Job job) {
+        SimEvent simEvent = this.pooling ? this.eventPool.obtain() : null;
+        
+        if (simEvent == null) {
+            simEvent = new SimEvent(simulatable, eventTime, slot, job);
+        } else {
+            simEvent.reset(simulatable, eventTime, slot, job);
+        }
+        
+        notify(simEvent);
+    }
+    
+    /**
+     * Provides a job for a new arrival, reusing a released one when pooling.
+     * Jobs are numbered in the order they are obtained.
+     * 
+     * @return a job with no recorded times
+     */
+    public Job obtainJob() {
+        Job job = this.pooling ? this.jobPool.obtain() : null;
+        
+        if (job == null) {
+            job = new Job();
+        } else {
+            job.reset();
+        }
+        job.setId(this.jobSequence++);
+        return job;
+    }
+    
+    /**
+     * Returns a job that has left the system. Ignored unless pooling.
+     * 
+     * @param job the job, which must no longer be referenced by the caller
+     */
+    public void releaseJob(Job job) {
+        if (this.pooling) {
+            this.jobPool.release(job);
+        }
+    }
+    
+    /**
+     * Enables recycling of SimEvent and Job instances so that a steady-state
+     * run allocates nothing per event. Components do not retain finished jobs
+     * while pooling, since those instances are reused.
+     * 
+     * @param pooling true to recycle events and jobs
+     */
+    public void setPooling(boolean pooling) {
+        this.pooling = pooling;
+    }
+    
+    public boolean isPooling() {
+        return this.pooling;
+    }
+    
+    /**
+     * Sets the trace facility used by the engine and its components. Should be
+     * set before any components are registered.
+     * 
+     * @param tracer the tracer; Tracer.OFF disables tracing
+     */
+    public void setTracer(Tracer tracer) {
+        this.tracer = tracer;
+    }
+    
+    public Tracer getTracer() {
+        return this.tracer;
+    }
+    
+    /**
+     * Records every job's visit to every station of this engine's run. The
+     * caller closes the writer after the run.
+     * 
+     * @param jobTrace the writer, or null to record nothing
+     */
+    public void setJobTrace(JobTraceWriter jobTrace) {
+        this.jobTrace = jobTrace;
+    }
+    
+    public JobTraceWriter getJobTrace() {
+        return this.jobTrace;
+    }
+    
+    /**
+     * Counts dispatched events for monitoring, e.g. over JMX.
+     * 
+     * @param metrics the counters to update, or null to stop counting
+     */
+    public void setMetrics(EngineMetrics metrics) {
+        this.metrics = metrics;
+        this.dispatchCounters.clear();
+        if (metrics != null) {
+            metrics.sampleSimTime(this.simTime);
+        }
+    }
+    
+    /**
+     * @return the number of scheduled events
+     */
+    int getPendingEventCount() {
+        return this.eventQueue.size();
     }
     
     public void setEndTime(double endTime) {
         this.endTime = endTime;
     }
     
+    public double getEndTime() {
+        return this.endTime;
+    }
+    
+    public double getSimTime() {
+        return this.simTime;
+    }
+    
+    /**
+     * Sets the master seed from which every registered component's random
+     * streams are derived. Should be set before components are registered.
+     * 
+     * @param seed the master random seed for this run
+     */
+    public void setSeed(long seed) {
+        this.randomStreams = new RandomStreams(seed, this.randomStreams.getBackend());
+    }
+    
+    /**
+     * Replaces the random streams, e.g. to choose another generator backend.
+     * Should be set before components are registered.
+     * 
+     * @param randomStreams the streams for this run
+     */
+    public void setRandomStreams(RandomStreams randomStreams) {
+        this.randomStreams = randomStreams;
+    }
+    
+    public RandomStreams getRandomStreams() {
+        return this.randomStreams;
+    }
+    
+    /**
+     * Replaces the future event list implementation. Any events that have
+     * already been scheduled are moved to the new list.
+     * 
+     * @param eventList the (typically empty) event list to use
+     */
+    public void setEventList(FutureEventList eventList) {
+        SimEvent pending;
+        
+        while ((pending = this.eventQueue.poll()) != null) {
+            eventList.add(pending);
+        }
+        this.eventQueue = eventList;
+    }
+    
     public void simulate() {
         SimEvent nextEvent;
-        Simulatable simulatable;
-        System.out.printf("Simulation time: %.3f. Running until: %.1f%n", this.simTime, this.endTime);
+        this.tracer.runStart(this.simTime, this.endTime);
         
         while ((this.endTime > this.simTime) && (!this.eventQueue.isEmpty())) {
             // get next event
             nextEvent = this.eventQueue.poll();
             
             if (nextEvent != null) {
-                // update sim time; assumes event time is sim time
-                this.simTime = nextEvent.getEventTime();
-                if(nextEvent.getSimulatable().getName() != "Gen_1")
-                System.out.printf("%nEvent simulation time: %.3f%n", this.simTime);
-                
-                // make the next event happen
-                simulatable = nextEvent.getSimulatable();
-                simulatable.execute(this.simTime);
+                dispatch(nextEvent);
             }
         }
         
-        System.out.printf("Last event at %.3f%n.", this.simTime);
+        if (this.metrics != null) {
+            this.metrics.sampleSimTime(this.simTime);
+        }
+        this.tracer.runEnd(this.simTime);
     }
     
-    private SimEngine() {
+    /**
+     * Runs like simulate, but calls an action, typically one that writes a
+     * checkpoint, every interval of simulated time. The action runs between
+     * events, once every event before its time has executed, and must not
+     * change the state of the run.
+     * 
+     * @param interval simulated time between calls
+     * @param action the action to call
+     */
+    public void simulate(double interval, Runnable action) {
+        if (!(interval > 0.0)) {
+            throw new IllegalArgumentException("Interval must be positive.");
+        }
+        
+        double nextAction = this.simTime + interval;
+        SimEvent nextEvent;
+        this.tracer.runStart(this.simTime, this.endTime);
+        
+        while ((this.endTime > this.simTime) && (nextEvent = this.eventQueue.peek()) != null) {
+            if (nextEvent.getEventTime() >= nextAction) {
+                action.run();
+                while (nextAction <= nextEvent.getEventTime()) {
+                    nextAction += interval;
+                }
+            }
+            dispatch(this.eventQueue.poll());
+        }
+        
+        if (this.metrics != null) {
+            this.metrics.sampleSimTime(this.simTime);
+        }
+        this.tracer.runEnd(this.simTime);
+    }
+    
+    /**
+     * Executes, in time order, the pending events that are no later than a
+     * horizon and earlier than the end time. Used by the logical processes of
+     * a parallel simulation, which only know that the events up to the horizon
+     * are safe.
+     * 
+     * @param horizon latest event time that may be executed
+     * @return number of events executed
+     */
+    int simulateUntil(double horizon) {
+        return simulateUntil(horizon, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Executes at most a given number of the pending events that are no later
+     * than a horizon and earlier than the end time.
+     * 
+     * @param horizon latest event time that may be executed
+     * @param maxEvents largest number of events to execute
+     * @return number of events executed
+     */
+    int simulateUntil(double horizon, int maxEvents) {
+        int executed = 0;
+        SimEvent nextEvent;
+        
+        while (executed < maxEvents && (nextEvent = this.eventQueue.peek()) != null
+                && nextEvent.getEventTime() <= horizon && nextEvent.getEventTime() < this.endTime) {
+            dispatch(this.eventQueue.poll());
+            executed++;
+        }
+        return executed;
+    }
+    
+    /**
+     * Moves the clock forward without executing events, e.g. to the end time
+     * once a logical process has finished.
+     */
+    void advanceTo(double time) {
+        if (time > this.simTime) {
+            this.simTime = time;
+        }
+    }
+    
+    /**
+     * Discards every pending event and sets the clock and event count back to
+     * saved values, e.g. when a logical process rolls back to a checkpoint.
+     * 
+     * @param simTime the saved simulation time
+     * @param eventCount the saved number of dispatched events
+     * @param eventList an empty event list to schedule into from now on
+     */
+    void reset(double simTime, long eventCount, FutureEventList eventList) {
+        this.simTime = simTime;
+        this.eventCount = eventCount;
+        this.eventQueue = eventList;
+    }
+    
+    /**
+     * Returns the pending events in execution order, leaving them scheduled.
+     */
+    List<SimEvent> pendingEvents() {
+        List<SimEvent> pending = new ArrayList<>(this.eventQueue.size());
+        SimEvent event;
+        
+        while ((event = this.eventQueue.poll()) != null) {
+            pending.add(event);
+        }
+        for (SimEvent e : pending) {
+            this.eventQueue.add(e);
+        }
+        return pending;
+    }
+    
+    long getEventSequence() {
+        return this.eventSequence;
+    }
+    
+    int getJobSequence() {
+        return this.jobSequence;
+    }
+    
+    /**
+     * Discards every pending event, returning it to the pool when pooling, and
+     * sets the clock and counters to values read from a checkpoint. Events are
+     * then restored with restoreEvent.
+     */
+    void restore(double simTime, long eventSequence, long eventCount, int jobSequence) {
+        SimEvent discarded;
+        while ((discarded = this.eventQueue.poll()) != null) {
+            if (this.pooling) {
+                this.eventPool.release(discarded);
+            }
+        }
+        this.simTime = simTime;
+        this.eventSequence = eventSequence;
+        this.eventCount = eventCount;
+        this.jobSequence = jobSequence;
+    }
+    
+    /**
+     * Schedules an event read from a checkpoint, keeping its sequence number
+     * so that ties are broken as they were in the original run.
+     */
+    void restoreEvent(Simulatable simulatable, double eventTime, int slot, Job job, long sequence) {
+        SimEvent simEvent = this.pooling ? this.eventPool.obtain() : null;
+        
+        if (simEvent == null) {
+            simEvent = new SimEvent(simulatable, eventTime, slot, job);
+        } else {
+            simEvent.reset(simulatable, eventTime, slot, job);
+        }
+        simEvent.sequence = sequence;
+        this.eventQueue.add(simEvent);
+    }
+    
+    /**
+     * @return the number of released events waiting to be reused
+     */
+    int getPooledEventCount() {
+        return this.eventPool.size();
+    }
+    
+    /**
+     * @return the number of events dispatched so far
+     */
+    long getEventCount() {
+        return this.eventCount;
+    }
+    
+    private void dispatch(SimEvent nextEvent) {
+        // update sim time; assumes event time is sim time
+        this.simTime = nextEvent.getEventTime();
+        this.eventCount++;
+        
+        // make the next event happen
+        Simulatable simulatable = nextEvent.getSimulatable();
+        this.tracer.eventDispatched(simulatable.getName(), this.simTime);
+        if (this.metrics != null) {
+            countDispatch(simulatable);
+        }
+        FlightEvents.Dispatch flightEvent = null;
+        if (FlightEvents.DISPATCH.isEnabled()) {
+            flightEvent = new FlightEvents.Dispatch();
+            flightEvent.begin();
+        }
+        simulatable.execute(nextEvent);
+        if (flightEvent != null && flightEvent.shouldCommit()) {
+            flightEvent.component = simulatable.getName();
+            flightEvent.simTime = this.simTime;
+            flightEvent.commit();
+        }
+        
+        if (this.pooling) {
+            this.eventPool.release(nextEvent);
+        }
+    }
+    
+    private void countDispatch(Simulatable simulatable) {
+        LongAdder counter = this.dispatchCounters.get(simulatable);
+        
+        if (counter == null) {
+            counter = this.metrics.dispatchCounter(simulatable.getName());
+            this.dispatchCounters.put(simulatable, counter);
+        }
+        this.metrics.eventDispatched(counter);
+        if ((this.eventCount & (EngineMetrics.SAMPLE_EVENTS - 1)) == 0) {
+            this.metrics.sampleSimTime(this.simTime);
+        }
+    }
+    
+    /**
+     * Creates an engine whose random streams are seeded from the system clock.
+     */
+    public SimEngine() {
+        this(System.nanoTime() ^ Thread.currentThread().getId());
+    }
+    
+    /**
+     * Creates an engine with a master random seed.
+     * 
+     * @param seed the master random seed for this run
+     */
+    public SimEngine(long seed) {
+        this(new RandomStreams(seed));
+    }
+    
+    /**
+     * Creates an engine with the given random streams.
+     * 
+     * @param randomStreams the streams for this run
+     */
+    public SimEngine(RandomStreams randomStreams) {
+        this.randomStreams = randomStreams;
         this.endTime = 0.0;
         this.simTime = 0.0;
-        this.eventQueue = new PriorityQueue<>(10);
-        this.finishedEvents = new LinkedList<SimEvent>();
-    }
-
-    public void printResults()
-    {
-        Collections.sort(this.finishedEvents);
+        this.eventQueue = new BinaryHeapEventList();
+        this.eventSequence = 0;
+        this.eventCount = 0;
+        this.tracer = Tracer.OFF;
+        this.pooling = false;
+        this.eventPool = new ObjectPool<>(64);
+        this.jobPool = new ObjectPool<>(64);
     }
     
 }
@@ -33,22 +33,43 @@ package simcomponents;
  * @author Gary R. Mayer
  */
 public class SimEvent implements Comparable<SimEvent> {
-    private final Simulatable simulatable;
-    private Double time;
+    private Simulatable simulatable;
+    private double time;
+    private int slot;   // optional handle supplied by the simulatable, e.g. a server slot
+    private Job job;    // optional job the event applies to
+    long sequence;      // scheduling order; breaks ties between equal event times
+    SimEvent next;      // intrusive link used by the bucketed future event lists
+
     /**
      * Creates a SimEvent instance.
      * 
      * @param simulatable the Simulatable object with the upcoming event
      * @param eventTime the event time
      */
-    public SimEvent(Simulatable simulatable, Double eventTime) {
+    public SimEvent(Simulatable simulatable, double eventTime) {
+        this(simulatable, eventTime, -1, null);
+    }
+    
+    /**
+     * Creates a SimEvent instance that carries a handle back to the state it
+     * applies to, so the simulatable does not need to search for it.
+     * 
+     * @param simulatable the Simulatable object with the upcoming event
+     * @param eventTime the event time
+     * @param slot a simulatable-specific index, e.g. a server slot; -1 if unused
+     * @param job the job the event applies to, or null
+     */
+    public SimEvent(Simulatable simulatable, double eventTime, int slot, Job job) {
         this.simulatable = simulatable;
         this.time = eventTime;
+        this.slot = slot;
+        this.job = job;
     }
         
     /**
      * Comparison of two simulation events for the purposes of ordering. The
      * method returns a comparison based upon the event time delta values.
+     * Events with equal times are ordered by when they were scheduled.
      * 
      * @param event simulation event to which this one should be compared
      * @return 
@@ -56,10 +77,9 @@ public class SimEvent implements Comparable<SimEvent> {
     @Override
     public int compareTo(SimEvent event) {
         // Assume neither SimEvent is null
-        Double eventTime2 = event.time;
+        int result = Double.compare(this.time, event.time);
         
-        // use Double's innate numeric comparator
-        return this.time.compareTo(eventTime2);
+        return (result != 0) ? result : Long.compare(this.sequence, event.sequence);
     }
     
     /**
@@ -71,6 +91,18 @@ public class SimEvent implements Comparable<SimEvent> {
         return this.simulatable;
     }
     
+    /**
+     * Reinitializes a pooled event for reuse.
+     */
+    void reset(Simulatable simulatable, double eventTime, int slot, Job job) {
+        this.simulatable = simulatable;
+        this.time = eventTime;
+        this.slot = slot;
+        this.job = job;
+        this.sequence = 0;
+        this.next = null;
+    }
+    
     /**
      * Provides the event time. This may be either the event time delta--the time
      * from when the upcoming simulation event was recorded, that the event will
@@ -78,13 +110,35 @@ public class SimEvent implements Comparable<SimEvent> {
      * 
      * @return the event time delta
      */
-    public Double getEventTime() {
+    public double getEventTime() {
         return this.time;
     }
 
-    public void setEventTime(Double eventTime) {
+    /**
+     * @return the simulatable-specific handle, or -1 if none was given
+     */
+    public int getSlot() {
+        return this.slot;
+    }
+
+    /**
+     * @return the job the event applies to, or null
+     */
+    public Job getJob() {
+        return this.job;
+    }
+
+    public void setEventTime(double eventTime) {
         this.time = eventTime;
     }
 
-    
+    /**
+     * Primitive ordering test used by the future event lists; avoids the
+     * Comparable call on the hot path.
+     * 
+     * @return true if event a must be executed before event b
+     */
+    static boolean precedes(SimEvent a, SimEvent b) {
+        return (a.time < b.time) || (a.time == b.time && a.sequence < b.sequence);
+    }
 }
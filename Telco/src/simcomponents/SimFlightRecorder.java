@@ -0,0 +1,103 @@
+package simcomponents;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+/**
+ * Connects a run to Java Flight Recorder. While open, the periodic
+ * simcomponents.EventListSample and simcomponents.QueueDepthSample events
+ * sample the run's engine and stations whenever a recording has them
+ * enabled. startRecording records the JDK's default events together with
+ * every simulation event. Dispatch, job start and job completion events are
+ * emitted by the engine and stations themselves, so any recording that enables
+ * them sees them, with or without this class.
+ *
+ * Samples are taken on JFR's own thread, so like the JMX metrics they may see
+ * slightly stale values.
+ *
+ * @author Ryan Owens
+ */
+public final class SimFlightRecorder implements Closeable {
+    private final Runnable eventListHook;
+    private final Runnable queueDepthHook;
+    private Recording recording;
+
+    /**
+     * Registers the sampling of an engine and its stations.
+     *
+     * @param engine the engine of the run
+     * @param stations the stations to sample
+     */
+    public SimFlightRecorder(SimEngine engine, List<QueueStation> stations) {
+        this.eventListHook = () -> {
+            FlightEvents.EventListSample sample = new FlightEvents.EventListSample();
+            sample.simTime = engine.getSimTime();
+            sample.scheduledEvents = engine.getPendingEventCount();
+            sample.dispatchedEvents = engine.getEventCount();
+            sample.commit();
+        };
+        this.queueDepthHook = () -> {
+            for (QueueStation station : stations) {
+                FlightEvents.QueueDepthSample sample = new FlightEvents.QueueDepthSample();
+                sample.station = station.getName();
+                sample.queueLength = station.getQueueLength();
+                sample.busyServers = station.getBusyServers();
+                sample.commit();
+            }
+        };
+        FlightRecorder.addPeriodicEvent(FlightEvents.EventListSample.class, this.eventListHook);
+        FlightRecorder.addPeriodicEvent(FlightEvents.QueueDepthSample.class, this.queueDepthHook);
+    }
+
+    /**
+     * Starts a recording with the JDK's default settings and every simulation
+     * event enabled. It is written to the file when this recorder is closed.
+     *
+     * @param file the recording file to write
+     * @param dispatchThreshold shortest event dispatch to record; zero records
+     *        every dispatch, which slows the run considerably
+     * @throws IOException if the file cannot be used
+     * @throws ParseException if the JDK's default settings cannot be read
+     */
+    public void startRecording(Path file, Duration dispatchThreshold) throws IOException, ParseException {
+        Recording r = new Recording(Configuration.getConfiguration("default"));
+        r.enable(FlightEvents.Dispatch.class).withThreshold(dispatchThreshold);
+        r.enable(FlightEvents.JobStarted.class);
+        r.enable(FlightEvents.JobCompleted.class);
+        r.enable(FlightEvents.EventListSample.class).withPeriod(Duration.ofSeconds(1));
+        r.enable(FlightEvents.QueueDepthSample.class).withPeriod(Duration.ofSeconds(1));
+        r.setName("Telco simulation");
+        r.setDestination(file);
+        r.start();
+        this.recording = r;
+    }
+
+    /**
+     * Stops the recording, if any, writing it to its file, and stops sampling.
+     *
+     * @throws IOException if the recording cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        FlightRecorder.removePeriodicEvent(this.eventListHook);
+        FlightRecorder.removePeriodicEvent(this.queueDepthHook);
+
+        if (this.recording != null) {
+            Recording r = this.recording;
+            this.recording = null;
+            try {
+                r.stop();
+            } finally {
+                r.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package simcomponents;
+
+import java.util.List;
+
+/**
+ * A simulation model that can be instantiated into an engine, once per run.
+ * Used by ReplicationRunner to build an independent copy of the model for every
+ * replication.
+ *
+ * @author Ryan Owens
+ */
+public interface SimModel {
+
+    /**
+     * Creates the model's components, registers them with the engine and
+     * schedules their initial events.
+     *
+     * @param engine the engine for this run
+     * @return the stations whose results should be reported
+     */
+    List<QueueStation> build(SimEngine engine);
+}
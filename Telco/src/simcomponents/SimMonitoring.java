@@ -0,0 +1,82 @@
+package simcomponents;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import simmetrics.EngineMetrics;
+import simmetrics.StationMetrics;
+
+/**
+ * Publishes live metrics of a run as platform MBeans, so that tools such as
+ * JConsole or VisualVM can watch a long run without stopping it: one
+ * simcomponents:type=SimEngine bean and one
+ * simcomponents:type=QueueStation,name=... bean per station. Closing
+ * unregisters the beans and detaches the counters.
+ *
+ * @author Ryan Owens
+ */
+public final class SimMonitoring implements Closeable {
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private final SimEngine engine;
+    private final List<QueueStation> stations;
+    private final List<ObjectName> names = new ArrayList<>();
+
+    /**
+     * Attaches counters to an engine and its stations and registers their
+     * beans.
+     *
+     * @param engine the engine of the run
+     * @param stations the stations to monitor
+     * @param slotLength simulated time covered by each slice of the stations'
+     *        rolling windows
+     * @throws JMException if a bean cannot be registered, e.g. because
+     *         another run is already monitored
+     */
+    public SimMonitoring(SimEngine engine, List<QueueStation> stations, double slotLength) throws JMException {
+        this.engine = engine;
+        this.stations = stations;
+
+        try {
+            EngineMetrics engineMetrics = new EngineMetrics(engine::getPendingEventCount);
+            register(engineMetrics, new ObjectName("simcomponents:type=SimEngine"));
+            engine.setMetrics(engineMetrics);
+
+            for (QueueStation station : stations) {
+                StationMetrics metrics = new StationMetrics(station.getName(), station.getNumServers(),
+                        station::getQueueLength, station::getBusyServers, slotLength);
+                register(metrics, new ObjectName("simcomponents:type=QueueStation,name="
+                        + ObjectName.quote(station.getName())));
+                station.setMetrics(metrics);
+            }
+        } catch (JMException jme) {
+            close();
+            throw jme;
+        }
+    }
+
+    private void register(Object bean, ObjectName name) throws JMException {
+        this.server.registerMBean(bean, name);
+        this.names.add(name);
+    }
+
+    @Override
+    public void close() {
+        this.engine.setMetrics(null);
+        for (QueueStation station : this.stations) {
+            station.setMetrics(null);
+        }
+        for (ObjectName name : this.names) {
+            try {
+                this.server.unregisterMBean(name);
+            } catch (JMException jme) {
+                // already gone
+            }
+        }
+        this.names.clear();
+    }
+}
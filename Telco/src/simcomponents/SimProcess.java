@@ -0,0 +1,244 @@
+package simcomponents;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A job written as a sequential process instead of a set of callbacks. The
+ * run method describes the job's whole life and calls hold to let simulated
+ * time pass, and acquire and release to queue for and use the servers of a
+ * Resource; it runs on its own thread, which is parked while the job waits,
+ * and resumed by the engine in simulation time order. For example:
+ * <pre>
+ * class Caller extends SimProcess {
+ *     protected void run() {
+ *         acquire(agents);
+ *         hold(talkTime.nextVariate());
+ *         release();
+ *         if (needsTechnician) {
+ *             acquire(technicians);
+ *             hold(repairTime.nextVariate());
+ *             release();
+ *         }
+ *     }
+ * }
+ * scheduler.start(new Caller("Caller_1"), arrivalTime);
+ * </pre>
+ * Processes are started by a ProcessScheduler. The methods for subclasses may
+ * only be called from the process's own run method.
+ *
+ * @author Ryan Owens
+ */
+public abstract class SimProcess implements Simulatable {
+    private final String name;
+    private final Semaphore resumed = new Semaphore(0);
+    private final Semaphore yielded = new Semaphore(0);
+    private final ArrayDeque<Resource> held = new ArrayDeque<>(2);
+    private ProcessScheduler scheduler;
+    private Thread thread;
+    private boolean ended = false;
+    private boolean terminated = false;
+    private Throwable failure;
+
+    protected SimProcess(String name) {
+        this.name = name;
+    }
+
+    /**
+     * The life of the process. The process ends when this returns.
+     */
+    protected abstract void run();
+
+    void bind(ProcessScheduler processScheduler) {
+        if (this.scheduler != null) {
+            throw new IllegalStateException("Process " + this.name + " has already been started.");
+        }
+        this.scheduler = processScheduler;
+    }
+
+    /**
+     * Runs the process until it next holds, waits or ends. Called by the
+     * engine, on the engine's thread.
+     */
+    @Override
+    public void execute(double simTime) {
+        if (this.ended) {
+            return;
+        }
+
+        if (this.thread == null) {
+            this.thread = this.scheduler.newThread(this::body);
+            this.thread.start();
+        } else {
+            this.resumed.release();
+        }
+        this.yielded.acquireUninterruptibly();
+
+        if (this.failure != null) {
+            Throwable cause = this.failure;
+            this.failure = null;
+            throw new IllegalStateException("Process " + this.name + " failed at time " + simTime + ".", cause);
+        }
+    }
+
+    private void body() {
+        try {
+            run();
+        } catch (Terminated t) {
+            // ended by the scheduler
+        } catch (Throwable t) {
+            this.failure = t;
+        } finally {
+            this.ended = true;
+            this.scheduler.ended(this);
+            this.yielded.release();
+        }
+    }
+
+    /**
+     * Returns control to the engine until the process is resumed.
+     */
+    private void park() {
+        this.yielded.release();
+        this.resumed.acquireUninterruptibly();
+        if (this.terminated) {
+            throw new Terminated();
+        }
+    }
+
+    /**
+     * Schedules the process to resume at the current time, e.g. when it has
+     * been given a server it was waiting for.
+     */
+    void wake() {
+        SimEngine engine = this.scheduler.getEngine();
+        engine.schedule(this, engine.getSimTime(), null);
+    }
+
+    /**
+     * Ends the process if it is holding or waiting. Called by the scheduler,
+     * on the engine's thread.
+     */
+    void terminate() {
+        if (this.ended) {
+            return;
+        }
+        if (this.thread == null) {
+            this.ended = true;
+            return;
+        }
+
+        this.terminated = true;
+        this.resumed.release();
+        this.yielded.acquireUninterruptibly();
+    }
+
+    private void checkRunning() {
+        if (Thread.currentThread() != this.thread) {
+            throw new IllegalStateException("Only process " + this.name + " itself may do this.");
+        }
+    }
+
+    /**
+     * @return the current simulation time
+     */
+    protected final double now() {
+        return this.scheduler.getEngine().getSimTime();
+    }
+
+    /**
+     * Lets simulated time pass, e.g. while the job is being served.
+     *
+     * @param delay simulated time to hold for
+     */
+    protected final void hold(double delay) {
+        checkRunning();
+        if (delay < 0.0 || Double.isNaN(delay)) {
+            throw new IllegalArgumentException("Delay must not be negative.");
+        }
+
+        this.scheduler.getEngine().schedule(this, now() + delay, null);
+        park();
+    }
+
+    /**
+     * Takes a server of a resource, first waiting in its queue if every
+     * server is busy.
+     *
+     * @param resource the resource
+     */
+    protected final void acquire(Resource resource) {
+        checkRunning();
+
+        if (!resource.acquire(this, now())) {
+            park();
+        }
+        this.held.push(resource);
+    }
+
+    /**
+     * Gives back a server of a resource, handing it to the first process
+     * waiting for it.
+     *
+     * @param resource a resource this process holds
+     */
+    protected final void release(Resource resource) {
+        checkRunning();
+        if (!this.held.remove(resource)) {
+            throw new IllegalStateException("Process " + this.name + " does not hold " + resource.getName() + ".");
+        }
+
+        resource.release(this, now());
+    }
+
+    /**
+     * Gives back the resource this process acquired most recently.
+     */
+    protected final void release() {
+        Resource resource = this.held.peek();
+        if (resource == null) {
+            throw new IllegalStateException("Process " + this.name + " holds no resource.");
+        }
+        release(resource);
+    }
+
+    /**
+     * Starts another process, e.g. the next arrival.
+     *
+     * @param process a process that has not been started
+     * @param delay simulated time until it starts
+     */
+    protected final void start(SimProcess process, double delay) {
+        this.scheduler.start(process, delay);
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Processes are scheduled by their ProcessScheduler rather than observed.
+     */
+    @Override
+    public void register(EventObserver observer) {
+        throw new UnsupportedOperationException("Processes are started with a ProcessScheduler.");
+    }
+
+    @Override
+    public void unregister(EventObserver observer) {
+        throw new UnsupportedOperationException("Processes are started with a ProcessScheduler.");
+    }
+
+    /**
+     * Unwinds a process ended by its scheduler. An Error, so that the
+     * process's own handlers of exceptions do not catch it.
+     */
+    private static final class Terminated extends Error {
+        private static final long serialVersionUID = 1L;
+
+        Terminated() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,476 @@
+package simcomponents;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import randomgenr.RandomBackend;
+import randomgenr.RandomStreams;
+
+/**
+ * A long-lived simulation server, so that batches of short runs share one
+ * warmed-up JVM instead of each paying for JVM startup and JIT compilation.
+ * It listens on a Unix domain socket ("unix:/path") or a TCP port on the
+ * loopback address, and runs scenarios sent by any number of clients at once;
+ * at most one run per processor executes at a time.
+ *
+ * The protocol has no authentication, and a run reads whatever model file
+ * the client names, so a TCP server only binds loopback addresses. Binding
+ * any other address, such as 0.0.0.0, is refused unless the server is
+ * created with allowRemote, which main sets from telco.allowRemote. A Unix
+ * domain socket file left behind by a server that is no longer running is
+ * replaced; any other file at the path, or the socket of a live server, is
+ * left alone and the server does not start.
+ *
+ * The protocol is line based. Each request is one line, a command followed by
+ * optional key=value options:
+ * <pre>
+ * run [model=FILE] [end=HOURS] [seed=N] [days=N] [eventList=TYPE] [pooling=BOOL] [rng=BACKEND] [flat=BOOL]
+ * analytic [model=FILE] [days=N]
+ * ping
+ * quit
+ * </pre>
+ * Without a model, the built-in call center of BasicSimSystem is used, for
+ * the given number of work days. Topology files are read once and cached
+ * until they change. Runs without a seed are seeded from the clock; a
+ * topology runs on the FlatSimulator unless flat is false. The report of each
+ * station is streamed back as the run finishes, followed by a status line:
+ * <pre>
+ * END OK events=N simTime=T wallMillis=M
+ * END ERROR message
+ * </pre>
+ * A client may send any number of requests on one connection.
+ *
+ * @author Ryan Owens
+ */
+public final class SimServer implements Closeable {
+    private static final String UNIX_PREFIX = "unix:";
+    private static final int FILE_TYPE_MASK = 0170000;     // S_IFMT
+    private static final int SOCKET_TYPE = 0140000;        // S_IFSOCK
+
+    private final ServerSocketChannel server;
+    private final Path socketFile;                  // null for TCP
+    private final Object socketKey;                 // identity of the socket file bound, if known
+    private final Semaphore runs = new Semaphore(Runtime.getRuntime().availableProcessors());
+    private final ConcurrentHashMap<Path, CachedModel> models = new ConcurrentHashMap<>();
+    private final ExecutorService connections;
+    private volatile boolean closed = false;
+
+    /**
+     * Binds the server to a Unix domain socket or a loopback address.
+     *
+     * @param address "unix:" and a socket file, a port, or host:port
+     * @throws IOException if the address cannot be bound
+     * @throws IllegalArgumentException if the host is not a loopback address
+     */
+    public SimServer(String address) throws IOException {
+        this(address, false);
+    }
+
+    /**
+     * Binds the server.
+     *
+     * @param address "unix:" and a socket file, a port, or host:port
+     * @param allowRemote true to allow a host that is not a loopback address;
+     *        anyone who can reach it can then run models from the server's files
+     * @throws IOException if the address cannot be bound, or the socket file
+     *         is not a socket or is in use by a running server
+     * @throws IllegalArgumentException if the host is not a loopback address
+     *         and remote clients are not allowed
+     */
+    public SimServer(String address, boolean allowRemote) throws IOException {
+        if (address.startsWith(UNIX_PREFIX)) {
+            this.socketFile = Paths.get(address.substring(UNIX_PREFIX.length()));
+            removeStaleSocket(this.socketFile);
+            this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            try {
+                this.server.bind(UnixDomainSocketAddress.of(this.socketFile));
+                this.socketKey = Files.readAttributes(this.socketFile, BasicFileAttributes.class,
+                        LinkOption.NOFOLLOW_LINKS).fileKey();
+            } catch (IOException ioe) {
+                this.server.close();
+                throw ioe;
+            }
+        } else {
+            this.socketFile = null;
+            this.socketKey = null;
+            this.server = ServerSocketChannel.open();
+            this.server.bind(inetAddress(address, allowRemote));
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.connections = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "sim-client-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Removes a socket file left behind by a server that did not shut down
+     * cleanly: one that is a socket, but refuses connections.
+     *
+     * @throws IOException if the file is not a socket, or a server is listening on it
+     */
+    private static void removeStaleSocket(Path file) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException nsfe) {
+            return;
+        }
+        if (!isSocket(file, attributes)) {
+            throw new IOException(file + " exists and is not a socket; remove it or choose another path.");
+        }
+
+        try (SocketChannel client = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            client.connect(UnixDomainSocketAddress.of(file));
+        } catch (ConnectException ce) {
+            // nobody is listening
+            Files.delete(file);
+            return;
+        }
+        throw new IOException("A server is already listening on " + file + ".");
+    }
+
+    private static boolean isSocket(Path file, BasicFileAttributes attributes) throws IOException {
+        try {
+            int mode = (Integer) Files.getAttribute(file, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+            return (mode & FILE_TYPE_MASK) == SOCKET_TYPE;
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            // no unix attributes on this platform; a socket is at least not a file, directory or link
+            return attributes.isOther();
+        }
+    }
+
+    private static SocketAddress inetAddress(String address, boolean allowRemote) throws IOException {
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+        }
+
+        String host = address.substring(0, colon);
+        InetSocketAddress socketAddress = new InetSocketAddress(host, Integer.parseInt(address.substring(colon + 1)));
+        if (socketAddress.isUnresolved()) {
+            throw new IOException("Unknown host " + host + ".");
+        }
+        if (!allowRemote && !socketAddress.getAddress().isLoopbackAddress()) {
+            throw new IllegalArgumentException(host + " is not a loopback address; set telco.allowRemote to true"
+                    + " to accept clients from other hosts.");
+        }
+        return socketAddress;
+    }
+
+    /**
+     * Takes the address to listen on and optionally the number of warm-up
+     * runs (default 20) to make before accepting clients. Setting
+     * telco.allowRemote to true allows addresses other than loopback.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1 && args.length != 2) {
+            throw new IllegalArgumentException("Usage: SimServer <unix:/path | [host:]port> [warm-up runs]");
+        }
+
+        SimServer server = new SimServer(args[0], Boolean.getBoolean("telco.allowRemote"));
+        // unblock accept and remove the socket file when the JVM is stopped
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException ioe) {
+                System.err.println("Unable to close server: " + ioe.getMessage());
+            }
+        }));
+        try {
+            server.warmUp((args.length > 1) ? Integer.parseInt(args[1]) : 20);
+            System.out.println("Listening on " + server.getAddress());
+            server.serve();
+        } finally {
+            server.close();
+        }
+    }
+
+    /**
+     * Runs the built-in model, so that the engine, stations and generators
+     * are compiled before the first client arrives.
+     *
+     * @param warmupRuns number of runs
+     */
+    public void warmUp(int warmupRuns) {
+        PrintStream discard = new PrintStream(PrintStream.nullOutputStream());
+        for (int r = 0; r < warmupRuns; r++) {
+            execute("run seed=" + r, discard);
+        }
+    }
+
+    /**
+     * @return the bound address
+     */
+    public SocketAddress getAddress() throws IOException {
+        return this.server.getLocalAddress();
+    }
+
+    /**
+     * Accepts clients until the server is closed.
+     *
+     * @throws IOException if accepting fails
+     */
+    public void serve() throws IOException {
+        while (!this.closed) {
+            SocketChannel client;
+            try {
+                client = this.server.accept();
+            } catch (ClosedChannelException cce) {
+                return;
+            }
+            this.connections.execute(() -> handle(client));
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (SocketChannel channel = client;
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+                PrintStream out = new PrintStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16),
+                        false, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (line.equals("quit")) {
+                    break;
+                }
+                execute(line, out);
+                out.flush();
+                if (out.checkError()) {
+                    break;
+                }
+            }
+        } catch (IOException ioe) {
+            // the client went away
+        }
+    }
+
+    /**
+     * Executes one request, writing its results and status line.
+     *
+     * @param request the request line
+     * @param out where to write the response
+     */
+    void execute(String request, PrintStream out) {
+        String[] tokens = request.split("\\s+");
+        try {
+            Map<String, String> options = options(tokens);
+            switch (tokens[0]) {
+                case "ping":
+                    out.println("END OK");
+                    break;
+                case "run":
+                    run(options, out);
+                    break;
+                case "analytic":
+                    analytic(options, out);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown command '" + tokens[0] + "'.");
+            }
+        } catch (IOException | RuntimeException e) {
+            out.println("END ERROR " + String.valueOf(e.getMessage()).replace('\n', ' '));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            out.println("END ERROR interrupted");
+        }
+    }
+
+    private static Map<String, String> options(String[] tokens) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < tokens.length; i++) {
+            int equals = tokens[i].indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Expected key=value, found '" + tokens[i] + "'.");
+            }
+            options.put(tokens[i].substring(0, equals), tokens[i].substring(equals + 1));
+        }
+        return options;
+    }
+
+    /**
+     * Removes an option, returning its value or a default.
+     */
+    private static String take(Map<String, String> options, String key, String defaultValue) {
+        String value = options.remove(key);
+        return (value != null) ? value : defaultValue;
+    }
+
+    private static void checkAllTaken(Map<String, String> options) {
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Unknown option(s) " + options.keySet() + ".");
+        }
+    }
+
+    private void run(Map<String, String> options, PrintStream out) throws IOException, InterruptedException {
+        String modelFile = take(options, "model", null);
+        CachedModel cached = (modelFile != null) ? model(modelFile) : null;
+        BasicSimSystem builtIn = new BasicSimSystem(Integer.parseInt(take(options, "days", "1")), 8);
+        String end = take(options, "end", null);
+        double endTime = (end != null) ? Double.parseDouble(end)
+                : (cached != null) ? cached.topology.getDefaultEndTime() : builtIn.getDefaultEndTime();
+        String seedOption = take(options, "seed", null);
+        long seed = (seedOption != null) ? Long.parseLong(seedOption) : System.nanoTime();
+        EventListType eventList = EventListType.valueOf(take(options, "eventList", EventListType.BINARY_HEAP.name()));
+        boolean pooling = Boolean.parseBoolean(take(options, "pooling", "false"));
+        RandomBackend backend = RandomBackend.valueOf(take(options, "rng", RandomBackend.XOSHIRO256PP.name()));
+        boolean flat = Boolean.parseBoolean(take(options, "flat", "true"));
+        checkAllTaken(options);
+
+        long start = System.nanoTime();
+        long events;
+        double simTime;
+        this.runs.acquire();
+        try {
+            if (cached != null && flat) {
+                FlatSimulator simulator = new FlatSimulator(cached.flatModel, new RandomStreams(seed, backend), endTime);
+                simulator.simulate();
+                simulator.printResults(out);
+                events = simulator.getEventCount();
+                simTime = simulator.getSimTime();
+            } else {
+                SimEngine engine = new SimEngine(new RandomStreams(seed, backend));
+                engine.setEndTime(endTime);
+                engine.setEventList(eventList.create());
+                engine.setPooling(pooling);
+                List<QueueStation> stations = ((cached != null) ? cached.topology : builtIn).build(engine);
+                engine.simulate();
+                for (QueueStation station : stations) {
+                    station.getStatistics().report(out, engine.getSimTime());
+                }
+                events = engine.getEventCount();
+                simTime = engine.getSimTime();
+            }
+        } finally {
+            this.runs.release();
+        }
+        out.printf("END OK events=%d simTime=%s wallMillis=%d%n", events, simTime,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void analytic(Map<String, String> options, PrintStream out) throws IOException {
+        String modelFile = take(options, "model", null);
+        int days = Integer.parseInt(take(options, "days", "1"));
+        checkAllTaken(options);
+
+        JacksonNetwork network;
+        if (modelFile != null) {
+            network = JacksonNetwork.of(model(modelFile).topology);
+        } else {
+            BasicSimSystem builtIn = new BasicSimSystem(days, 8);
+            List<QueueStation> stations = builtIn.build(new SimEngine(0L));
+            network = JacksonNetwork.of(stations, stations.get(0), builtIn.getJobArrivalRate());
+        }
+        network.solve().report(out);
+        out.println("END OK");
+    }
+
+    /**
+     * @return the topology in a file, read again only if the file changed
+     */
+    private CachedModel model(String file) throws IOException {
+        Path path = Paths.get(file).toAbsolutePath().normalize();
+        long modified;
+        try {
+            modified = Files.getLastModifiedTime(path).toMillis();
+        } catch (NoSuchFileException nsfe) {
+            throw new IOException("There is no model file " + path + ".", nsfe);
+        }
+
+        CachedModel cached = this.models.get(path);
+        if (cached == null || cached.modified != modified) {
+            Topology topology = Topology.load(path);
+            cached = new CachedModel(topology, topology.compile(), modified);
+            this.models.put(path, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Stops accepting clients and removes the socket file, unless it has
+     * since been replaced; requests already running are finished. Closing
+     * again has no effect.
+     *
+     * @throws IOException if the socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        this.connections.shutdown();
+        try {
+            this.server.close();
+        } finally {
+            if (this.socketFile != null) {
+                removeOwnSocket();
+            }
+        }
+    }
+
+    /**
+     * Removes the socket file if it is still the one this server bound. If
+     * its identity is unknown, it is left for the next server to replace.
+     */
+    private void removeOwnSocket() throws IOException {
+        try {
+            Object key = Files.readAttributes(this.socketFile, BasicFileAttributes.class,
+                    LinkOption.NOFOLLOW_LINKS).fileKey();
+            if (this.socketKey != null && this.socketKey.equals(key)) {
+                Files.delete(this.socketFile);
+            }
+        } catch (NoSuchFileException nsfe) {
+            // already removed
+        }
+    }
+
+    /**
+     * A topology file as read, with its flat form.
+     */
+    private static final class CachedModel {
+        final Topology topology;
+        final FlatModel flatModel;
+        final long modified;
+
+        CachedModel(Topology topology, FlatModel flatModel, long modified) {
+            this.topology = topology;
+            this.flatModel = flatModel;
+            this.modified = modified;
+        }
+    }
+}
@@ -33,6 +33,17 @@ package simcomponents;
  */
 public interface Simulatable {
     void execute(double simTime);
+    
+    /**
+     * Executes the given event. Simulatables that attach a slot or job to
+     * their events override this to use them.
+     * 
+     * @param event the event being executed; its time is the simulation time
+     */
+    default void execute(SimEvent event) {
+        execute(event.getEventTime());
+    }
+    
     String getName();
     void register(EventObserver observer);
     void unregister(EventObserver observer);
@@ -0,0 +1,14 @@
+package simcomponents;
+
+/**
+ * How the logical processes of a parallel simulation keep their events in
+ * time order.
+ *
+ * @author Ryan Owens
+ */
+public enum Synchronization {
+    /** Execute only events known to be safe, using null messages (Chandy-Misra-Bryant). */
+    CONSERVATIVE,
+    /** Execute events speculatively and roll back on a straggler (Time Warp). */
+    OPTIMISTIC
+}
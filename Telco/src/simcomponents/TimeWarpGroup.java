@@ -0,0 +1,129 @@
+package simcomponents;
+
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The logical processes of one optimistic run, with the state they share: the
+ * first failure, if any, and global virtual time (GVT), the time before which
+ * no process can ever roll back.
+ *
+ * GVT is computed in two barrier phases whenever a process asks for it. Once
+ * every process has reached the first barrier nothing more is sent, so after
+ * draining its inbox each process knows the earliest time it could still
+ * execute or roll back to; the minimum over all processes, taken at the second
+ * barrier, is GVT. A GVT at or past the end time also ends the run.
+ *
+ * @author Ryan Owens
+ */
+final class TimeWarpGroup {
+    private final List<OptimisticProcess> processes;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final double[] localTimes;
+    private final CyclicBarrier stopped;
+    private final CyclicBarrier computed;
+    private volatile boolean requested = false;
+    private volatile boolean changed = true;    // events executed or messages received since the last GVT
+    private volatile double gvt = Double.NEGATIVE_INFINITY;
+    private long rounds = 0;
+
+    TimeWarpGroup(List<OptimisticProcess> processes) {
+        this.processes = processes;
+        this.localTimes = new double[processes.size()];
+        this.stopped = new CyclicBarrier(processes.size());
+        this.computed = new CyclicBarrier(processes.size(), this::computeGvt);
+    }
+
+    void fail(Throwable cause) {
+        this.failure.compareAndSet(null, cause);
+        this.stopped.reset();
+        this.computed.reset();
+        wakeAll();
+    }
+
+    Throwable getFailure() {
+        return this.failure.get();
+    }
+
+    boolean isStopped() {
+        return this.failure.get() != null;
+    }
+
+    /**
+     * Asks every process to take part in a GVT computation at its next step.
+     */
+    void requestGvt() {
+        if (!this.requested) {
+            this.requested = true;
+            wakeAll();
+        }
+    }
+
+    boolean isGvtRequested() {
+        return this.requested;
+    }
+
+    void setChanged() {
+        this.changed = true;
+    }
+
+    /**
+     * @return true if every process is idle but something happened since the
+     *         last GVT, which may since have finished the run
+     */
+    boolean shouldRequestGvt() {
+        if (!this.changed) {
+            return false;
+        }
+        for (OptimisticProcess process : this.processes) {
+            if (!process.isIdle()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits until every process has stopped sending messages.
+     */
+    void awaitStopped() throws InterruptedException, BrokenBarrierException {
+        this.stopped.await();
+    }
+
+    /**
+     * Reports a process's local time and waits for the others.
+     *
+     * @param index the process
+     * @param localTime earliest time the process could still execute or roll back to
+     * @return the new GVT
+     */
+    double awaitGvt(int index, double localTime) throws InterruptedException, BrokenBarrierException {
+        this.localTimes[index] = localTime;
+        this.computed.await();
+        return this.gvt;
+    }
+
+    private void computeGvt() {
+        double min = Double.POSITIVE_INFINITY;
+
+        for (double localTime : this.localTimes) {
+            min = Math.min(min, localTime);
+        }
+        this.gvt = min;
+        this.rounds++;
+        this.changed = false;
+        this.requested = false;
+    }
+
+    long getGvtRounds() {
+        return this.rounds;
+    }
+
+    void wakeAll() {
+        for (OptimisticProcess process : this.processes) {
+            process.wake();
+        }
+    }
+}
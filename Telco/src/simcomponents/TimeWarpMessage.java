@@ -0,0 +1,71 @@
+package simcomponents;
+
+/**
+ * A job sent between the logical processes of an optimistic simulation, or
+ * the anti-message that cancels one. The receiver schedules a message as an
+ * event of its own; executing it hands a copy of the job to the station, so
+ * that the message can be executed again after a rollback.
+ *
+ * @author Ryan Owens
+ */
+final class TimeWarpMessage implements Simulatable {
+    final OptimisticProcess receiver;
+    final double time;
+    final InboundPort port;
+    final Job job;
+    final TimeWarpMessage cancels;      // message annihilated by this anti-message, or null
+
+    // written by the receiver only
+    long processedAt = -1;              // receiver's event count when executed, or -1
+    boolean cancelled = false;
+
+    TimeWarpMessage(OptimisticProcess receiver, double time, InboundPort port, Job job) {
+        this.receiver = receiver;
+        this.time = time;
+        this.port = port;
+        this.job = job;
+        this.cancels = null;
+    }
+
+    /**
+     * Creates the anti-message of a message.
+     */
+    TimeWarpMessage(TimeWarpMessage message) {
+        this.receiver = message.receiver;
+        this.time = message.time;
+        this.port = message.port;
+        this.job = null;
+        this.cancels = message;
+    }
+
+    boolean isAntiMessage() {
+        return this.cancels != null;
+    }
+
+    @Override
+    public void execute(SimEvent event) {
+        if (this.cancelled || this.processedAt >= 0) {
+            return;
+        }
+        this.processedAt = this.receiver.getEngine().getEventCount();
+        this.port.receive(this.job.copy(), this.time);
+    }
+
+    @Override
+    public void execute(double simTime) {
+        throw new UnsupportedOperationException("A message needs its event.");
+    }
+
+    @Override
+    public String getName() {
+        return this.port.getName();
+    }
+
+    @Override
+    public void register(EventObserver observer) {
+    }
+
+    @Override
+    public void unregister(EventObserver observer) {
+    }
+}
@@ -0,0 +1,398 @@
+package simcomponents;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import randomgenr.Distribution;
+import randomgenr.EmpiricalGenr;
+import randomgenr.ExponentialGenr;
+import randomgenr.GammaGenr;
+
+/**
+ * A queueing network read from a model file instead of being written in code,
+ * so that stations, servers, service times and routing can be changed without
+ * recompiling. A topology can be built on a SimEngine like any other model, or
+ * compiled into a FlatModel for the FlatSimulator.
+ *
+ * The file has one declaration per line; blank lines and text after '#' are
+ * ignored:
+ * <pre>
+ * end &lt;hours&gt;                                 default end time of a run
+ * generator &lt;name&gt; &lt;rate&gt; &lt;station&gt;           Poisson arrivals into a station
+ * station &lt;name&gt; &lt;servers&gt; exponential &lt;rate&gt;
+ * station &lt;name&gt; &lt;servers&gt; gamma &lt;alpha&gt; &lt;theta&gt;
+ * station &lt;name&gt; &lt;servers&gt; empirical &lt;file&gt;   observations, relative to the model file
+ * transducer &lt;name&gt;                           a station where jobs leave the network
+ * route &lt;from&gt; &lt;to&gt; &lt;probability&gt;
+ * </pre>
+ * Stations are numbered in the order they are declared, and may be routed to
+ * before they are declared. The routes of every station must sum to unity.
+ *
+ * @author Ryan Owens
+ */
+public final class Topology implements SimModel {
+    private final List<StationSpec> stations = new ArrayList<>();
+    private final List<GeneratorSpec> generators = new ArrayList<>();
+    private final Map<String, Integer> stationIndex = new HashMap<>();
+    private double defaultEndTime = Double.POSITIVE_INFINITY;
+    private boolean streamingArrivals = true;
+
+    private Topology() {
+    }
+
+    /**
+     * Reads a model file.
+     *
+     * @param file the model file
+     * @return the topology it describes
+     * @throws IOException if the file cannot be read or is not a valid model
+     */
+    public static Topology load(Path file) throws IOException {
+        Topology topology = new Topology();
+        List<String[]> routes = new ArrayList<>();
+        List<Integer> routeLines = new ArrayList<>();
+        Path directory = file.toAbsolutePath().getParent();
+
+        try (BufferedReader in = Files.newBufferedReader(file)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                String[] tokens = line.split("\\s+");
+                try {
+                    switch (tokens[0]) {
+                        case "end":
+                            expect(tokens, 2);
+                            topology.defaultEndTime = positive(tokens[1], "End time");
+                            break;
+                        case "generator":
+                            expect(tokens, 4);
+                            topology.generators.add(new GeneratorSpec(tokens[1],
+                                    positive(tokens[2], "Arrival rate"), tokens[3], lineNumber));
+                            break;
+                        case "station":
+                            if (tokens.length < 4) {
+                                throw new IllegalArgumentException("A station needs a name, servers and a service time.");
+                            }
+                            int servers = Integer.parseInt(tokens[2]);
+                            if (servers < 1) {
+                                throw new IllegalArgumentException("A station needs at least one server.");
+                            }
+                            topology.addStation(tokens[1], servers, serviceTime(tokens, directory));
+                            break;
+                        case "transducer":
+                            expect(tokens, 2);
+                            topology.addStation(tokens[1], -1, null);
+                            break;
+                        case "route":
+                            expect(tokens, 4);
+                            routes.add(tokens);
+                            routeLines.add(lineNumber);
+                            break;
+                        default:
+                            throw new IllegalArgumentException("Unknown declaration '" + tokens[0] + "'.");
+                    }
+                } catch (IllegalArgumentException iae) {
+                    throw new IOException(file + ":" + lineNumber + ": " + iae.getMessage(), iae);
+                }
+            }
+        }
+
+        for (int i = 0; i < routes.size(); i++) {
+            String[] tokens = routes.get(i);
+            try {
+                StationSpec from = topology.station(tokens[1]);
+                if (from.servers < 0) {
+                    throw new IllegalArgumentException("Transducer " + from.name + " cannot route jobs.");
+                }
+                double probability = Double.parseDouble(tokens[3]);
+                if (probability < 0.0 || Double.isNaN(probability)) {
+                    throw new IllegalArgumentException("Output probability must not be negative.");
+                }
+                from.addRoute(topology.stationIndex(tokens[2]), probability);
+            } catch (IllegalArgumentException iae) {
+                throw new IOException(file + ":" + routeLines.get(i) + ": " + iae.getMessage(), iae);
+            }
+        }
+        for (GeneratorSpec generator : topology.generators) {
+            try {
+                generator.station = topology.stationIndex(generator.stationName);
+            } catch (IllegalArgumentException iae) {
+                throw new IOException(file + ":" + generator.line + ": " + iae.getMessage(), iae);
+            }
+        }
+        for (StationSpec station : topology.stations) {
+            try {
+                if (station.servers > 0 && station.routeCount == 0) {
+                    throw new IllegalStateException("No output stations have been added.");
+                } else if (station.servers > 0) {
+                    RoutingTable.checkedSum(station.probabilities, station.routeCount);
+                }
+            } catch (IllegalStateException ise) {
+                throw new IOException(file + ": station " + station.name + ": " + ise.getMessage(), ise);
+            }
+        }
+        return topology;
+    }
+
+    private void addStation(String name, int servers, Supplier<Distribution> serviceTime) {
+        if (this.stationIndex.containsKey(name)) {
+            throw new IllegalArgumentException("Station " + name + " is declared twice.");
+        }
+        this.stationIndex.put(name, this.stations.size());
+        this.stations.add(new StationSpec(name, servers, serviceTime));
+    }
+
+    private static Supplier<Distribution> serviceTime(String[] tokens, Path directory) {
+        switch (tokens[3]) {
+            case "exponential": {
+                expect(tokens, 5);
+                double rate = positive(tokens[4], "Service rate");
+                return () -> {
+                    ExponentialGenr genr = new ExponentialGenr();
+                    genr.setEventRate(rate);
+                    return genr;
+                };
+            }
+            case "gamma": {
+                expect(tokens, 6);
+                double alpha = positive(tokens[4], "Shape");
+                double theta = positive(tokens[5], "Scale");
+                return () -> new GammaGenr(alpha, theta);
+            }
+            case "empirical": {
+                expect(tokens, 5);
+                double[] observations;
+                try {
+                    observations = EmpiricalGenr.readObservations(directory.resolve(tokens[4]));
+                } catch (IOException ioe) {
+                    throw new IllegalArgumentException("Unable to read observations: " + ioe.getMessage(), ioe);
+                }
+                // fail now rather than on the first build
+                new EmpiricalGenr(observations);
+                return () -> new EmpiricalGenr(observations);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown service time distribution '" + tokens[3] + "'.");
+        }
+    }
+
+    private static void expect(String[] tokens, int count) {
+        if (tokens.length != count) {
+            throw new IllegalArgumentException("'" + tokens[0] + "' takes " + (count - 1) + " value(s).");
+        }
+    }
+
+    private static double positive(String token, String what) {
+        double value = Double.parseDouble(token);
+        if (!(value > 0.0)) {
+            throw new IllegalArgumentException(what + " must be positive.");
+        }
+        return value;
+    }
+
+    private StationSpec station(String name) {
+        return this.stations.get(stationIndex(name));
+    }
+
+    /**
+     * @param name name of a station or transducer
+     * @return the station's index, the order in which it was declared
+     * @throws IllegalArgumentException if there is no such station
+     */
+    public int stationIndex(String name) {
+        Integer index = this.stationIndex.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("There is no station " + name + ".");
+        }
+        return index;
+    }
+
+    /**
+     * @return the end time declared by the file, or infinity if none
+     */
+    public double getDefaultEndTime() {
+        return this.defaultEndTime;
+    }
+
+    /**
+     * Selects whether generators built on a SimEngine schedule arrivals one at
+     * a time (the default) or all at once when the model is built.
+     *
+     * @param streamingArrivals true to schedule arrivals one at a time
+     */
+    public void setStreamingArrivals(boolean streamingArrivals) {
+        this.streamingArrivals = streamingArrivals;
+    }
+
+    @Override
+    public List<QueueStation> build(SimEngine engine) {
+        List<QueueStation> built = new ArrayList<>(this.stations.size());
+        for (StationSpec spec : this.stations) {
+            QueueStation station = (spec.servers < 0)
+                    ? new Transducer(spec.name) : new QueueStation(spec.name, spec.servers, spec.serviceTime.get());
+            station.register(engine);
+            built.add(station);
+        }
+        List<Generator> builtGenerators = new ArrayList<>(this.generators.size());
+        for (GeneratorSpec spec : this.generators) {
+            Generator generator = new Generator(spec.name, spec.rate);
+            generator.setStreaming(this.streamingArrivals);
+            generator.register(engine);
+            generator.setQueueStation(built.get(spec.station));
+            builtGenerators.add(generator);
+        }
+
+        for (int i = 0; i < this.stations.size(); i++) {
+            StationSpec spec = this.stations.get(i);
+            for (int r = 0; r < spec.routeCount; r++) {
+                built.get(i).addOutputStation(built.get(spec.targets[r]), spec.probabilities[r]);
+            }
+            if (spec.servers > 0) {
+                built.get(i).compileRouting();
+            }
+        }
+
+        for (Generator generator : builtGenerators) {
+            generator.initialize();
+        }
+        return built;
+    }
+
+    /**
+     * @return the probability of routing from each station to each other,
+     *         indexed [from][to]; rows of transducers are zero
+     */
+    double[][] routingMatrix() {
+        int n = this.stations.size();
+        double[][] routing = new double[n][n];
+
+        for (int s = 0; s < n; s++) {
+            StationSpec spec = this.stations.get(s);
+            for (int r = 0; r < spec.routeCount; r++) {
+                routing[s][spec.targets[r]] += spec.probabilities[r];
+            }
+        }
+        return routing;
+    }
+
+    /**
+     * Compiles the topology into primitive arrays indexed by station.
+     *
+     * @return the flat form of this topology
+     */
+    public FlatModel compile() {
+        int n = this.stations.size();
+        String[] names = new String[n];
+        int[] servers = new int[n];
+        List<Supplier<Distribution>> serviceTimes = new ArrayList<>(n);
+        int[] slotOffset = new int[n + 1];
+        int[] routeOffset = new int[n + 1];
+
+        for (int s = 0; s < n; s++) {
+            StationSpec spec = this.stations.get(s);
+            names[s] = spec.name;
+            servers[s] = spec.servers;
+            serviceTimes.add(spec.serviceTime);
+            slotOffset[s + 1] = slotOffset[s] + Math.max(0, spec.servers);
+            routeOffset[s + 1] = routeOffset[s] + spec.routeCount;
+        }
+
+        int[] routeTarget = new int[routeOffset[n]];
+        double[] routeThreshold = new double[routeOffset[n]];
+        int[] routeAlias = new int[routeOffset[n]];
+        for (int s = 0; s < n; s++) {
+            StationSpec spec = this.stations.get(s);
+            int size = spec.routeCount;
+            if (size == 0) {
+                continue;
+            }
+            int base = routeOffset[s];
+            System.arraycopy(spec.targets, 0, routeTarget, base, size);
+            double[] threshold = new double[size];
+            if (size <= RoutingTable.CUMULATIVE_LIMIT) {
+                RoutingTable.buildCumulative(spec.probabilities, size, threshold);
+            } else {
+                int[] alias = new int[size];
+                RoutingTable.buildAlias(spec.probabilities, size,
+                        RoutingTable.checkedSum(spec.probabilities, size), threshold, alias);
+                System.arraycopy(alias, 0, routeAlias, base, size);
+            }
+            System.arraycopy(threshold, 0, routeThreshold, base, size);
+        }
+
+        int g = this.generators.size();
+        String[] generatorNames = new String[g];
+        double[] generatorRate = new double[g];
+        int[] generatorStation = new int[g];
+        for (int i = 0; i < g; i++) {
+            GeneratorSpec spec = this.generators.get(i);
+            generatorNames[i] = spec.name;
+            generatorRate[i] = spec.rate;
+            generatorStation[i] = spec.station;
+        }
+
+        return new FlatModel(names, servers, serviceTimes, slotOffset, routeOffset, routeTarget,
+                routeThreshold, routeAlias, generatorNames, generatorRate, generatorStation);
+    }
+
+    /**
+     * A declared station or transducer (no servers) and its routes.
+     */
+    private static final class StationSpec {
+        final String name;
+        final int servers;
+        final Supplier<Distribution> serviceTime;
+        int[] targets = new int[4];
+        double[] probabilities = new double[4];
+        int routeCount;
+
+        StationSpec(String name, int servers, Supplier<Distribution> serviceTime) {
+            this.name = name;
+            this.servers = servers;
+            this.serviceTime = serviceTime;
+        }
+
+        void addRoute(int target, double probability) {
+            if (this.routeCount == this.targets.length) {
+                this.targets = Arrays.copyOf(this.targets, this.routeCount * 2);
+                this.probabilities = Arrays.copyOf(this.probabilities, this.routeCount * 2);
+            }
+            this.targets[this.routeCount] = target;
+            this.probabilities[this.routeCount] = probability;
+            this.routeCount++;
+        }
+    }
+
+    private static final class GeneratorSpec {
+        final String name;
+        final double rate;
+        final String stationName;
+        final int line;
+        int station;
+
+        GeneratorSpec(String name, double rate, String stationName, int line) {
+            this.name = name;
+            this.rate = rate;
+            this.stationName = stationName;
+            this.line = line;
+        }
+    }
+}
@@ -27,6 +27,7 @@ package simcomponents;
 
 import java.util.LinkedList;
 import java.util.List;
+import simtrace.JobTraceWriter;
 
 /**
  * Receives all events leaving the system and acts as a terminating queue station.
@@ -55,8 +56,22 @@ public class Transducer extends QueueStation {
         job.setArrivalTime(simTime);
         job.setStartTime(simTime);
         job.setEndTime(simTime);
-        this.finishedJobs.push(job);
-        System.out.printf("  Transducer: Completed " + jobCount + " jobs\n");
+        this.jobCount++;
+        this.statistics.jobAbsorbed(simTime, simTime - job.getEntryTime());
+        if (this.metrics != null) {
+            this.metrics.jobCompleted(simTime);
+        }
+        JobTraceWriter jobTrace = jobTrace();
+        if (jobTrace != null) {
+            jobTrace.record(job.getId(), getName(), simTime, simTime, simTime, null);
+        }
+        
+        if (isRetainingJobs()) {
+            this.finishedJobs.push(job);
+        } else if (isPooling()) {
+            this.engine.releaseJob(job);
+        }
+        tracer().jobAbsorbed(getName(), simTime, this.jobCount);
     }
     
     @Override
@@ -64,9 +79,40 @@ public class Transducer extends QueueStation {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
 
+    /**
+     * A transducer never schedules events; registering with an engine only
+     * allows it to return finished jobs to the engine's pool.
+     * 
+     * @param observer the simulation engine
+     */
     @Override
     public void register(EventObserver observer) {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        if (!(observer instanceof SimEngine)) {
+            throw new UnsupportedOperationException("Transducers can only be registered with a SimEngine.");
+        }
+        this.engine = (SimEngine) observer;
+    }
+    
+    @Override
+    State saveState() {
+        State state = super.saveState();
+        state.jobCount = this.jobCount;
+        return state;
+    }
+    
+    @Override
+    void restoreState(State state) {
+        super.restoreState(state);
+        this.jobCount = state.jobCount;
+    }
+    
+    @Override
+    public int getCompletedJobCount() {
+        return this.jobCount;
+    }
+    
+    public int getJobCount() {
+        return this.jobCount;
     }
 
     @Override
@@ -0,0 +1,117 @@
+package simmetrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters updated by a simulation engine as it dispatches events, read over
+ * JMX. Counts are LongAdders, so several engines (e.g. the logical processes
+ * of a parallel run) can share one instance without contending, and an update
+ * costs the engine an uncontended add. The simulation time is published only
+ * every SAMPLE_EVENTS events.
+ *
+ * @author Ryan Owens
+ */
+public final class EngineMetrics implements EngineMetricsMXBean {
+    /** Events between samples of the simulation time; a power of two. */
+    public static final int SAMPLE_EVENTS = 256;
+
+    private final LongAdder events = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> dispatched = new ConcurrentHashMap<>();
+    private final IntSupplier eventListSize;
+    private final long startNanos = System.nanoTime();
+    private volatile double simTime = 0.0;
+    private volatile double startSimTime = Double.NaN;
+    private long lastReadCount = 0;
+    private long lastReadNanos = this.startNanos;
+
+    /**
+     * @param eventListSize reads the number of scheduled events; called from
+     *        the JMX thread, so it may see a slightly stale value
+     */
+    public EngineMetrics(IntSupplier eventListSize) {
+        this.eventListSize = eventListSize;
+    }
+
+    /**
+     * Returns the counter of events dispatched to a component, which the
+     * engine may keep to avoid looking it up for every event.
+     *
+     * @param name the component's name
+     * @return the component's counter
+     */
+    public LongAdder dispatchCounter(String name) {
+        return this.dispatched.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * Counts an event dispatched to a component.
+     *
+     * @param counter the component's counter, from dispatchCounter
+     */
+    public void eventDispatched(LongAdder counter) {
+        this.events.increment();
+        counter.increment();
+    }
+
+    /**
+     * Publishes the simulation time.
+     *
+     * @param time the engine's current time
+     */
+    public void sampleSimTime(double time) {
+        if (Double.isNaN(this.startSimTime)) {
+            this.startSimTime = time;
+        }
+        this.simTime = time;
+    }
+
+    @Override
+    public long getEventCount() {
+        return this.events.sum();
+    }
+
+    @Override
+    public synchronized double getEventsPerSecond() {
+        long count = this.events.sum();
+        long now = System.nanoTime();
+        double seconds = (now - this.lastReadNanos) / 1e9;
+        double rate = (seconds > 0.0) ? (count - this.lastReadCount) / seconds : 0.0;
+
+        this.lastReadCount = count;
+        this.lastReadNanos = now;
+        return rate;
+    }
+
+    @Override
+    public int getEventListSize() {
+        return this.eventListSize.getAsInt();
+    }
+
+    @Override
+    public double getSimTime() {
+        return this.simTime;
+    }
+
+    @Override
+    public double getWallTime() {
+        return (System.nanoTime() - this.startNanos) / 1e9;
+    }
+
+    @Override
+    public double getSimToWallRatio() {
+        double start = this.startSimTime;
+        double wall = getWallTime();
+        return (Double.isNaN(start) || wall <= 0.0) ? 0.0 : (this.simTime - start) / wall;
+    }
+
+    @Override
+    public Map<String, Long> getDispatchCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        this.dispatched.forEach((name, counter) -> counts.put(name, counter.sum()));
+        return counts;
+    }
+}
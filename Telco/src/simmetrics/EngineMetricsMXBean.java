@@ -0,0 +1,47 @@
+package simmetrics;
+
+import java.util.Map;
+
+/**
+ * Live view of a running simulation engine.
+ *
+ * @author Ryan Owens
+ */
+public interface EngineMetricsMXBean {
+
+    /**
+     * @return events dispatched since the engine was attached
+     */
+    long getEventCount();
+
+    /**
+     * @return events dispatched per wall-clock second since the previous read
+     *         of this attribute (since the start, on the first read)
+     */
+    double getEventsPerSecond();
+
+    /**
+     * @return events currently scheduled
+     */
+    int getEventListSize();
+
+    /**
+     * @return the simulation time, sampled every few hundred events
+     */
+    double getSimTime();
+
+    /**
+     * @return wall-clock seconds since the engine was attached
+     */
+    double getWallTime();
+
+    /**
+     * @return simulated time advanced per wall-clock second
+     */
+    double getSimToWallRatio();
+
+    /**
+     * @return events dispatched to each component, by name
+     */
+    Map<String, Long> getDispatchCounts();
+}
@@ -0,0 +1,194 @@
+package simmetrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters updated by a queue station as jobs start and complete, read over
+ * JMX. Wait times are counted in logarithmic buckets of LongAdders, both for
+ * the whole run and for a rolling window made of SLOTS slices of simulated
+ * time; a slice is cleared when the station first records a job in it again.
+ * Queue length and busy servers are read from the station when asked for.
+ *
+ * Only the thread running the station may record; any thread may read.
+ *
+ * @author Ryan Owens
+ */
+public final class StationMetrics implements StationMetricsMXBean {
+    /** Slices in the rolling window. */
+    public static final int SLOTS = 8;
+    private static final int BUCKETS = 16;
+    private static final int BUCKET_OFFSET = 8;     // bucket k > 0 holds waits below 2^(k - 7)
+
+    private final String name;
+    private final int servers;
+    private final IntSupplier queueLength;
+    private final IntSupplier busyServers;
+    private final double slotLength;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder[] waits = newAdders(BUCKETS);
+    private final LongAdder[][] recentWaits = new LongAdder[SLOTS][];
+    private final LongAdder[] recentCompleted = newAdders(SLOTS);
+    private final AtomicLongArray slotEpoch = new AtomicLongArray(SLOTS);
+    private volatile long latestEpoch = 0;
+
+    /**
+     * @param name the station's name
+     * @param servers the station's servers
+     * @param queueLength reads the station's queue length
+     * @param busyServers reads the station's busy servers
+     * @param slotLength simulated time covered by each slice of the rolling window
+     */
+    public StationMetrics(String name, int servers, IntSupplier queueLength, IntSupplier busyServers,
+            double slotLength) {
+        if (!(slotLength > 0.0)) {
+            throw new IllegalArgumentException("Slot length must be positive.");
+        }
+
+        this.name = name;
+        this.servers = servers;
+        this.queueLength = queueLength;
+        this.busyServers = busyServers;
+        this.slotLength = slotLength;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            this.recentWaits[slot] = newAdders(BUCKETS);
+        }
+    }
+
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Counts a job starting service.
+     *
+     * @param simTime the current time
+     * @param wait how long the job was queued
+     */
+    public void jobStarted(double simTime, double wait) {
+        int bucket = bucket(wait);
+        this.waits[bucket].increment();
+        this.recentWaits[slot(simTime)][bucket].increment();
+    }
+
+    /**
+     * Counts a job completing service.
+     *
+     * @param simTime the current time
+     */
+    public void jobCompleted(double simTime) {
+        this.completed.increment();
+        this.recentCompleted[slot(simTime)].increment();
+    }
+
+    private static int bucket(double wait) {
+        if (!(wait > 0.0)) {
+            return 0;
+        }
+        return Math.max(1, Math.min(BUCKETS - 1, Math.getExponent(wait) + BUCKET_OFFSET));
+    }
+
+    /**
+     * @return the slice of the window a time falls in, cleared if it last
+     *         held an earlier time
+     */
+    private int slot(double simTime) {
+        long epoch = (long) (simTime / this.slotLength);
+        int slot = (int) (epoch % SLOTS);
+
+        if (this.slotEpoch.get(slot) != epoch) {
+            for (LongAdder adder : this.recentWaits[slot]) {
+                adder.reset();
+            }
+            this.recentCompleted[slot].reset();
+            this.slotEpoch.set(slot, epoch);
+        }
+        if (epoch > this.latestEpoch) {
+            this.latestEpoch = epoch;
+        }
+        return slot;
+    }
+
+    private boolean inWindow(int slot) {
+        long epoch = this.slotEpoch.get(slot);
+        return epoch > this.latestEpoch - SLOTS;
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public int getServers() {
+        return this.servers;
+    }
+
+    @Override
+    public int getQueueLength() {
+        return this.queueLength.getAsInt();
+    }
+
+    @Override
+    public int getBusyServers() {
+        return this.busyServers.getAsInt();
+    }
+
+    @Override
+    public long getCompleted() {
+        return this.completed.sum();
+    }
+
+    @Override
+    public double getRecentThroughput() {
+        long count = 0;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (inWindow(slot)) {
+                count += this.recentCompleted[slot].sum();
+            }
+        }
+        return count / getWindowLength();
+    }
+
+    @Override
+    public double getWindowLength() {
+        return SLOTS * this.slotLength;
+    }
+
+    @Override
+    public double[] getWaitHistogramBounds() {
+        double[] bounds = new double[BUCKETS];
+        for (int k = 1; k < BUCKETS - 1; k++) {
+            bounds[k] = Math.scalb(1.0, k - BUCKET_OFFSET + 1);
+        }
+        bounds[BUCKETS - 1] = Double.POSITIVE_INFINITY;
+        return bounds;
+    }
+
+    @Override
+    public long[] getWaitHistogram() {
+        long[] counts = new long[BUCKETS];
+        for (int k = 0; k < BUCKETS; k++) {
+            counts[k] = this.waits[k].sum();
+        }
+        return counts;
+    }
+
+    @Override
+    public long[] getRecentWaitHistogram() {
+        long[] counts = new long[BUCKETS];
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (inWindow(slot)) {
+                for (int k = 0; k < BUCKETS; k++) {
+                    counts[k] += this.recentWaits[slot][k].sum();
+                }
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,50 @@
+package simmetrics;
+
+/**
+ * Live view of one queue station of a running simulation. Recent figures
+ * cover a rolling window of simulated time that ends at the station's latest
+ * job.
+ *
+ * @author Ryan Owens
+ */
+public interface StationMetricsMXBean {
+
+    String getName();
+
+    int getServers();
+
+    int getQueueLength();
+
+    int getBusyServers();
+
+    /**
+     * @return jobs completed since the station was attached
+     */
+    long getCompleted();
+
+    /**
+     * @return jobs completed per unit of simulated time over the rolling window
+     */
+    double getRecentThroughput();
+
+    /**
+     * @return simulated time covered by the rolling window
+     */
+    double getWindowLength();
+
+    /**
+     * @return upper bound of each wait-time histogram bucket; the first bucket
+     *         holds jobs that did not wait
+     */
+    double[] getWaitHistogramBounds();
+
+    /**
+     * @return jobs started in each wait-time bucket since the station was attached
+     */
+    long[] getWaitHistogram();
+
+    /**
+     * @return jobs started in each wait-time bucket over the rolling window
+     */
+    long[] getRecentWaitHistogram();
+}
@@ -0,0 +1,119 @@
+package simstats;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Constant-memory running statistics for a stream of observations, using
+ * Welford's method for a numerically stable mean and variance.
+ *
+ * @author Ryan Owens
+ */
+public class OnlineStatistic {
+    /** Number of bytes written by writeTo. */
+    public static final int BYTES = Long.BYTES + 4 * Double.BYTES;
+
+    private long count;
+    private double mean;
+    private double m2;          // sum of squared differences from the mean
+    private double min;
+    private double max;
+
+    public OnlineStatistic() {
+        reset();
+    }
+
+    public void add(double x) {
+        this.count++;
+        double delta = x - this.mean;
+        this.mean += delta / this.count;
+        this.m2 += delta * (x - this.mean);
+
+        if (x < this.min) {
+            this.min = x;
+        }
+        if (x > this.max) {
+            this.max = x;
+        }
+    }
+
+    /**
+     * Combines another statistic's observations into this one (Chan et al.).
+     *
+     * @param other statistic to merge
+     */
+    public void merge(OnlineStatistic other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (this.count == 0) {
+            copyFrom(other);
+            return;
+        }
+
+        long n = this.count + other.count;
+        double delta = other.mean - this.mean;
+        this.mean += delta * other.count / n;
+        this.m2 += other.m2 + delta * delta * ((double) this.count * other.count / n);
+        this.count = n;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+    }
+
+    public void copyFrom(OnlineStatistic other) {
+        this.count = other.count;
+        this.mean = other.mean;
+        this.m2 = other.m2;
+        this.min = other.min;
+        this.max = other.max;
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putLong(this.count).putDouble(this.mean).putDouble(this.m2).putDouble(this.min).putDouble(this.max);
+    }
+
+    public void readFrom(ByteBuffer buffer) {
+        this.count = buffer.getLong();
+        this.mean = buffer.getDouble();
+        this.m2 = buffer.getDouble();
+        this.min = buffer.getDouble();
+        this.max = buffer.getDouble();
+    }
+
+    public final void reset() {
+        this.count = 0;
+        this.mean = 0.0;
+        this.m2 = 0.0;
+        this.min = Double.POSITIVE_INFINITY;
+        this.max = Double.NEGATIVE_INFINITY;
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * @return the mean, or NaN if there are no observations
+     */
+    public double getMean() {
+        return (this.count == 0) ? Double.NaN : this.mean;
+    }
+
+    /**
+     * @return the sample variance, or NaN with fewer than two observations
+     */
+    public double getVariance() {
+        return (this.count < 2) ? Double.NaN : this.m2 / (this.count - 1);
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getMin() {
+        return (this.count == 0) ? Double.NaN : this.min;
+    }
+
+    public double getMax() {
+        return (this.count == 0) ? Double.NaN : this.max;
+    }
+}
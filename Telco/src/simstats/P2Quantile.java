@@ -0,0 +1,169 @@
+package simstats;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Streaming estimate of a single quantile using the P-square algorithm (Jain
+ * and Chlamtac, 1985). Keeps five markers whose heights are adjusted with
+ * piecewise-parabolic interpolation, so memory is constant regardless of the
+ * number of observations.
+ *
+ * @author Ryan Owens
+ */
+public class P2Quantile {
+    /** Number of bytes written by writeTo. */
+    public static final int BYTES = 15 * Double.BYTES + Long.BYTES;
+
+    private final double p;
+    private final double[] q = new double[5];      // marker heights
+    private final double[] n = new double[5];      // actual marker positions
+    private final double[] np = new double[5];     // desired marker positions
+    private final double[] dn = new double[5];     // desired position increments
+    private long count;
+
+    /**
+     * @param p the quantile to estimate, strictly between 0 and 1
+     */
+    public P2Quantile(double p) {
+        if (p <= 0.0 || p >= 1.0) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1.");
+        }
+        this.p = p;
+        reset();
+    }
+
+    public void add(double x) {
+        if (this.count < 5) {
+            // collect the first five observations in sorted order
+            int i = (int) this.count++;
+            while (i > 0 && this.q[i - 1] > x) {
+                this.q[i] = this.q[i - 1];
+                i--;
+            }
+            this.q[i] = x;
+            return;
+        }
+        this.count++;
+
+        // find the cell containing x, extending the extremes if needed
+        int k;
+        if (x < this.q[0]) {
+            this.q[0] = x;
+            k = 0;
+        } else if (x >= this.q[4]) {
+            this.q[4] = Math.max(this.q[4], x);
+            k = 3;
+        } else {
+            k = 0;
+            while (x >= this.q[k + 1]) {
+                k++;
+            }
+        }
+
+        for (int i = k + 1; i < 5; i++) {
+            this.n[i]++;
+        }
+        for (int i = 0; i < 5; i++) {
+            this.np[i] += this.dn[i];
+        }
+
+        // adjust the heights of the three middle markers
+        for (int i = 1; i <= 3; i++) {
+            double d = this.np[i] - this.n[i];
+
+            if ((d >= 1.0 && this.n[i + 1] - this.n[i] > 1.0) || (d <= -1.0 && this.n[i - 1] - this.n[i] < -1.0)) {
+                int s = (d >= 0.0) ? 1 : -1;
+                double qp = parabolic(i, s);
+
+                if (this.q[i - 1] < qp && qp < this.q[i + 1]) {
+                    this.q[i] = qp;
+                } else {
+                    this.q[i] += s * (this.q[i + s] - this.q[i]) / (this.n[i + s] - this.n[i]);
+                }
+                this.n[i] += s;
+            }
+        }
+    }
+
+    /**
+     * @return the current quantile estimate, or NaN if there are no observations
+     */
+    public double getQuantile() {
+        if (this.count == 0) {
+            return Double.NaN;
+        }
+        if (this.count <= 5) {
+            // exact quantile of the few sorted observations
+            int idx = (int) Math.min(this.count - 1, Math.round(this.p * (this.count - 1)));
+            return this.q[idx];
+        }
+        return this.q[2];
+    }
+
+    public double getP() {
+        return this.p;
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public void copyFrom(P2Quantile other) {
+        if (other.p != this.p) {
+            throw new IllegalArgumentException("Quantiles differ.");
+        }
+        System.arraycopy(other.q, 0, this.q, 0, 5);
+        System.arraycopy(other.n, 0, this.n, 0, 5);
+        System.arraycopy(other.np, 0, this.np, 0, 5);
+        this.count = other.count;
+    }
+
+    /**
+     * Writes the markers; the quantile itself is not written.
+     *
+     * @param buffer buffer with at least BYTES remaining
+     */
+    public void writeTo(ByteBuffer buffer) {
+        for (int i = 0; i < 5; i++) {
+            buffer.putDouble(this.q[i]).putDouble(this.n[i]).putDouble(this.np[i]);
+        }
+        buffer.putLong(this.count);
+    }
+
+    /**
+     * Reads markers written by an estimator of the same quantile.
+     *
+     * @param buffer buffer positioned at the markers
+     */
+    public void readFrom(ByteBuffer buffer) {
+        for (int i = 0; i < 5; i++) {
+            this.q[i] = buffer.getDouble();
+            this.n[i] = buffer.getDouble();
+            this.np[i] = buffer.getDouble();
+        }
+        this.count = buffer.getLong();
+    }
+
+    public final void reset() {
+        this.count = 0;
+        for (int i = 0; i < 5; i++) {
+            this.n[i] = i;
+        }
+        this.np[0] = 0;
+        this.np[1] = 2 * this.p;
+        this.np[2] = 4 * this.p;
+        this.np[3] = 2 + 2 * this.p;
+        this.np[4] = 4;
+        this.dn[0] = 0;
+        this.dn[1] = this.p / 2;
+        this.dn[2] = this.p;
+        this.dn[3] = (1 + this.p) / 2;
+        this.dn[4] = 1;
+    }
+
+    private double parabolic(int i, int s) {
+        return this.q[i] + s / (this.n[i + 1] - this.n[i - 1])
+                * ((this.n[i] - this.n[i - 1] + s) * (this.q[i + 1] - this.q[i]) / (this.n[i + 1] - this.n[i])
+                + (this.n[i + 1] - this.n[i] - s) * (this.q[i] - this.q[i - 1]) / (this.n[i] - this.n[i - 1]));
+    }
+}
@@ -0,0 +1,255 @@
+package simstats;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Constant-memory statistics for one queue station: wait, service and sojourn
+ * time moments and quantiles, plus time-weighted queue length and utilization.
+ * A report can be produced at any simulation time.
+ *
+ * @author Ryan Owens
+ */
+public class StationStatistics {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    /** Number of bytes written by writeTo. */
+    public static final int BYTES = Long.BYTES + 3 * OnlineStatistic.BYTES
+            + 2 * QUANTILES.length * P2Quantile.BYTES + 2 * TimeWeightedStatistic.BYTES;
+
+    private final String name;
+    private final int servers;
+    private final OnlineStatistic waitTime = new OnlineStatistic();
+    private final OnlineStatistic serviceTime = new OnlineStatistic();
+    private final OnlineStatistic sojournTime = new OnlineStatistic();
+    private final P2Quantile[] waitQuantiles = new P2Quantile[QUANTILES.length];
+    private final P2Quantile[] sojournQuantiles = new P2Quantile[QUANTILES.length];
+    private final TimeWeightedStatistic queueLength = new TimeWeightedStatistic();
+    private final TimeWeightedStatistic busyServers = new TimeWeightedStatistic();
+    private long arrivals;
+
+    /**
+     * @param name the station name used in reports
+     * @param servers number of servers, or a non-positive value for a station
+     * without servers (e.g., a transducer)
+     */
+    public StationStatistics(String name, int servers) {
+        this.name = name;
+        this.servers = servers;
+        for (int i = 0; i < QUANTILES.length; i++) {
+            this.waitQuantiles[i] = new P2Quantile(QUANTILES[i]);
+            this.sojournQuantiles[i] = new P2Quantile(QUANTILES[i]);
+        }
+    }
+
+    /**
+     * A job joined the station's queue.
+     *
+     * @param time simulation time
+     * @param queued number of jobs waiting after the arrival
+     */
+    public void jobArrived(double time, int queued) {
+        this.arrivals++;
+        this.queueLength.update(time, queued);
+    }
+
+    /**
+     * A job left the queue and entered service.
+     *
+     * @param time simulation time
+     * @param wait time the job spent queued
+     * @param queued number of jobs still waiting
+     * @param busy number of busy servers, including this job's
+     */
+    public void jobStarted(double time, double wait, int queued, int busy) {
+        this.waitTime.add(wait);
+        for (P2Quantile q : this.waitQuantiles) {
+            q.add(wait);
+        }
+        this.queueLength.update(time, queued);
+        this.busyServers.update(time, busy);
+    }
+
+    /**
+     * A job finished service.
+     *
+     * @param time simulation time
+     * @param service the job's service time
+     * @param sojourn time from the job's arrival until now
+     * @param busy number of busy servers after the job left
+     */
+    public void jobCompleted(double time, double service, double sojourn, int busy) {
+        this.serviceTime.add(service);
+        this.sojournTime.add(sojourn);
+        for (P2Quantile q : this.sojournQuantiles) {
+            q.add(sojourn);
+        }
+        this.busyServers.update(time, busy);
+    }
+
+    /**
+     * A job left the system through a station without servers.
+     *
+     * @param time simulation time
+     * @param sojourn time the job spent in the system
+     */
+    public void jobAbsorbed(double time, double sojourn) {
+        this.arrivals++;
+        this.sojournTime.add(sojourn);
+        for (P2Quantile q : this.sojournQuantiles) {
+            q.add(sojourn);
+        }
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public long getArrivals() {
+        return this.arrivals;
+    }
+
+    /**
+     * @return jobs that completed service, or left the system at a transducer
+     */
+    public long getCompleted() {
+        return this.sojournTime.getCount();
+    }
+
+    public OnlineStatistic getWaitTime() {
+        return this.waitTime;
+    }
+
+    public OnlineStatistic getServiceTime() {
+        return this.serviceTime;
+    }
+
+    public OnlineStatistic getSojournTime() {
+        return this.sojournTime;
+    }
+
+    /**
+     * @param p one of 0.5, 0.9 or 0.99
+     * @return the estimated wait time quantile
+     */
+    public double getWaitQuantile(double p) {
+        return quantile(this.waitQuantiles, p);
+    }
+
+    /**
+     * @param p one of 0.5, 0.9 or 0.99
+     * @return the estimated sojourn time quantile
+     */
+    public double getSojournQuantile(double p) {
+        return quantile(this.sojournQuantiles, p);
+    }
+
+    public double getMeanQueueLength(double time) {
+        return this.queueLength.getMean(time);
+    }
+
+    public int getMaxQueueLength() {
+        return (int) this.queueLength.getMax();
+    }
+
+    /**
+     * @return time-averaged fraction of busy servers, or NaN without servers
+     */
+    public double getUtilization(double time) {
+        return (this.servers > 0) ? this.busyServers.getMean(time) / this.servers : Double.NaN;
+    }
+
+    /**
+     * Copies every accumulated value from another instance for the same station.
+     *
+     * @param other statistics to copy
+     */
+    public void copyFrom(StationStatistics other) {
+        this.arrivals = other.arrivals;
+        this.waitTime.copyFrom(other.waitTime);
+        this.serviceTime.copyFrom(other.serviceTime);
+        this.sojournTime.copyFrom(other.sojournTime);
+        for (int i = 0; i < QUANTILES.length; i++) {
+            this.waitQuantiles[i].copyFrom(other.waitQuantiles[i]);
+            this.sojournQuantiles[i].copyFrom(other.sojournQuantiles[i]);
+        }
+        this.queueLength.copyFrom(other.queueLength);
+        this.busyServers.copyFrom(other.busyServers);
+    }
+
+    /**
+     * Writes every accumulated value in a fixed-size binary form, e.g. to a
+     * checkpoint.
+     *
+     * @param buffer buffer with at least BYTES remaining
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putLong(this.arrivals);
+        this.waitTime.writeTo(buffer);
+        this.serviceTime.writeTo(buffer);
+        this.sojournTime.writeTo(buffer);
+        for (int i = 0; i < QUANTILES.length; i++) {
+            this.waitQuantiles[i].writeTo(buffer);
+            this.sojournQuantiles[i].writeTo(buffer);
+        }
+        this.queueLength.writeTo(buffer);
+        this.busyServers.writeTo(buffer);
+    }
+
+    /**
+     * Reads values written by writeTo, replacing the accumulated ones.
+     *
+     * @param buffer buffer positioned at the values
+     */
+    public void readFrom(ByteBuffer buffer) {
+        this.arrivals = buffer.getLong();
+        this.waitTime.readFrom(buffer);
+        this.serviceTime.readFrom(buffer);
+        this.sojournTime.readFrom(buffer);
+        for (int i = 0; i < QUANTILES.length; i++) {
+            this.waitQuantiles[i].readFrom(buffer);
+            this.sojournQuantiles[i].readFrom(buffer);
+        }
+        this.queueLength.readFrom(buffer);
+        this.busyServers.readFrom(buffer);
+    }
+
+    /**
+     * Writes a summary of the statistics up to the given simulation time.
+     *
+     * @param out stream to write to
+     * @param time the current simulation time
+     */
+    public void report(PrintStream out, double time) {
+        out.printf("%s at time %.3f: %d arrival(s), %d completed%n", this.name, time, this.arrivals, getCompleted());
+
+        if (this.servers > 0) {
+            printMoments(out, "wait", this.waitTime);
+            out.printf("\t%-8s p50 %.4f, p90 %.4f, p99 %.4f%n", "",
+                    getWaitQuantile(0.5), getWaitQuantile(0.9), getWaitQuantile(0.99));
+            printMoments(out, "service", this.serviceTime);
+        }
+        printMoments(out, "sojourn", this.sojournTime);
+        out.printf("\t%-8s p50 %.4f, p90 %.4f, p99 %.4f%n", "",
+                getSojournQuantile(0.5), getSojournQuantile(0.9), getSojournQuantile(0.99));
+
+        if (this.servers > 0) {
+            out.printf("\tqueue    mean %.4f, max %d%n", getMeanQueueLength(time), getMaxQueueLength());
+            out.printf("\tutilization %.4f of %d server(s)%n", getUtilization(time), this.servers);
+        }
+    }
+
+    private static void printMoments(PrintStream out, String label, OnlineStatistic stat) {
+        out.printf("\t%-8s mean %.4f, sd %.4f, min %.4f, max %.4f%n", label,
+                stat.getMean(), stat.getStandardDeviation(), stat.getMin(), stat.getMax());
+    }
+
+    private static double quantile(P2Quantile[] quantiles, double p) {
+        for (P2Quantile q : quantiles) {
+            if (q.getP() == p) {
+                return q.getQuantile();
+            }
+        }
+        throw new IllegalArgumentException("Quantile " + p + " is not tracked.");
+    }
+}
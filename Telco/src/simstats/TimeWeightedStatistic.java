@@ -0,0 +1,95 @@
+package simstats;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Time-average of a piecewise-constant quantity, such as a queue length or the
+ * number of busy servers, updated whenever the quantity changes.
+ *
+ * @author Ryan Owens
+ */
+public class TimeWeightedStatistic {
+    /** Number of bytes written by writeTo. */
+    public static final int BYTES = 5 * Double.BYTES;
+
+    private double startTime;
+    private double lastTime;
+    private double value;
+    private double area;        // integral of value over [startTime, lastTime]
+    private double max;
+
+    public TimeWeightedStatistic() {
+        reset(0.0);
+    }
+
+    /**
+     * Records that the quantity changed to a new value at the given time.
+     *
+     * @param time simulation time of the change
+     * @param newValue the value from this time on
+     */
+    public void update(double time, double newValue) {
+        this.area += this.value * (time - this.lastTime);
+        this.lastTime = time;
+        this.value = newValue;
+
+        if (newValue > this.max) {
+            this.max = newValue;
+        }
+    }
+
+    /**
+     * Time average from the start of observation to the given time.
+     *
+     * @param time the current simulation time
+     * @return the time-weighted mean, or the current value if no time has passed
+     */
+    public double getMean(double time) {
+        double elapsed = time - this.startTime;
+        double total = this.area + this.value * (time - this.lastTime);
+
+        return (elapsed > 0.0) ? total / elapsed : this.value;
+    }
+
+    public double getValue() {
+        return this.value;
+    }
+
+    public double getMax() {
+        return this.max;
+    }
+
+    public void copyFrom(TimeWeightedStatistic other) {
+        this.startTime = other.startTime;
+        this.lastTime = other.lastTime;
+        this.value = other.value;
+        this.area = other.area;
+        this.max = other.max;
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putDouble(this.startTime).putDouble(this.lastTime).putDouble(this.value)
+                .putDouble(this.area).putDouble(this.max);
+    }
+
+    public void readFrom(ByteBuffer buffer) {
+        this.startTime = buffer.getDouble();
+        this.lastTime = buffer.getDouble();
+        this.value = buffer.getDouble();
+        this.area = buffer.getDouble();
+        this.max = buffer.getDouble();
+    }
+
+    /**
+     * Discards the history, e.g. at the end of a warm-up period, keeping the
+     * current value.
+     *
+     * @param time the new start of observation
+     */
+    public void reset(double time) {
+        this.startTime = time;
+        this.lastTime = time;
+        this.area = 0.0;
+        this.max = this.value;
+    }
+}
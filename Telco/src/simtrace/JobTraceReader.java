@@ -0,0 +1,378 @@
+package simtrace;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import simstats.OnlineStatistic;
+
+/**
+ * Queries a job trace written by JobTraceWriter. Columns are read through
+ * read-only memory mappings of a bounded window each, so a trace of any size
+ * is scanned in constant heap; only the windows being read are paged in.
+ *
+ * Queries take a window of departure times [from, to). Since rows are in
+ * order of departure, the first row of a window is found by binary search and
+ * the scan stops at the first row past it.
+ *
+ * @author Ryan Owens
+ */
+public final class JobTraceReader implements Closeable {
+    private static final int WINDOW_ROWS = 1 << 20;
+
+    private final List<String> stationNames;
+    private final long rows;
+    private final Column job;
+    private final Column station;
+    private final Column arrival;
+    private final Column start;
+    private final Column end;
+    private final Column next;
+
+    /**
+     * Receives the rows of a scan.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(long jobId, int station, double arrival, double start, double end, int nextStation);
+    }
+
+    /**
+     * Opens a trace directory.
+     *
+     * @param directory the directory the trace was written to
+     * @throws IOException if a column cannot be read or the columns disagree
+     */
+    public JobTraceReader(Path directory) throws IOException {
+        this.stationNames = Collections.unmodifiableList(Files.readAllLines(directory.resolve(JobTraceWriter.STATIONS)));
+
+        // columns opened so far are closed if a later one fails
+        List<Column> opened = new ArrayList<>(6);
+        try {
+            this.job = open(opened, directory.resolve(JobTraceWriter.JOB), Long.BYTES);
+            this.station = open(opened, directory.resolve(JobTraceWriter.STATION), Integer.BYTES);
+            this.arrival = open(opened, directory.resolve(JobTraceWriter.ARRIVAL), Double.BYTES);
+            this.start = open(opened, directory.resolve(JobTraceWriter.START), Double.BYTES);
+            this.end = open(opened, directory.resolve(JobTraceWriter.END), Double.BYTES);
+            this.next = open(opened, directory.resolve(JobTraceWriter.NEXT), Integer.BYTES);
+
+            this.rows = this.job.rows;
+            for (Column column : opened) {
+                if (column.rows != this.rows) {
+                    throw new IOException("The columns of the trace in " + directory + " have different lengths.");
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Column column : opened) {
+                try {
+                    column.channel.close();
+                } catch (IOException ioe) {
+                    e.addSuppressed(ioe);
+                }
+            }
+            throw e;
+        }
+    }
+
+    private static Column open(List<Column> opened, Path file, int width) throws IOException {
+        Column column = new Column(file, width);
+        opened.add(column);
+        return column;
+    }
+
+    /**
+     * Takes a trace directory, optionally a command (summary, the default, or
+     * csv) and optionally the window of departure times to query. The summary
+     * or CSV is written to stdout.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1 && args.length != 2 && args.length != 4) {
+            throw new IllegalArgumentException("Usage: JobTraceReader <trace directory> [summary|csv] [from to]");
+        }
+
+        String command = (args.length > 1) ? args[1] : "summary";
+        double from = (args.length == 4) ? Double.parseDouble(args[2]) : Double.NEGATIVE_INFINITY;
+        double to = (args.length == 4) ? Double.parseDouble(args[3]) : Double.POSITIVE_INFINITY;
+        try (JobTraceReader reader = new JobTraceReader(Paths.get(args[0]))) {
+            switch (command) {
+                case "summary":
+                    for (StationSummary summary : reader.summarize(from, to)) {
+                        summary.print(System.out, reader.getStationNames());
+                    }
+                    break;
+                case "csv":
+                    Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+                    reader.exportCsv(out, from, to);
+                    out.flush();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown command '" + command + "'.");
+            }
+        }
+    }
+
+    /**
+     * @return the number of rows in the trace
+     */
+    public long getRowCount() {
+        return this.rows;
+    }
+
+    /**
+     * @return the station names, indexed by the station column
+     */
+    public List<String> getStationNames() {
+        return this.stationNames;
+    }
+
+    /**
+     * Visits every row whose departure time is in [from, to), in order.
+     *
+     * @param from earliest departure time
+     * @param to departure time at which to stop
+     * @param visitor receives the rows
+     */
+    public void scan(double from, double to, Visitor visitor) {
+        for (long row = firstRow(from); row < this.rows; row++) {
+            double departure = this.end.getDouble(row);
+            if (departure >= to) {
+                break;
+            }
+            visitor.visit(this.job.getLong(row), this.station.getInt(row), this.arrival.getDouble(row),
+                    this.start.getDouble(row), departure, this.next.getInt(row));
+        }
+    }
+
+    /**
+     * @return the first row departing at or after a time
+     */
+    private long firstRow(double from) {
+        long lo = 0;
+        long hi = this.rows;
+
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (this.end.getDouble(mid) < from) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Computes the wait, service and sojourn time of the visits to each
+     * station that departed in a window.
+     *
+     * @param from earliest departure time
+     * @param to departure time at which to stop
+     * @return one summary per station, in station order
+     */
+    public List<StationSummary> summarize(double from, double to) {
+        List<StationSummary> summaries = new ArrayList<>(this.stationNames.size());
+        for (String name : this.stationNames) {
+            summaries.add(new StationSummary(name, this.stationNames.size()));
+        }
+
+        scan(from, to, (jobId, s, arrivalTime, startTime, endTime, nextStation) -> {
+            StationSummary summary = summaries.get(s);
+            summary.wait.add(startTime - arrivalTime);
+            summary.service.add(endTime - startTime);
+            summary.sojourn.add(endTime - arrivalTime);
+            if (nextStation >= 0) {
+                summary.routed[nextStation]++;
+            } else {
+                summary.departed++;
+            }
+        });
+        return summaries;
+    }
+
+    /**
+     * Writes the rows departing in a window as CSV with a header line.
+     *
+     * @param out where to write
+     * @param from earliest departure time
+     * @param to departure time at which to stop
+     * @throws IOException if writing fails
+     */
+    public void exportCsv(Writer out, double from, double to) throws IOException {
+        out.write("job,station,arrival,start,end,next\n");
+
+        IOException[] failure = new IOException[1];
+        StringBuilder line = new StringBuilder(96);
+        scan(from, to, (jobId, s, arrivalTime, startTime, endTime, nextStation) -> {
+            if (failure[0] != null) {
+                return;
+            }
+            line.setLength(0);
+            line.append(jobId).append(',').append(this.stationNames.get(s)).append(',')
+                    .append(arrivalTime).append(',').append(startTime).append(',').append(endTime).append(',')
+                    .append((nextStation >= 0) ? this.stationNames.get(nextStation) : "").append('\n');
+            try {
+                out.append(line);
+            } catch (IOException ioe) {
+                failure[0] = ioe;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Column column : new Column[] {this.job, this.station, this.arrival, this.start, this.end, this.next}) {
+            if (column != null) {
+                column.channel.close();
+            }
+        }
+    }
+
+    /**
+     * The visits to one station in a queried window.
+     */
+    public static final class StationSummary {
+        private final String name;
+        private final OnlineStatistic wait = new OnlineStatistic();
+        private final OnlineStatistic service = new OnlineStatistic();
+        private final OnlineStatistic sojourn = new OnlineStatistic();
+        private final long[] routed;
+        private long departed = 0;
+
+        StationSummary(String name, int stations) {
+            this.name = name;
+            this.routed = new long[stations];
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public long getVisits() {
+            return this.sojourn.getCount();
+        }
+
+        public OnlineStatistic getWaitTime() {
+            return this.wait;
+        }
+
+        public OnlineStatistic getServiceTime() {
+            return this.service;
+        }
+
+        public OnlineStatistic getSojournTime() {
+            return this.sojourn;
+        }
+
+        /**
+         * @return jobs routed from this station to a station
+         */
+        public long getRoutedTo(int station) {
+            return this.routed[station];
+        }
+
+        /**
+         * @return jobs that left the network at this station
+         */
+        public long getDeparted() {
+            return this.departed;
+        }
+
+        void print(PrintStream out, List<String> stationNames) {
+            out.printf("%s: %d visit(s)%n", this.name, getVisits());
+            if (getVisits() == 0) {
+                return;
+            }
+            printStatistic(out, "wait", this.wait);
+            printStatistic(out, "service", this.service);
+            printStatistic(out, "sojourn", this.sojourn);
+
+            StringBuilder routes = new StringBuilder("\trouted  ");
+            for (int s = 0; s < this.routed.length; s++) {
+                if (this.routed[s] > 0) {
+                    routes.append(' ').append(stationNames.get(s)).append(' ').append(this.routed[s]).append(',');
+                }
+            }
+            if (this.departed > 0) {
+                routes.append(" left ").append(this.departed).append(',');
+            }
+            routes.setLength(routes.length() - 1);
+            out.println(routes);
+        }
+
+        private static void printStatistic(PrintStream out, String label, OnlineStatistic statistic) {
+            out.printf("\t%-8s mean %.4f, sd %.4f, min %.4f, max %.4f%n", label, statistic.getMean(),
+                    statistic.getStandardDeviation(), statistic.getMin(), statistic.getMax());
+        }
+    }
+
+    /**
+     * One column file, read through a mapping of a window of rows.
+     */
+    private static final class Column {
+        final FileChannel channel;
+        final int width;
+        final long rows;
+        MappedByteBuffer window;
+        long windowStart = 0;
+        long windowEnd = 0;
+
+        Column(Path file, int width) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.width = width;
+            try {
+                this.rows = this.channel.size() / width;
+            } catch (IOException ioe) {
+                this.channel.close();
+                throw ioe;
+            }
+        }
+
+        private int position(long row) {
+            if (row < this.windowStart || row >= this.windowEnd) {
+                this.windowStart = row - (row % WINDOW_ROWS);
+                this.windowEnd = Math.min(this.rows, this.windowStart + WINDOW_ROWS);
+                try {
+                    this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, this.windowStart * this.width,
+                            (this.windowEnd - this.windowStart) * this.width);
+                } catch (IOException ioe) {
+                    throw new UncheckedIOException(ioe);
+                }
+            }
+            return (int) (row - this.windowStart) * this.width;
+        }
+
+        long getLong(long row) {
+            int position = position(row);
+            return this.window.getLong(position);
+        }
+
+        int getInt(long row) {
+            int position = position(row);
+            return this.window.getInt(position);
+        }
+
+        double getDouble(long row) {
+            int position = position(row);
+            return this.window.getDouble(position);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package simtrace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Records the lifecycle of every job at every station, as it happens, into a
+ * directory of column files: one row per visit, written when the job leaves
+ * the station. Each column is a flat array of one primitive type, written
+ * through a memory mapping that is moved forward a chunk at a time, so the
+ * trace costs no heap however long the run. JobTraceReader queries it.
+ *
+ * Columns (big-endian):
+ * <pre>
+ * job.i64       job id
+ * station.i32   station index, see stations.txt
+ * arrival.f64   arrival at the station
+ * start.f64     start of service (the arrival time at a transducer)
+ * end.f64       departure from the station
+ * next.i32      station the job was routed to, or -1 if it left the network
+ * stations.txt  station names, one per line, in index order
+ * </pre>
+ * Rows are written in order of departure, so the end column never decreases.
+ * Like Tracer, recording never throws: a write failure stops the trace and
+ * is reported by close.
+ *
+ * @author Ryan Owens
+ */
+public final class JobTraceWriter implements Closeable {
+    static final String JOB = "job.i64";
+    static final String STATION = "station.i32";
+    static final String ARRIVAL = "arrival.f64";
+    static final String START = "start.f64";
+    static final String END = "end.f64";
+    static final String NEXT = "next.i32";
+    static final String STATIONS = "stations.txt";
+
+    private static final int CHUNK_ROWS = 1 << 16;
+
+    private final Path directory;
+    private final Column job;
+    private final Column station;
+    private final Column arrival;
+    private final Column start;
+    private final Column end;
+    private final Column next;
+    private final HashMap<String, Integer> stationIds = new HashMap<>();
+    private final List<String> stationNames = new ArrayList<>();
+    private String lastName;
+    private int lastId;
+    private long rows = 0;
+    private int chunkRows = 0;                // rows left in the mapped chunk
+    private IOException failure;
+    private boolean closed = false;
+
+    /**
+     * Creates the trace directory, replacing the columns of any earlier trace
+     * in it.
+     *
+     * @param directory the directory to write the columns to
+     * @throws IOException if the directory or a column cannot be created
+     */
+    public JobTraceWriter(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+
+        // columns created so far are closed if a later one fails
+        List<Column> opened = new ArrayList<>(6);
+        try {
+            this.job = open(opened, directory.resolve(JOB), Long.BYTES);
+            this.station = open(opened, directory.resolve(STATION), Integer.BYTES);
+            this.arrival = open(opened, directory.resolve(ARRIVAL), Double.BYTES);
+            this.start = open(opened, directory.resolve(START), Double.BYTES);
+            this.end = open(opened, directory.resolve(END), Double.BYTES);
+            this.next = open(opened, directory.resolve(NEXT), Integer.BYTES);
+        } catch (IOException | RuntimeException e) {
+            for (Column column : opened) {
+                try {
+                    column.channel.close();
+                } catch (IOException ioe) {
+                    e.addSuppressed(ioe);
+                }
+            }
+            throw e;
+        }
+    }
+
+    private static Column open(List<Column> opened, Path file, int width) throws IOException {
+        Column column = new Column(file, width);
+        opened.add(column);
+        return column;
+    }
+
+    /**
+     * Records a job leaving a station.
+     *
+     * @param jobId the job's id
+     * @param stationName the station it leaves
+     * @param arrivalTime when it arrived at the station
+     * @param startTime when its service started
+     * @param endTime when it left
+     * @param nextStation the station it was routed to, or null if it left the network
+     */
+    public void record(long jobId, String stationName, double arrivalTime, double startTime, double endTime,
+            String nextStation) {
+        if (this.failure != null || this.closed) {
+            return;
+        }
+        if (this.chunkRows == 0 && !mapChunk()) {
+            return;
+        }
+
+        this.job.buffer.putLong(jobId);
+        this.station.buffer.putInt(stationId(stationName));
+        this.arrival.buffer.putDouble(arrivalTime);
+        this.start.buffer.putDouble(startTime);
+        this.end.buffer.putDouble(endTime);
+        this.next.buffer.putInt((nextStation != null) ? stationId(nextStation) : -1);
+        this.rows++;
+        this.chunkRows--;
+    }
+
+    private boolean mapChunk() {
+        try {
+            for (Column column : columns()) {
+                column.map(this.rows, CHUNK_ROWS);
+            }
+            this.chunkRows = CHUNK_ROWS;
+            return true;
+        } catch (IOException ioe) {
+            this.failure = ioe;
+            return false;
+        }
+    }
+
+    private int stationId(String name) {
+        if (name == this.lastName) {
+            return this.lastId;
+        }
+
+        Integer id = this.stationIds.get(name);
+        if (id == null) {
+            id = this.stationNames.size();
+            this.stationNames.add(name);
+            this.stationIds.put(name, id);
+        }
+
+        this.lastName = name;
+        this.lastId = id;
+        return id;
+    }
+
+    private Column[] columns() {
+        return new Column[] {this.job, this.station, this.arrival, this.start, this.end, this.next};
+    }
+
+    /**
+     * @return the number of rows recorded
+     */
+    public long getRowCount() {
+        return this.rows;
+    }
+
+    /**
+     * Trims the columns to the rows recorded, writes the station names and
+     * closes the files.
+     *
+     * @throws IOException if writing the trace failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+
+        IOException error = this.failure;
+        for (Column column : columns()) {
+            try {
+                column.close(this.rows);
+            } catch (IOException ioe) {
+                if (error == null) {
+                    error = ioe;
+                }
+            }
+        }
+        if (error == null) {
+            Files.write(this.directory.resolve(STATIONS), this.stationNames);
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * One column file and its mapped chunk.
+     */
+    private static final class Column {
+        final FileChannel channel;
+        final int width;
+        MappedByteBuffer buffer;
+
+        Column(Path file, int width) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.width = width;
+        }
+
+        void map(long row, int rows) throws IOException {
+            if (this.buffer != null) {
+                this.buffer.force();
+            }
+            this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, row * this.width, (long) rows * this.width);
+        }
+
+        void close(long rows) throws IOException {
+            try {
+                if (this.buffer != null) {
+                    this.buffer.force();
+                    this.buffer = null;
+                }
+                // mapping extends the file to a whole chunk
+                this.channel.truncate(rows * this.width);
+            } finally {
+                this.channel.close();
+            }
+        }
+    }
+}
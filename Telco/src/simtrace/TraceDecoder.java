@@ -0,0 +1,166 @@
+package simtrace;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders a binary trace file as the human-readable text the simulator used to
+ * print to the console, reproducing it exactly, including its quirks: there is
+ * no dispatch line for the generator named Gen_1, the final period follows the
+ * line break after "Last event at", and generators and transducers are always
+ * called Generator and Transducer whatever their names.
+ *
+ * @author Ryan Owens
+ */
+public class TraceDecoder {
+    private static final String SILENT_GENERATOR = "Gen_1";   // the console never showed its dispatches
+
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * Takes one argument: the trace file to decode. Text is written to stdout.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: TraceDecoder <trace file>");
+        }
+
+        new TraceDecoder().decode(Paths.get(args[0]), System.out);
+    }
+
+    /**
+     * Decodes a trace file.
+     *
+     * @param file the binary trace file
+     * @param out the stream to write the text to
+     * @throws IOException if the file cannot be read or is not a trace file
+     */
+    public void decode(Path file, PrintStream out) throws IOException {
+        try (InputStream is = Files.newInputStream(file)) {
+            decode(is, out);
+        }
+    }
+
+    public void decode(InputStream is, PrintStream out) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(is, 1 << 16));
+
+        if (in.readInt() != TraceRecord.MAGIC) {
+            throw new IOException("Not a simulation trace file.");
+        }
+        int version = in.readInt();
+        if (version != TraceRecord.VERSION) {
+            throw new IOException("Unsupported trace version " + version);
+        }
+
+        this.names.clear();
+        while (true) {
+            int type = in.read();
+            if (type < 0) {
+                break;
+            }
+
+            try {
+                decodeRecord(type, in, out);
+            } catch (EOFException eof) {
+                // the trace was cut short, e.g. the run was killed
+                out.println("[truncated record]");
+                break;
+            }
+        }
+        out.flush();
+    }
+
+    private void decodeRecord(int type, DataInputStream in, PrintStream out) throws IOException {
+        switch (type) {
+            case TraceRecord.NAME: {
+                int id = in.readInt();
+                String name = in.readUTF();
+                while (this.names.size() <= id) {
+                    this.names.add(null);
+                }
+                this.names.set(id, name);
+                break;
+            }
+            case TraceRecord.RUN_START: {
+                double time = in.readDouble();
+                double endTime = in.readDouble();
+                out.printf("Simulation time: %.3f. Running until: %.1f%n", time, endTime);
+                break;
+            }
+            case TraceRecord.RUN_END:
+                out.printf("Last event at %.3f%n.", in.readDouble());
+                break;
+            case TraceRecord.EVENT_SCHEDULED: {
+                String source = name(in.readInt());
+                double time = in.readDouble();
+                out.printf("  Engine: Rec'vd event from %s to occur at %.3f, total jobs: %d%n",
+                        source, time, in.readInt());
+                break;
+            }
+            case TraceRecord.EVENT_DISPATCHED: {
+                String source = name(in.readInt());
+                double time = in.readDouble();
+                if (!SILENT_GENERATOR.equals(source)) {
+                    out.printf("%nEvent simulation time: %.3f%n", time);
+                }
+                break;
+            }
+            case TraceRecord.JOB_STARTED: {
+                String source = name(in.readInt());
+                double time = in.readDouble();
+                double serviceTime = in.readDouble();
+                int busy = in.readInt();
+                int servers = in.readInt();
+                out.printf("  %s: Started job at %f. Done in %.3f. %d of %d server(s) busy.%n",
+                        source, time, serviceTime, busy, servers);
+                break;
+            }
+            case TraceRecord.JOB_ROUTED: {
+                String source = name(in.readInt());
+                in.readDouble();
+                out.println("  " + source + " sending job to " + name(in.readInt()));
+                break;
+            }
+            case TraceRecord.JOB_MISSING: {
+                in.readInt();
+                out.println("Could not find job with end time: " + in.readDouble());
+                break;
+            }
+            case TraceRecord.JOB_ABSORBED: {
+                in.readInt();
+                in.readDouble();
+                out.printf("  Transducer: Completed %d jobs\n", in.readInt());
+                break;
+            }
+            case TraceRecord.ARRIVALS_CREATED: {
+                in.readInt();
+                in.readDouble();
+                out.printf("Generator: %d job(s) created.\n", in.readInt());
+                break;
+            }
+            case TraceRecord.GENERATOR_IDLE: {
+                in.readInt();
+                in.readDouble();
+                out.printf("  Generator: No jobs to send.%n");
+                break;
+            }
+            default:
+                throw new IOException("Unknown trace record type " + type);
+        }
+    }
+
+    private String name(int id) {
+        return (id < this.names.size() && this.names.get(id) != null) ? this.names.get(id) : ("#" + id);
+    }
+}
@@ -0,0 +1,18 @@
+package simtrace;
+
+/**
+ * Amount of detail written to a simulation trace. Each level includes the
+ * records of the levels before it.
+ *
+ * @author Ryan Owens
+ */
+public enum TraceLevel {
+    /** No tracing; trace calls return immediately. */
+    OFF,
+    /** Run start and end, and generator summaries. */
+    RUN,
+    /** Every event scheduled with and dispatched by the engine. */
+    EVENT,
+    /** Job starts, routing and completions within the stations. */
+    JOB
+}
@@ -0,0 +1,41 @@
+package simtrace;
+
+/**
+ * Record type codes used in the binary trace format. A trace file starts with
+ * the MAGIC number and VERSION, followed by records that each begin with a
+ * one-byte type code:
+ * <pre>
+ * NAME             int id, UTF name
+ * RUN_START        double time, double endTime
+ * RUN_END          double time
+ * EVENT_SCHEDULED  int source, double eventTime, int pendingEvents
+ * EVENT_DISPATCHED int source, double time
+ * JOB_STARTED      int source, double time, double serviceTime, int busy, int servers
+ * JOB_ROUTED       int source, double time, int destination
+ * JOB_MISSING      int source, double time
+ * JOB_ABSORBED     int source, double time, int completed
+ * ARRIVALS_CREATED int source, double time, int count
+ * GENERATOR_IDLE   int source, double time
+ * </pre>
+ *
+ * @author Ryan Owens
+ */
+public final class TraceRecord {
+    public static final int MAGIC = 0x54524331;     // "TRC1"
+    public static final int VERSION = 1;
+
+    public static final int NAME = 0;
+    public static final int RUN_START = 1;
+    public static final int RUN_END = 2;
+    public static final int EVENT_SCHEDULED = 3;
+    public static final int EVENT_DISPATCHED = 4;
+    public static final int JOB_STARTED = 5;
+    public static final int JOB_ROUTED = 6;
+    public static final int JOB_MISSING = 7;
+    public static final int JOB_ABSORBED = 8;
+    public static final int ARRIVALS_CREATED = 9;
+    public static final int GENERATOR_IDLE = 10;
+
+    private TraceRecord() {
+    }
+}
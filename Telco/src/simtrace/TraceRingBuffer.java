@@ -0,0 +1,72 @@
+package simtrace;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free, single-producer/single-consumer ring of fixed-size trace records.
+ * Each record is four longs: type and source, time, and two arguments. The
+ * producer (the simulation thread) waits for space rather than dropping records.
+ *
+ * @author Ryan Owens
+ */
+final class TraceRingBuffer {
+    static final int RECORD_LONGS = 4;
+
+    private final long[] slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();   // next record to read
+    private final AtomicLong tail = new AtomicLong();   // next record to write
+    private long cachedHead;                            // producer's view of head
+
+    /**
+     * @param capacity number of records; rounded up to a power of two
+     */
+    TraceRingBuffer(int capacity) {
+        int records = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new long[records * RECORD_LONGS];
+        this.mask = records - 1;
+    }
+
+    /**
+     * Appends a record, spinning while the ring is full.
+     */
+    void put(long typeAndSource, long time, long a, long b) {
+        long t = this.tail.get();
+
+        while (t - this.cachedHead > this.mask) {
+            this.cachedHead = this.head.get();
+            if (t - this.cachedHead > this.mask) {
+                Thread.onSpinWait();
+            }
+        }
+
+        int i = (int) (t & this.mask) * RECORD_LONGS;
+        this.slots[i] = typeAndSource;
+        this.slots[i + 1] = time;
+        this.slots[i + 2] = a;
+        this.slots[i + 3] = b;
+        this.tail.lazySet(t + 1);    // publish the record
+    }
+
+    /**
+     * Copies up to max records into the destination array.
+     *
+     * @return number of records copied
+     */
+    int drain(long[] dest, int max) {
+        long h = this.head.get();
+        int available = (int) Math.min(this.tail.get() - h, max);
+
+        for (int r = 0; r < available; r++) {
+            int i = (int) ((h + r) & this.mask) * RECORD_LONGS;
+            System.arraycopy(this.slots, i, dest, r * RECORD_LONGS, RECORD_LONGS);
+        }
+        this.head.lazySet(h + available);
+
+        return available;
+    }
+
+    boolean isEmpty() {
+        return this.head.get() == this.tail.get();
+    }
+}
@@ -0,0 +1,271 @@
+package simtrace;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured simulation trace. The simulation thread writes fixed-size records
+ * into a lock-free ring buffer; a background thread drains the ring to a compact
+ * binary file that TraceDecoder renders as text. When the level is OFF, every
+ * trace call returns after a single comparison.
+ *
+ * @author Ryan Owens
+ */
+public class Tracer implements Closeable {
+    /** Shared tracer that records nothing. */
+    public static final Tracer OFF = new Tracer();
+
+    private static final int DEFAULT_CAPACITY = 1 << 14;
+    private static final int DRAIN_BATCH = 1024;
+
+    private final int level;
+    private final TraceRingBuffer ring;
+    private final Thread writerThread;
+    private final HashMap<String, Integer> sourceIds;
+    private final List<String> sourceNames;     // read by the writer thread
+    private String lastName;
+    private int lastId;
+    private volatile boolean closing;
+    private volatile IOException failure;
+
+    private Tracer() {
+        this.level = TraceLevel.OFF.ordinal();
+        this.ring = null;
+        this.writerThread = null;
+        this.sourceIds = null;
+        this.sourceNames = null;
+    }
+
+    public Tracer(TraceLevel level, Path file) throws IOException {
+        this(level, file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a tracer writing to the given file, starting its writer thread.
+     *
+     * @param level the most detailed level to record
+     * @param file the binary trace file to create
+     * @param capacity number of records the ring buffer holds
+     * @throws IOException if the file cannot be created
+     */
+    public Tracer(TraceLevel level, Path file, int capacity) throws IOException {
+        this.level = level.ordinal();
+        this.ring = new TraceRingBuffer(capacity);
+        this.sourceIds = new HashMap<>();
+        this.sourceNames = new CopyOnWriteArrayList<>();
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        out.writeInt(TraceRecord.MAGIC);
+        out.writeInt(TraceRecord.VERSION);
+
+        this.writerThread = new Thread(() -> writeLoop(out), "trace-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * @param detail a trace level
+     * @return true if records of that level are being written
+     */
+    public final boolean isEnabled(TraceLevel detail) {
+        return this.level >= detail.ordinal();
+    }
+
+    public void runStart(double simTime, double endTime) {
+        if (this.level >= TraceLevel.RUN.ordinal()) {
+            put(TraceRecord.RUN_START, 0, simTime, Double.doubleToRawLongBits(endTime), 0);
+        }
+    }
+
+    public void runEnd(double simTime) {
+        if (this.level >= TraceLevel.RUN.ordinal()) {
+            put(TraceRecord.RUN_END, 0, simTime, 0, 0);
+        }
+    }
+
+    public void arrivalsCreated(String source, double simTime, int count) {
+        if (this.level >= TraceLevel.RUN.ordinal()) {
+            put(TraceRecord.ARRIVALS_CREATED, sourceId(source), simTime, count, 0);
+        }
+    }
+
+    public void eventScheduled(String source, double eventTime, int pendingEvents) {
+        if (this.level >= TraceLevel.EVENT.ordinal()) {
+            put(TraceRecord.EVENT_SCHEDULED, sourceId(source), eventTime, pendingEvents, 0);
+        }
+    }
+
+    public void eventDispatched(String source, double simTime) {
+        if (this.level >= TraceLevel.EVENT.ordinal()) {
+            put(TraceRecord.EVENT_DISPATCHED, sourceId(source), simTime, 0, 0);
+        }
+    }
+
+    public void generatorIdle(String source, double simTime) {
+        if (this.level >= TraceLevel.EVENT.ordinal()) {
+            put(TraceRecord.GENERATOR_IDLE, sourceId(source), simTime, 0, 0);
+        }
+    }
+
+    public void jobStarted(String source, double simTime, double serviceTime, int busy, int servers) {
+        if (this.level >= TraceLevel.JOB.ordinal()) {
+            put(TraceRecord.JOB_STARTED, sourceId(source), simTime,
+                    Double.doubleToRawLongBits(serviceTime), ((long) busy << 32) | (servers & 0xFFFFFFFFL));
+        }
+    }
+
+    public void jobRouted(String source, double simTime, String destination) {
+        if (this.level >= TraceLevel.JOB.ordinal()) {
+            int id = sourceId(source);
+            put(TraceRecord.JOB_ROUTED, id, simTime, sourceId(destination), 0);
+        }
+    }
+
+    public void jobMissing(String source, double simTime) {
+        if (this.level >= TraceLevel.JOB.ordinal()) {
+            put(TraceRecord.JOB_MISSING, sourceId(source), simTime, 0, 0);
+        }
+    }
+
+    public void jobAbsorbed(String source, double simTime, int completed) {
+        if (this.level >= TraceLevel.JOB.ordinal()) {
+            put(TraceRecord.JOB_ABSORBED, sourceId(source), simTime, completed, 0);
+        }
+    }
+
+    /**
+     * Writes all outstanding records and closes the trace file.
+     *
+     * @throws IOException if writing the trace failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.writerThread == null) {
+            return;
+        }
+
+        this.closing = true;
+        LockSupport.unpark(this.writerThread);
+        try {
+            this.writerThread.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (this.failure != null) {
+            throw this.failure;
+        }
+    }
+
+    private void put(int type, int source, double time, long a, long b) {
+        this.ring.put(((long) type << 32) | (source & 0xFFFFFFFFL), Double.doubleToRawLongBits(time), a, b);
+    }
+
+    /**
+     * Maps a component name to a compact id, emitting a NAME record the first
+     * time the name is seen.
+     */
+    private int sourceId(String name) {
+        if (name == this.lastName) {
+            return this.lastId;
+        }
+
+        Integer id = this.sourceIds.get(name);
+        if (id == null) {
+            id = this.sourceNames.size();
+            this.sourceNames.add(name);
+            this.sourceIds.put(name, id);
+            put(TraceRecord.NAME, id, 0.0, 0, 0);
+        }
+
+        this.lastName = name;
+        this.lastId = id;
+        return id;
+    }
+
+    private void writeLoop(DataOutputStream out) {
+        long[] batch = new long[DRAIN_BATCH * TraceRingBuffer.RECORD_LONGS];
+
+        try (DataOutputStream o = out) {
+            while (true) {
+                boolean done = this.closing;
+                int n = this.ring.drain(batch, DRAIN_BATCH);
+
+                for (int r = 0; r < n; r++) {
+                    writeRecord(o, batch, r * TraceRingBuffer.RECORD_LONGS);
+                }
+
+                if (n == 0) {
+                    if (done) {
+                        break;
+                    }
+                    o.flush();
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+            }
+        } catch (IOException ioe) {
+            this.failure = ioe;
+            // keep draining so the simulation thread never blocks on a full ring
+            while (!this.closing || !this.ring.isEmpty()) {
+                if (this.ring.drain(batch, DRAIN_BATCH) == 0) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+            }
+        }
+    }
+
+    private void writeRecord(DataOutputStream out, long[] batch, int i) throws IOException {
+        int type = (int) (batch[i] >>> 32);
+        int source = (int) batch[i];
+        double time = Double.longBitsToDouble(batch[i + 1]);
+        long a = batch[i + 2];
+        long b = batch[i + 3];
+
+        out.writeByte(type);
+        switch (type) {
+            case TraceRecord.NAME:
+                out.writeInt(source);
+                out.writeUTF(this.sourceNames.get(source));
+                break;
+            case TraceRecord.RUN_START:
+                out.writeDouble(time);
+                out.writeDouble(Double.longBitsToDouble(a));
+                break;
+            case TraceRecord.RUN_END:
+                out.writeDouble(time);
+                break;
+            case TraceRecord.JOB_STARTED:
+                out.writeInt(source);
+                out.writeDouble(time);
+                out.writeDouble(Double.longBitsToDouble(a));
+                out.writeInt((int) (b >>> 32));
+                out.writeInt((int) b);
+                break;
+            case TraceRecord.EVENT_SCHEDULED:
+            case TraceRecord.JOB_ROUTED:
+            case TraceRecord.JOB_ABSORBED:
+            case TraceRecord.ARRIVALS_CREATED:
+                out.writeInt(source);
+                out.writeDouble(time);
+                out.writeInt((int) a);
+                break;
+            case TraceRecord.EVENT_DISPATCHED:
+            case TraceRecord.JOB_MISSING:
+            case TraceRecord.GENERATOR_IDLE:
+                out.writeInt(source);
+                out.writeDouble(time);
+                break;
+            default:
+                throw new IOException("Unknown trace record type " + type);
+        }
+    }
+}